@@ -0,0 +1,153 @@
+package us.zoom.data.dfence.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+import us.zoom.data.dfence.CompiledChanges;
+import us.zoom.data.dfence.consistency.GrantRevokeConsistencyChecker;
+import us.zoom.data.dfence.playbook.model.PlaybookModel;
+import us.zoom.data.dfence.playbook.model.PlaybookRoleModel;
+import us.zoom.data.dfence.providers.snowflake.SnowflakeProvider;
+import us.zoom.data.dfence.providers.snowflake.SnowflakeStatementsService;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.options.SnowflakeGrantBuilderOptions;
+import us.zoom.data.dfence.providers.snowflake.grant.desired.create.DesiredGrantsCompiler;
+import us.zoom.data.dfence.providers.snowflake.revoke.SnowflakeRevokeGrantsCompiler;
+import us.zoom.data.dfence.sql.ObjectName;
+import us.zoom.data.dfence.sql.QualifiedName;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/*
+Throughput of each stage of SnowflakeProvider.compileRoleChanges over a whole synthetic account. One operation is one
+stage run for every role, so the scores of the stages add up to roughly the score of the full compile.
+
+Run with the jmh profile, for example:
+
+mvn -P jmh test-compile exec:exec -Djmh.args="CompileBenchmark -p roles=10,1000 -p grants=1000,100000 -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+public class CompileBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int roles;
+
+    @Param({"1000", "100000", "1000000"})
+    public int grants;
+
+    @Param({"10"})
+    public int databases;
+
+    @Param({"10"})
+    public int schemasPerDatabase;
+
+    @Param({"100"})
+    public int tablesPerSchema;
+
+    private SyntheticAccount syntheticAccount;
+    private SyntheticSnowflakeObjectsService snowflakeObjectsService;
+    private SnowflakeProvider snowflakeProvider;
+    private DesiredGrantsCompiler desiredGrantsCompiler;
+    private SnowflakeGrantBuilderOptions options;
+    private List<String> existingRoles;
+    private Map<String, Map<String, SnowflakeGrantBuilder>> desiredGrantsByRole;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger("us.zoom.data.dfence")).setLevel(Level.WARN);
+        syntheticAccount = new SyntheticAccount(databases, schemasPerDatabase, tablesPerSchema, roles, grants);
+        snowflakeObjectsService = new SyntheticSnowflakeObjectsService(syntheticAccount);
+        snowflakeProvider = new SnowflakeProvider(
+                new SnowflakeStatementsService(null),
+                new SyntheticSnowflakeGrantsService(syntheticAccount),
+                snowflakeObjectsService,
+                ForkJoinPool.commonPool());
+        desiredGrantsCompiler = new DesiredGrantsCompiler(snowflakeObjectsService);
+        options = new SnowflakeGrantBuilderOptions();
+        options.setSuppressErrors(false);
+        existingRoles = syntheticAccount.roleNames();
+        desiredGrantsByRole = new HashMap<>();
+        for (PlaybookRoleModel role : syntheticAccount.playbookModel().roles().values()) {
+            desiredGrantsByRole.put(role.name(), desiredGrants(role));
+        }
+    }
+
+    private Map<String, SnowflakeGrantBuilder> desiredGrants(PlaybookRoleModel role) {
+        Map<String, SnowflakeGrantBuilder> desiredGrants = new HashMap<>();
+        role.grants().forEach(grant -> desiredGrantsCompiler.compileGrants(grant, role.name(), options)
+                .forEach(x -> desiredGrants.putIfAbsent(x.getKey(), x)));
+        return desiredGrants;
+    }
+
+    @Benchmark
+    public void objectNameParse(Blackhole blackhole) {
+        for (String tableName : syntheticAccount.tableNames()) {
+            blackhole.consume(ObjectName.normalizeObjectName(tableName));
+            blackhole.consume(QualifiedName.of(tableName));
+        }
+    }
+
+    @Benchmark
+    public void desiredGrantsCompile(Blackhole blackhole) {
+        for (PlaybookRoleModel role : syntheticAccount.playbookModel().roles().values()) {
+            blackhole.consume(desiredGrants(role));
+        }
+    }
+
+    @Benchmark
+    public void grantRevokeConsistencyCheck() {
+        for (PlaybookRoleModel role : syntheticAccount.playbookModel().roles().values()) {
+            GrantRevokeConsistencyChecker.check(role.grants(), desiredGrantsByRole.get(role.name()), role.name());
+        }
+    }
+
+    @Benchmark
+    public void revokeGrantsCompile(Blackhole blackhole) {
+        for (PlaybookRoleModel role : syntheticAccount.playbookModel().roles().values()) {
+            blackhole.consume(SnowflakeRevokeGrantsCompiler.compileRevokeGrants(
+                    role.grants(),
+                    syntheticAccount.existingGrantStore(role.name())));
+        }
+    }
+
+    @Benchmark
+    public void compileRoleChanges(Blackhole blackhole) {
+        PlaybookModel playbookModel = syntheticAccount.playbookModel();
+        for (Map.Entry<String, PlaybookRoleModel> role : playbookModel.roles().entrySet()) {
+            CompiledChanges compiledChanges = snowflakeProvider.compileRoleChanges(
+                    role.getKey(),
+                    role.getValue(),
+                    existingRoles,
+                    false,
+                    playbookModel,
+                    false);
+            blackhole.consume(compiledChanges);
+        }
+    }
+
+    @Benchmark
+    public void compileChanges(Blackhole blackhole) {
+        blackhole.consume(snowflakeProvider.compileChanges(syntheticAccount.playbookModel(), false));
+    }
+}
@@ -0,0 +1,139 @@
+package us.zoom.data.dfence.benchmark;
+
+import us.zoom.data.dfence.playbook.model.PlaybookModel;
+import us.zoom.data.dfence.playbook.model.PlaybookPrivilegeGrant;
+import us.zoom.data.dfence.playbook.model.PlaybookRoleModel;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
+import us.zoom.data.dfence.providers.snowflake.grant.store.SnowflakeGrantStore;
+import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+A generated account with a fixed number of databases, schemas and tables, a playbook with the requested number of
+roles and grants, and the grants that the roles already hold. Generation is deterministic so that runs can be compared.
+
+Grants in the playbook are mostly grants on single tables, with a database usage grant and a wildcard grant on all
+tables of a schema mixed in so that the future and all grant paths are exercised. The existing grants of a role are
+every other table grant of its playbook plus a few grants that the playbook does not allow, so that compile produces
+both grants and revokes.
+ */
+public class SyntheticAccount {
+    private static final List<String> TABLE_PRIVILEGES = List.of("select", "insert", "update", "delete");
+
+    private final List<String> databaseNames = new ArrayList<>();
+    private final Map<String, List<String>> schemaNamesByDatabase = new HashMap<>();
+    private final Map<String, List<String>> tableNamesBySchema = new HashMap<>();
+    private final Map<String, List<String>> tableNamesByDatabase = new HashMap<>();
+    private final List<String> tableNames = new ArrayList<>();
+    private final List<String> roleNames = new ArrayList<>();
+    private final Map<String, Map<String, SnowflakeGrantBuilder>> existingGrantsByRole = new HashMap<>();
+    private final Map<String, SnowflakeGrantStore> existingGrantStoresByRole = new HashMap<>();
+    private final PlaybookModel playbookModel;
+
+    public SyntheticAccount(int databases, int schemasPerDatabase, int tablesPerSchema, int roles, int grants) {
+        for (int d = 0; d < databases; d++) {
+            String databaseName = "DB_" + d;
+            databaseNames.add(databaseName);
+            List<String> schemaNames = new ArrayList<>();
+            List<String> databaseTableNames = new ArrayList<>();
+            for (int s = 0; s < schemasPerDatabase; s++) {
+                String schemaName = databaseName + ".SCHEMA_" + s;
+                schemaNames.add(schemaName);
+                List<String> schemaTableNames = new ArrayList<>();
+                for (int t = 0; t < tablesPerSchema; t++) {
+                    schemaTableNames.add(schemaName + ".TABLE_" + t);
+                }
+                tableNamesBySchema.put(schemaName, schemaTableNames);
+                databaseTableNames.addAll(schemaTableNames);
+            }
+            schemaNamesByDatabase.put(databaseName, schemaNames);
+            tableNamesByDatabase.put(databaseName, databaseTableNames);
+            tableNames.addAll(databaseTableNames);
+        }
+        int grantsPerRole = Math.max(1, grants / roles);
+        Map<String, PlaybookRoleModel> playbookRoles = new LinkedHashMap<>();
+        for (int r = 0; r < roles; r++) {
+            String roleName = "role_" + r;
+            roleNames.add(roleName.toUpperCase());
+            List<PlaybookPrivilegeGrant> playbookGrants = new ArrayList<>();
+            List<SnowflakeGrantModel> existingGrants = new ArrayList<>();
+            for (int g = 0; g < grantsPerRole; g++) {
+                int index = r * grantsPerRole + g;
+                String[] parts = tableNames.get(index % tableNames.size()).split("\\.");
+                if (g % 50 == 0) {
+                    playbookGrants.add(new PlaybookPrivilegeGrant(
+                            "database", null, null, parts[0], List.of("usage"), false, false, true));
+                } else if (g % 50 == 1) {
+                    playbookGrants.add(new PlaybookPrivilegeGrant(
+                            "table", "*", parts[1], parts[0], List.of("select"), true, true, true));
+                } else {
+                    String privilege = TABLE_PRIVILEGES.get(index % TABLE_PRIVILEGES.size());
+                    playbookGrants.add(new PlaybookPrivilegeGrant(
+                            "table", parts[2], parts[1], parts[0], List.of(privilege), false, false, true));
+                    String tableName = String.join(".", parts);
+                    if (g % 2 == 0) {
+                        existingGrants.add(tableGrant(privilege, tableName, roleName));
+                    }
+                    if (g % 20 == 3) {
+                        existingGrants.add(tableGrant("references", tableName, roleName));
+                    }
+                }
+            }
+            playbookRoles.put("role-" + r, new PlaybookRoleModel(roleName, playbookGrants));
+            Map<String, SnowflakeGrantBuilder> existingGrantBuilders = new HashMap<>();
+            existingGrants.stream()
+                    .map(SnowflakeGrantBuilder::fromGrant)
+                    .filter(Objects::nonNull)
+                    .forEach(x -> existingGrantBuilders.putIfAbsent(x.getKey(), x));
+            existingGrantsByRole.put(roleName.toUpperCase(), existingGrantBuilders);
+            existingGrantStoresByRole.put(roleName.toUpperCase(), SnowflakeGrantStore.of(existingGrants, false));
+        }
+        playbookModel = new PlaybookModel(playbookRoles);
+    }
+
+    private static SnowflakeGrantModel tableGrant(String privilege, String tableName, String roleName) {
+        return new SnowflakeGrantModel(privilege, "TABLE", tableName, "ROLE", roleName, false, false, false);
+    }
+
+    public PlaybookModel playbookModel() {
+        return playbookModel;
+    }
+
+    public List<String> databaseNames() {
+        return databaseNames;
+    }
+
+    public List<String> schemaNames(String databaseName) {
+        return schemaNamesByDatabase.getOrDefault(databaseName, List.of());
+    }
+
+    public List<String> tableNames(String containerName) {
+        List<String> schemaTableNames = tableNamesBySchema.get(containerName);
+        if (schemaTableNames != null) {
+            return schemaTableNames;
+        }
+        return tableNamesByDatabase.getOrDefault(containerName, List.of());
+    }
+
+    public List<String> tableNames() {
+        return tableNames;
+    }
+
+    public List<String> roleNames() {
+        return roleNames;
+    }
+
+    public Map<String, SnowflakeGrantBuilder> existingGrants(String roleName) {
+        return existingGrantsByRole.getOrDefault(roleName.toUpperCase(), Map.of());
+    }
+
+    public SnowflakeGrantStore existingGrantStore(String roleName) {
+        return existingGrantStoresByRole.getOrDefault(roleName.toUpperCase(), new SnowflakeGrantStore(false));
+    }
+}
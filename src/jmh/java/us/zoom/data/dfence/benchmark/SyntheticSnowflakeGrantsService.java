@@ -0,0 +1,34 @@
+package us.zoom.data.dfence.benchmark;
+
+import us.zoom.data.dfence.providers.snowflake.SnowflakeGrantsService;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
+import us.zoom.data.dfence.providers.snowflake.grant.store.SnowflakeGrantStore;
+
+import java.util.Collection;
+import java.util.Map;
+
+/*
+Grants service that returns the existing grants of a synthetic account instead of running show grants.
+ */
+public class SyntheticSnowflakeGrantsService extends SnowflakeGrantsService {
+    private final SyntheticAccount syntheticAccount;
+
+    public SyntheticSnowflakeGrantsService(SyntheticAccount syntheticAccount) {
+        super(null);
+        this.syntheticAccount = syntheticAccount;
+    }
+
+    @Override
+    public void loadGrantSnapshot(Collection<String> roleNames) {
+    }
+
+    @Override
+    public Map<String, SnowflakeGrantBuilder> getGrants(String roleName, Boolean skipUnknownGrantTypes) {
+        return syntheticAccount.existingGrants(roleName);
+    }
+
+    @Override
+    public SnowflakeGrantStore getGrantStore(String roleName, Boolean skipUnknownGrantTypes) {
+        return syntheticAccount.existingGrantStore(roleName);
+    }
+}
@@ -0,0 +1,35 @@
+package us.zoom.data.dfence.benchmark;
+
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeObjectType;
+import us.zoom.data.dfence.providers.snowflake.informationschema.SnowflakeObjectsService;
+import us.zoom.data.dfence.sql.ObjectName;
+
+import java.util.List;
+
+/*
+Objects service that answers from a synthetic account instead of the information schema. Only the uncached lookup is
+replaced so that the caching of the real service is part of what is measured.
+ */
+public class SyntheticSnowflakeObjectsService extends SnowflakeObjectsService {
+    private final SyntheticAccount syntheticAccount;
+
+    public SyntheticSnowflakeObjectsService(SyntheticAccount syntheticAccount) {
+        super(null);
+        this.syntheticAccount = syntheticAccount;
+    }
+
+    @Override
+    public List<String> getContainerObjectQualNamesRaw(
+            SnowflakeObjectType containerObjectType,
+            SnowflakeObjectType objectType,
+            String containerName) {
+        String normalizedContainerName = containerName.isEmpty() ? "" : ObjectName.normalizeObjectName(containerName);
+        return switch (objectType) {
+            case DATABASE -> syntheticAccount.databaseNames();
+            case ROLE -> syntheticAccount.roleNames();
+            case SCHEMA -> syntheticAccount.schemaNames(normalizedContainerName);
+            case TABLE -> syntheticAccount.tableNames(normalizedContainerName);
+            default -> List.of();
+        };
+    }
+}
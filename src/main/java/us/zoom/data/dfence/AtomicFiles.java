@@ -0,0 +1,38 @@
+package us.zoom.data.dfence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/*
+Writes files through a temporary file next to the target that is moved in place once it is complete, so that readers
+never see a partially written file. The temporary file is deleted when writing or moving it fails.
+ */
+public class AtomicFiles {
+
+    @FunctionalInterface
+    public interface Content {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    public static void write(Path path, Content content) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(temporaryPath)) {
+                content.writeTo(outputStream);
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temporaryPath);
+            } catch (IOException deleteException) {
+                e.addSuppressed(deleteException);
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package us.zoom.data.dfence;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import us.zoom.data.dfence.exception.RbacDataError;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.function.Consumer;
+
+/*
+Reads a changes file one role at a time so that the size of the file does not matter. Both the changes summary written
+by compile and the stream of role documents written by compile --stream are accepted, in YAML or JSON. Only the changes
+of the role being read are held in memory.
+
+Every root document is read field by field. The elements of a changes field are the roles of a summary. A document with
+a role id is the changes of one role from a stream. A document with only totals is the trailer of a stream.
+
+A file is only accepted once it was read to the end and looks complete. A summary must carry a total-changes that equals
+the number of roles in it, which is written after the roles. A stream must end with a trailer whose total-changes equals
+the number of role documents, which compile --stream only writes once the compile has succeeded. Call validate before
+acting on any role, so that a file that was cut short is rejected before anything is applied.
+ */
+@Slf4j
+public class ChangesFileReader {
+    private static final ObjectMapper yamlKebabObjectMapper = Mappers.yamlKebabObjectMapper();
+    private static final ObjectMapper jsonKebabObjectMapper = Mappers.jsonKebabObjectMapper();
+
+    @Getter
+    private final File file;
+
+    public ChangesFileReader(File file) {
+        this.file = file;
+    }
+
+    /*
+    Hand the changes of each role in the file to the consumer in file order and return the number of roles read.
+     */
+    public Integer forEach(Consumer<CompiledChanges> consumer) {
+        ObjectMapper objectMapper = isJson() ? jsonKebabObjectMapper : yamlKebabObjectMapper;
+        Contents contents = new Contents();
+        try (JsonParser parser = objectMapper.createParser(file)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new RbacDataError(String.format(
+                            "Unable to read changes file %s. Expected a document but found %s.",
+                            file,
+                            token));
+                }
+                readDocument(objectMapper, parser, consumer, contents);
+            }
+        } catch (IOException e) {
+            throw new RbacDataError(String.format("Unable to read changes file %s. %s", file, e), e);
+        }
+        checkComplete(contents);
+        return contents.summaryRoles + contents.streamRoles;
+    }
+
+    /*
+    Read the whole file without acting on any role and fail when it is not complete. Only one role is held in memory at
+    a time. Returns the number of roles in the file.
+     */
+    public Integer validate() {
+        return forEach(compiledChanges -> {
+        });
+    }
+
+    private void readDocument(
+            ObjectMapper objectMapper,
+            JsonParser parser,
+            Consumer<CompiledChanges> consumer,
+            Contents contents) throws IOException {
+        int roles = 0;
+        boolean summary = false;
+        ObjectNode document = objectMapper.createObjectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            if (fieldName.equals("changes") && valueToken == JsonToken.START_ARRAY) {
+                summary = true;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    consumer.accept(objectMapper.readValue(parser, CompiledChanges.class));
+                    roles++;
+                }
+            } else {
+                document.set(fieldName, objectMapper.readTree(parser));
+            }
+        }
+        contents.trailerTotalChanges = null;
+        if (document.has("role-id")) {
+            consumer.accept(objectMapper.treeToValue(document, CompiledChanges.class));
+            contents.streamRoles++;
+        } else if (summary) {
+            JsonNode totalChanges = document.get("total-changes");
+            if (totalChanges == null || !totalChanges.canConvertToInt() || totalChanges.intValue() != roles) {
+                throw new RbacDataError(String.format(
+                        "Changes file %s is not complete. It has %s roles but total-changes is %s.",
+                        file,
+                        roles,
+                        totalChanges));
+            }
+            contents.summaries++;
+            contents.summaryRoles += roles;
+        } else {
+            JsonNode totalChanges = document.get("total-changes");
+            if (totalChanges != null && totalChanges.canConvertToInt()) {
+                contents.trailerTotalChanges = totalChanges.intValue();
+            }
+            log.debug("Read changes file totals for {} roles.", document.get("total-roles"));
+        }
+        contents.documents++;
+    }
+
+    /*
+    A file with role documents, or without any summary, is a stream and must end with a trailer that counts its roles.
+     */
+    private void checkComplete(Contents contents) {
+        if (contents.documents == 0) {
+            throw new RbacDataError(String.format("Changes file %s is empty.", file));
+        }
+        if (contents.streamRoles == 0 && contents.summaries > 0) {
+            return;
+        }
+        if (contents.trailerTotalChanges == null) {
+            throw new RbacDataError(String.format(
+                    "Changes file %s is not complete. The stream of %s roles does not end with a trailer.",
+                    file,
+                    contents.streamRoles));
+        }
+        if (contents.trailerTotalChanges != contents.streamRoles) {
+            throw new RbacDataError(String.format(
+                    "Changes file %s is not complete. It has %s roles but the trailer counts %s.",
+                    file,
+                    contents.streamRoles,
+                    contents.trailerTotalChanges));
+        }
+    }
+
+    private static class Contents {
+        private int documents = 0;
+        private int summaries = 0;
+        private int summaryRoles = 0;
+        private int streamRoles = 0;
+        // The total-changes of the last document when it is a trailer.
+        private Integer trailerTotalChanges = null;
+    }
+
+    /*
+    JSON files start with a brace. Anything else is read as YAML.
+     */
+    private boolean isJson() throws RbacDataError {
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            int c;
+            while ((c = inputStream.read()) != -1) {
+                if (!Character.isWhitespace(c)) {
+                    return c == '{';
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new RbacDataError(String.format("Unable to read changes file %s. %s", file, e), e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package us.zoom.data.dfence;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import us.zoom.data.dfence.exception.RbacDataError;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/*
+Writes the changes of each role as its own document as soon as it is compiled, followed by a trailer with the totals.
+With a JSON mapper every document is written on its own line. With a YAML mapper the documents form a multi document
+YAML stream. Writes are synchronized so that roles compiled on different threads can share one writer.
+
+The trailer is only written by finish, which is called once the compile has succeeded. Closing the writer without
+finishing it leaves the stream without a trailer, so a stream cut short by a failed compile does not look complete.
+
+The output stream is flushed after every role and is not closed by the writer.
+ */
+public class ChangesStreamWriter implements AutoCloseable {
+    private final SequenceWriter sequenceWriter;
+    private final Integer totalRoles;
+    private int totalChanges = 0;
+
+    public ChangesStreamWriter(ObjectMapper objectMapper, OutputStream outputStream, Integer totalRoles) {
+        this.totalRoles = totalRoles;
+        try {
+            ObjectWriter objectWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (JsonFactory.FORMAT_NAME_JSON.equals(objectMapper.getFactory().getFormatName())) {
+                objectWriter = objectWriter.withRootValueSeparator("\n");
+            }
+            this.sequenceWriter = objectWriter.writeValues(outputStream);
+        } catch (IOException e) {
+            throw new RbacDataError(String.format("Unable to open changes stream. %s", e), e);
+        }
+    }
+
+    public synchronized void write(CompiledChanges compiledChanges) {
+        try {
+            sequenceWriter.write(compiledChanges);
+            sequenceWriter.flush();
+            totalChanges++;
+        } catch (IOException e) {
+            throw new RbacDataError(String.format(
+                    "Unable to write changes for role %s. %s",
+                    compiledChanges.roleName(),
+                    e), e);
+        }
+    }
+
+    public synchronized ChangesTrailer trailer() {
+        return new ChangesTrailer(totalRoles, totalChanges);
+    }
+
+    public synchronized ChangesTrailer finish() {
+        ChangesTrailer trailer = trailer();
+        try {
+            sequenceWriter.write(trailer);
+            sequenceWriter.flush();
+        } catch (IOException e) {
+            throw new RbacDataError(String.format("Unable to finish changes stream. %s", e), e);
+        }
+        return trailer;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            sequenceWriter.close();
+        } catch (IOException e) {
+            throw new RbacDataError(String.format("Unable to close changes stream. %s", e), e);
+        }
+    }
+}
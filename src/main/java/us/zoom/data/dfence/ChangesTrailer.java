@@ -0,0 +1,11 @@
+package us.zoom.data.dfence;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/*
+Last document of a streamed changes file. It carries the totals that the summary of a non-streamed changes file
+carries at the top.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ChangesTrailer(Integer totalRoles, Integer totalChanges) {
+}
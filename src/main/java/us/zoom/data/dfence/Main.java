@@ -24,7 +24,8 @@ import java.util.concurrent.Callable;
         showDefaultValues = true,
         mixinStandardHelpOptions = true,
         subcommands = {
-                ApplyCommand.class, CompileCommand.class, ImportCommand.class, ListRolesCommand.class})
+                ApplyCommand.class, CompileCommand.class, ImportCommand.class, ListRolesCommand.class,
+                ServeCommand.class})
 @Slf4j
 public class Main implements Callable<Integer> {
     private static final String packageName = "us.zoom.data.dfence";
@@ -3,13 +3,78 @@ package us.zoom.data.dfence;
 import us.zoom.data.dfence.playbook.model.PlaybookModel;
 import us.zoom.data.dfence.playbook.model.PlaybookRoleModel;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 public interface Provider {
 
     List<CompiledChanges> compileChanges(PlaybookModel playbookModel, Boolean ignoreUnknownChanges);
 
+    /**
+     * Compile changes and hand the changes of each role to the consumer instead of returning them all at once.
+     * Providers that can compile roles incrementally should override this so that the changes of the whole playbook
+     * never need to be held in memory.
+     *
+     * @param playbookModel the playbook to compile
+     * @param ignoreUnknownChanges ignore existing grants of an unknown type
+     * @param consumer receives the changes of each role that has changes, in role name order
+     */
+    default void compileChanges(
+            PlaybookModel playbookModel,
+            Boolean ignoreUnknownChanges,
+            Consumer<CompiledChanges> consumer) {
+        compileChanges(playbookModel, ignoreUnknownChanges).forEach(consumer);
+    }
+
+    /**
+     * Compile changes for some of the roles of a playbook. The rest of the playbook is still taken into account, for
+     * example to know which roles will exist.
+     *
+     * @param playbookModel the whole playbook
+     * @param ignoreUnknownChanges ignore existing grants of an unknown type
+     * @param roleIds the ids of the roles to compile
+     * @return the changes of the given roles that have changes, in role name order
+     */
+    default List<CompiledChanges> compileChanges(
+            PlaybookModel playbookModel,
+            Boolean ignoreUnknownChanges,
+            Set<String> roleIds) {
+        return compileChanges(playbookModel, ignoreUnknownChanges).stream()
+                .filter(x -> roleIds.contains(x.roleId()))
+                .toList();
+    }
+
+    /**
+     * Versions of databases that change whenever objects in them are created, dropped or altered. Incremental compile
+     * uses them to find roles whose objects changed. Providers that cannot tell return no versions, in which case only
+     * changes to the playbook are detected.
+     *
+     * @param databaseNames normalized names of databases
+     * @return the version of each database that exists
+     */
+    default Map<String, String> databaseVersions(Set<String> databaseNames) {
+        return Map.of();
+    }
+
+    /**
+     * Keep caches of objects in the account between compiles for at most the given age, for long running processes.
+     * Providers without caches ignore this.
+     *
+     * @param maxAge how long caches may be reused, or null to refresh them on every compile
+     */
+    default void retainCaches(Duration maxAge) {
+    }
+
+    /**
+     * Refresh caches on the next compile, for example after changes were applied.
+     */
+    default void invalidateCaches() {
+    }
+
     void applyPrivilegeChanges(List<CompiledChanges> compiledChanges);
 
     void applyRolesChanges(List<CompiledChanges> compiledChanges);
@@ -21,6 +21,7 @@ public class ProviderBuilder {
     String profileName;
     EnvironmentService environmentService = new EnvironmentService();
     ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+    Integer ioParallelism;
 
     public ProviderBuilder setEnvironmentService(EnvironmentService environmentService) {
         this.environmentService = environmentService;
@@ -51,6 +52,18 @@ public class ProviderBuilder {
         return this;
     }
 
+    /**
+     * Set the number of threads to use for blocking database calls.
+     * If not set, the maximum number of connections of the profile will be used.
+     * 
+     * @param ioParallelism the number of threads to use
+     * @return this builder
+     */
+    public ProviderBuilder setIoParallelism(Integer ioParallelism) {
+        this.ioParallelism = ioParallelism;
+        return this;
+    }
+
     public String getProfilesYamlString() {
         return profilesYamlString;
     }
@@ -116,6 +129,6 @@ public class ProviderBuilder {
     public Provider build() {
         log.debug("Building playbook service.");
         ProfilesModel profilesModel = Profile.parseProfiles(profilesYamlString, variables);
-        return Profile.provider(profilesModel, profileName, forkJoinPool);
+        return Profile.provider(profilesModel, profileName, forkJoinPool, ioParallelism);
     }
 }
@@ -1,16 +1,14 @@
 package us.zoom.data.dfence.cli;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import picocli.CommandLine;
+import us.zoom.data.dfence.ChangesFileReader;
 import us.zoom.data.dfence.ChangesSummary;
-import us.zoom.data.dfence.Mappers;
 import us.zoom.data.dfence.exception.RbacDataError;
 import us.zoom.data.dfence.playbook.PlaybookService;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.Scanner;
 
 @CommandLine.Command(
@@ -18,14 +16,12 @@ import java.util.Scanner;
 @Slf4j
 public class ApplyCommand extends PlaybookCommand {
 
-    private static final ObjectMapper yamlKebabObjectMapper = Mappers.yamlKebabObjectMapper();
-
     @CommandLine.Option(
             names = {"--auto-approve"}, description = "Do not prompt for approval.", defaultValue = "false")
     private Boolean autoApprove;
 
     @CommandLine.Option(
-            names = {"--changes-file", "-c"}, description = "Existing compiled changes file to read output from.")
+            names = {"--changes-file", "-c"}, description = "Existing compiled changes file to read output from. The file is applied while it is read.")
     private File changesFile;
 
     @CommandLine.Option(
@@ -39,23 +35,21 @@ public class ApplyCommand extends PlaybookCommand {
     @Override
     public Integer unhandledCall() throws RbacDataError {
         PlaybookService service = getPlaybookService();
-        ChangesSummary changes;
         if (changesFile != null) {
             log.info("Reading changes from file {}", changesFile);
-            try {
-                changes = yamlKebabObjectMapper.readValue(changesFile, ChangesSummary.class);
-            } catch (IOException e) {
-                throw new RbacDataError(
-                        String.format("Unable to read changes file %s. %s", changesFile.toString(), e),
-                        e);
+            Integer roles = service.applyChanges(new ChangesFileReader(changesFile));
+            if (roles > 0) {
+                log.info("Applied changes for {} roles.", roles);
+            } else {
+                log.info("No changes found. Nothing to do.");
             }
-        } else {
-            log.info("No changes file provided. Compiling changes.");
-            changes = service.compileChanges(ignoreUnknownGrants);
+            return 0;
         }
+        log.info("No changes file provided. Compiling changes.");
+        ChangesSummary changes = service.compileChanges(ignoreUnknownGrants);
         String changesSummary = writeChanges(changes);
         System.out.println(changesSummary);
-        if (changes.changes().size() > 0 && !autoApprove && changesFile == null) {
+        if (changes.changes().size() > 0 && !autoApprove) {
             Scanner cmdLineScanner = new Scanner(System.in);
             System.out.println("Approve changes? y/n");
             String response = cmdLineScanner.nextLine();
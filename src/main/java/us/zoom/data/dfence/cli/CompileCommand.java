@@ -3,13 +3,27 @@ package us.zoom.data.dfence.cli;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import picocli.CommandLine;
+import us.zoom.data.dfence.ChangesStreamWriter;
 import us.zoom.data.dfence.ChangesSummary;
+import us.zoom.data.dfence.ChangesTrailer;
 import us.zoom.data.dfence.exception.RbacDataError;
 import us.zoom.data.dfence.playbook.PlaybookService;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @CommandLine.Command(
         name = "compile", description = "Compile changes.", showDefaultValues = true, mixinStandardHelpOptions = true)
@@ -28,20 +42,180 @@ public class CompileCommand extends PlaybookCommand {
     @Setter
     private Boolean ignoreUnknownGrants;
 
+    @CommandLine.Option(
+            names = {"--stream"},
+            description = "Write the changes of each role as soon as it is compiled instead of all changes at the end. "
+                    + "The output is one document per role followed by a document with the totals.",
+            defaultValue = "false")
+    @Setter
+    private Boolean stream;
+
+    @CommandLine.Option(
+            names = {"--incremental"},
+            description = "Only compile roles that changed in the playbook or whose databases changed since the last "
+                    + "compile. Requires --out. Role fingerprints are kept next to the output file.",
+            defaultValue = "false")
+    @Setter
+    private Boolean incremental;
+
+    @CommandLine.Option(
+            names = {"--incremental-max-age-minutes"},
+            description = "With --incremental, compile a role again once it was last compiled longer ago than this, "
+                    + "even when its fingerprint is unchanged.",
+            defaultValue = "1440")
+    @Setter
+    private Long incrementalMaxAgeMinutes;
+
     @Override
     public Integer unhandledCall() {
+        if (Boolean.TRUE.equals(incremental) && (outputFile == null || Boolean.TRUE.equals(stream))) {
+            throw new RbacDataError("--incremental requires --out and cannot be combined with --stream.");
+        }
+        if (profiles != null && profiles.size() > 1) {
+            if (Boolean.TRUE.equals(stream)) {
+                throw new RbacDataError("--stream cannot be used with more than one profile.");
+            }
+            return compileAccounts(getPlaybookServices());
+        }
         PlaybookService service = getPlaybookService();
-        ChangesSummary changes = service.compileChanges(ignoreUnknownGrants);
+        if (Boolean.TRUE.equals(stream)) {
+            return streamChanges(service);
+        }
+        ChangesSummary changes = compile(service, outputFile);
         String changesOutput = writeChanges(changes);
         System.out.println(changesOutput);
         if (outputFile != null) {
-            try {
-                log.debug("Writing changes to output file {}", outputFile.getAbsolutePath());
-                Files.writeString(outputFile.toPath(), changesOutput);
-            } catch (IOException e) {
-                throw new RbacDataError(String.format("Unable to write changes to output file. %s", e));
+            writeOutputFile(outputFile, changesOutput);
+        }
+        return 0;
+    }
+
+    private ChangesSummary compile(PlaybookService service, File serviceOutputFile) {
+        if (Boolean.TRUE.equals(incremental)) {
+            return service.compileChangedRoles(
+                    ignoreUnknownGrants,
+                    fingerprintsFile(serviceOutputFile).toPath(),
+                    Duration.ofMinutes(incrementalMaxAgeMinutes));
+        }
+        return service.compileChanges(ignoreUnknownGrants);
+    }
+
+    private void writeOutputFile(File file, String changesOutput) {
+        try {
+            log.debug("Writing changes to output file {}", file.getAbsolutePath());
+            Files.writeString(file.toPath(), changesOutput);
+        } catch (IOException e) {
+            throw new RbacDataError(String.format("Unable to write changes to output file. %s", e));
+        }
+    }
+
+    /*
+    Compile every profile at the same time, each on its own thread with its own connections. The console gets the
+    changes of all profiles keyed by profile name, and each profile gets its own output file so that it can be applied
+    on its own. A profile that fails does not stop the others. Its error is logged, its output file from an earlier run
+    is deleted so that it cannot be applied as if it were current, and the command fails once all profiles are done.
+     */
+    Integer compileAccounts(Map<String, PlaybookService> services) {
+        ExecutorService executor = Executors.newFixedThreadPool(services.size());
+        try {
+            Map<String, CompletableFuture<ChangesSummary>> futures = new LinkedHashMap<>();
+            services.forEach((profileName, service) -> futures.put(
+                    profileName,
+                    CompletableFuture.supplyAsync(
+                            () -> compile(service, accountOutputFile(outputFile, profileName)),
+                            executor)));
+            Map<String, ChangesSummary> changesByProfile = new TreeMap<>();
+            List<String> failedProfiles = new ArrayList<>();
+            futures.forEach((profileName, future) -> {
+                try {
+                    changesByProfile.put(profileName, future.join());
+                } catch (CompletionException e) {
+                    log.error("Unable to compile changes for profile {}.", profileName, e.getCause());
+                    failedProfiles.add(profileName);
+                }
+            });
+            System.out.println(writeChanges(changesByProfile));
+            if (outputFile != null) {
+                changesByProfile.forEach((profileName, changes) -> writeOutputFile(
+                        accountOutputFile(outputFile, profileName),
+                        writeChanges(changes)));
+                failedProfiles.forEach(profileName -> deleteIncompleteOutputFile(
+                        accountOutputFile(outputFile, profileName)));
             }
+            if (!failedProfiles.isEmpty()) {
+                throw new RbacDataError(String.format(
+                        "Unable to compile changes for profiles %s.",
+                        String.join(", ", failedProfiles)));
+            }
+            return 0;
+        } finally {
+            executor.shutdown();
         }
+    }
+
+    /*
+    When streaming to a file the changes are not echoed to the console because holding them for the console would
+    defeat the purpose of streaming. Only the totals are logged.
+
+    The trailer is only written once the compile has succeeded. When it fails the output file is deleted so that the
+    changes of the roles compiled before the failure cannot be applied as if they were all of the changes.
+     */
+    private Integer streamChanges(PlaybookService service) {
+        Integer totalRoles = service.getPlaybookModel().roles().size();
+        if (outputFile == null) {
+            try (ChangesStreamWriter writer = new ChangesStreamWriter(changesObjectMapper(), System.out, totalRoles)) {
+                service.compileChanges(ignoreUnknownGrants, writer::write);
+                writer.finish();
+            }
+            System.out.flush();
+            return 0;
+        }
+        log.debug("Streaming changes to output file {}", outputFile.getAbsolutePath());
+        ChangesTrailer trailer = null;
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(outputFile.toPath()))) {
+            try (ChangesStreamWriter writer = new ChangesStreamWriter(changesObjectMapper(), outputStream, totalRoles)) {
+                service.compileChanges(ignoreUnknownGrants, writer::write);
+                trailer = writer.finish();
+            }
+        } catch (IOException e) {
+            trailer = null;
+            throw new RbacDataError(String.format("Unable to write changes to output file. %s", e), e);
+        } finally {
+            if (trailer == null) {
+                deleteIncompleteOutputFile(outputFile);
+            }
+        }
+        log.info("Wrote {} changes for {} roles.", trailer.totalChanges(), trailer.totalRoles());
         return 0;
     }
+
+    private static void deleteIncompleteOutputFile(File file) {
+        try {
+            if (Files.deleteIfExists(file.toPath())) {
+                log.info("Deleted incomplete output file {}.", file.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            log.error("Unable to delete incomplete output file {}. Do not apply it.", file.getAbsolutePath(), e);
+        }
+    }
+
+    static File fingerprintsFile(File outputFile) {
+        return new File(outputFile.getAbsoluteFile().getParentFile(), outputFile.getName() + ".fingerprints.json");
+    }
+
+    /*
+    The output file of one profile when several are compiled. The profile name goes before the extension, so
+    changes.yml becomes changes.dev.yml.
+     */
+    static File accountOutputFile(File outputFile, String profileName) {
+        if (outputFile == null) {
+            return null;
+        }
+        String name = outputFile.getName();
+        int extensionStart = name.lastIndexOf('.');
+        String accountName = extensionStart > 0
+                ? name.substring(0, extensionStart) + "." + profileName + name.substring(extensionStart)
+                : name + "." + profileName;
+        return new File(outputFile.getAbsoluteFile().getParentFile(), accountName);
+    }
 }
@@ -10,8 +10,10 @@ import us.zoom.data.dfence.Mappers;
 import us.zoom.data.dfence.exception.RbacDataError;
 import us.zoom.data.dfence.playbook.PlaybookService;
 import us.zoom.data.dfence.playbook.PlaybookServiceBuilder;
+import us.zoom.data.dfence.playbook.model.PlaybookModel;
 
 import java.io.File;
+import java.util.Map;
 import java.util.concurrent.ForkJoinPool;
 
 @Slf4j
@@ -31,8 +33,10 @@ public abstract class PlaybookCommand extends ProviderCommand {
     @Setter
     private File file;
 
+    private ForkJoinPool forkJoinPool;
 
-    public String writeChanges(ChangesSummary changes) {
+
+    public ObjectMapper changesObjectMapper() {
         ObjectMapper objectMapper;
         switch (outputFormat) {
             case JSON -> {
@@ -42,8 +46,20 @@ public abstract class PlaybookCommand extends ProviderCommand {
                 objectMapper = Mappers.yamlKebabObjectMapper();
             }
         }
+        return objectMapper;
+    }
+
+    public String writeChanges(ChangesSummary changes) {
+        return writeOutput(changes);
+    }
+
+    public String writeChanges(Map<String, ChangesSummary> changesByProfile) {
+        return writeOutput(changesByProfile);
+    }
+
+    private String writeOutput(Object changes) {
         try {
-            return objectMapper.writeValueAsString(changes);
+            return changesObjectMapper().writeValueAsString(changes);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Unable to write changes to string.", e);
         }
@@ -51,14 +67,38 @@ public abstract class PlaybookCommand extends ProviderCommand {
 
     public PlaybookService getPlaybookService() throws RbacDataError {
         log.debug("Creating playbook service.");
+        return configuredPlaybookServiceBuilder().setProfileName(profile()).build();
+    }
+
+    /*
+    One playbook service per profile given on the command line, sharing one parsed playbook.
+     */
+    public Map<String, PlaybookService> getPlaybookServices() throws RbacDataError {
+        log.debug("Creating playbook services for profiles {}.", profiles);
+        return configuredPlaybookServiceBuilder().buildAll(profiles);
+    }
+
+    /*
+    Read and parse the playbook files again, so that a long running command sees edits to them.
+     */
+    protected PlaybookModel loadPlaybookModel() throws RbacDataError {
+        log.debug("Loading playbook.");
+        return configuredPlaybookServiceBuilder().buildPlaybookModel();
+    }
+
+    private PlaybookServiceBuilder configuredPlaybookServiceBuilder() {
         PlaybookServiceBuilder builder = playbookServiceBuilder.setPlaybookYamlStrings(this.file).setProfilesYamlString(this.profileFile)
-                .putAllVariablesFile(this.varFile).putAllVariablesFromEnvironment().setProfileName(this.profile);
+                .putAllVariablesFile(this.varFile).putAllVariablesFromEnvironment();
 
         if (this.threads != null) {
-            builder.setForkJoinPool(
-                    new ForkJoinPool(threads)
-            );
+            if (forkJoinPool == null) {
+                forkJoinPool = new ForkJoinPool(threads);
+            }
+            builder.setForkJoinPool(forkJoinPool);
+        }
+        if (this.ioThreads != null) {
+            builder.setIoParallelism(this.ioThreads);
         }
-        return builder.build();
+        return builder;
     }
 }
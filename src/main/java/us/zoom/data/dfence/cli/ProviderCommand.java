@@ -5,8 +5,12 @@ import lombok.extern.slf4j.Slf4j;
 import picocli.CommandLine;
 import us.zoom.data.dfence.Provider;
 import us.zoom.data.dfence.ProviderBuilder;
+import us.zoom.data.dfence.exception.RbacDataError;
+import us.zoom.data.dfence.metrics.Metrics;
+import us.zoom.data.dfence.metrics.MetricsWriter;
 
 import java.io.File;
+import java.util.List;
 
 @Slf4j
 public abstract class ProviderCommand extends ErrorHandledCallable {
@@ -18,18 +22,58 @@ public abstract class ProviderCommand extends ErrorHandledCallable {
     @Setter
     protected File profileFile;
     @CommandLine.Option(
-            names = {"--profile", "-p"}, description = "Profile name to use for the connection.")
-    protected String profile;
+            names = {"--profile", "-p"},
+            split = ",",
+            description = "Profile name to use for the connection. Commands that support several accounts accept the option more than once or a comma separated list.")
+    protected List<String> profiles;
     @CommandLine.Option(
-            names = {"--threads"}, description = "Number of threads to use for parallel operations. If not specified, the common ForkJoinPool will be used.")
+            names = {"--threads", "--compute-threads"}, description = "Number of threads to use for parallel computation. If not specified, the common ForkJoinPool will be used.")
     protected Integer threads;
+    @CommandLine.Option(
+            names = {"--io-threads"}, description = "Number of threads to use for database calls. If not specified, the max-connections setting of the profile will be used.")
+    protected Integer ioThreads;
+    @CommandLine.Option(
+            names = {"--metrics-out"}, description = "File to write timings and counters of the run to at the end of the run. Written in the Prometheus text format if the file name ends in .prom and as JSON otherwise. Metrics are totals of the process, across all profiles of the run.")
+    @Setter
+    protected File metricsOut;
     @Setter
     private ProviderBuilder providerBuilder = new ProviderBuilder();
 
+    @Override
+    public Integer call() {
+        try {
+            return super.call();
+        } finally {
+            if (metricsOut != null) {
+                log.debug("Writing metrics to file {}", metricsOut.getAbsolutePath());
+                try {
+                    MetricsWriter.write(Metrics.snapshot(), metricsOut.toPath());
+                } catch (RbacDataError e) {
+                    log.error("Unable to write metrics. {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /*
+    The single profile of commands that work on one account, or null to use the default profile.
+     */
+    protected String profile() {
+        if (profiles == null || profiles.isEmpty()) {
+            return null;
+        }
+        if (profiles.size() > 1) {
+            throw new RbacDataError(String.format(
+                    "Only one profile can be used with this command but %s were given.",
+                    profiles.size()));
+        }
+        return profiles.get(0);
+    }
+
     public Provider getProvider() {
         log.debug("Creating provider.");
         ProviderBuilder builder = providerBuilder.setProfilesYamlString(profileFile)
-                .setProfileName(profile)
+                .setProfileName(profile())
                 .putAllVariablesFile(varFile)
                 .putAllVariablesFromEnvironment();
 
@@ -37,6 +81,10 @@ public abstract class ProviderCommand extends ErrorHandledCallable {
             log.debug("Setting ForkJoinPool parallelism to {}", threads);
             builder.setForkJoinPoolParallelism(threads);
         }
+        if (ioThreads != null) {
+            log.debug("Setting I/O parallelism to {}", ioThreads);
+            builder.setIoParallelism(ioThreads);
+        }
 
         return builder.build();
     }
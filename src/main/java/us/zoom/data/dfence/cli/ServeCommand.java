@@ -0,0 +1,141 @@
+package us.zoom.data.dfence.cli;
+
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import picocli.CommandLine;
+import us.zoom.data.dfence.EnvironmentService;
+import us.zoom.data.dfence.Provider;
+import us.zoom.data.dfence.exception.RbacDataError;
+import us.zoom.data.dfence.server.DfenceServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+@CommandLine.Command(
+        name = "serve",
+        description = "Serve compile, apply, import-roles and list-roles over a local HTTP endpoint, keeping "
+                + "connections and caches of account objects between requests.",
+        showDefaultValues = true,
+        mixinStandardHelpOptions = true)
+@Slf4j
+public class ServeCommand extends PlaybookCommand {
+    static final String TOKEN_VARIABLE = "DFENCE_SERVER_TOKEN";
+
+    @CommandLine.Option(
+            names = {"--host"}, description = "Address to listen on.", defaultValue = "127.0.0.1")
+    @Setter
+    private String host;
+
+    @CommandLine.Option(
+            names = {"--port"}, description = "Port to listen on.", defaultValue = "8765")
+    @Setter
+    private Integer port;
+
+    @CommandLine.Option(
+            names = {"--cache-ttl-minutes"},
+            description = "Minutes that objects of the account are cached between compiles. The caches are also "
+                    + "refreshed after changes are applied and on a request to /invalidate. Use 0 to refresh them on "
+                    + "every compile.",
+            defaultValue = "10")
+    @Setter
+    private Integer cacheTtlMinutes;
+
+    @CommandLine.Option(
+            names = {"--token-file"},
+            description = "File holding the token that requests must send as a bearer token. The token can also be "
+                    + "given with the " + TOKEN_VARIABLE + " environment variable. Without either, a token is "
+                    + "generated and written to a file that only the current user can read. A token must be given "
+                    + "to listen on an address other than loopback.")
+    @Setter
+    private File tokenFile;
+
+    @Setter
+    private EnvironmentService environmentService = new EnvironmentService();
+
+    @Override
+    Integer unhandledCall() throws RbacDataError {
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        String token = configuredToken();
+        if (token == null) {
+            if (address.getAddress() == null || !address.getAddress().isLoopbackAddress()) {
+                throw new RbacDataError(String.format(
+                        "A token must be given with --token-file or %s to listen on %s, which is not a loopback "
+                                + "address.",
+                        TOKEN_VARIABLE,
+                        host));
+            }
+            token = generatedToken();
+        }
+        Provider provider = getPlaybookService().getProvider();
+        if (cacheTtlMinutes != null && cacheTtlMinutes > 0) {
+            provider.retainCaches(Duration.ofMinutes(cacheTtlMinutes));
+        }
+        CountDownLatch stopped = new CountDownLatch(1);
+        DfenceServer server = new DfenceServer(provider, this::loadPlaybookModel, address, token);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            stopped.countDown();
+        }));
+        server.start();
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.close();
+        }
+        return 0;
+    }
+
+    private String configuredToken() {
+        String token;
+        if (tokenFile != null) {
+            try {
+                token = Files.readString(tokenFile.toPath());
+            } catch (IOException e) {
+                throw new RbacDataError(String.format("Unable to read token file %s. %s", tokenFile, e), e);
+            }
+            if (token.isBlank()) {
+                throw new RbacDataError(String.format("Token file %s is empty.", tokenFile));
+            }
+        } else {
+            token = environmentService.getEnv().get(TOKEN_VARIABLE);
+        }
+        return token == null || token.isBlank() ? null : token.strip();
+    }
+
+    /*
+    A random token written to a new file that only the current user can read, for clients on the same host.
+     */
+    private static String generatedToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        String token = HexFormat.of().formatHex(bytes);
+        try {
+            Path path = Files.createTempFile(
+                    "dfence-server-",
+                    ".token",
+                    PosixFilePermissions.asFileAttribute(Set.of(
+                            PosixFilePermission.OWNER_READ,
+                            PosixFilePermission.OWNER_WRITE)));
+            path.toFile().deleteOnExit();
+            Files.writeString(path, token);
+            log.info("Requests must send the token in {} as a bearer token.", path);
+        } catch (IOException | UnsupportedOperationException e) {
+            throw new RbacDataError(String.format(
+                    "Unable to write a token file. Give a token with --token-file or %s. %s",
+                    TOKEN_VARIABLE,
+                    e), e);
+        }
+        return token;
+    }
+}
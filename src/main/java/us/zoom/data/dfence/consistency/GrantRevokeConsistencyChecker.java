@@ -7,33 +7,54 @@ import lombok.extern.slf4j.Slf4j;
 import us.zoom.data.dfence.exception.RbacDataError;
 import us.zoom.data.dfence.playbook.model.PlaybookPrivilegeGrant;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
-import us.zoom.data.dfence.providers.snowflake.revoke.SnowflakeRevokeGrantsCompiler;
+import us.zoom.data.dfence.providers.snowflake.revoke.evaluator.GrantRevocationEvaluator;
+import us.zoom.data.dfence.providers.snowflake.revoke.index.PolicyGrantHashIndexer;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Slf4j
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class GrantRevokeConsistencyChecker {
 
+  /** Desired grants are checked in parallel from this many grants on. */
+  static final int PARALLEL_THRESHOLD = 1000;
+
   /**
    * Checks that grants compiled from playbook grants would not be selected for revocation.
    */
   public static void check(
           List<PlaybookPrivilegeGrant> playbookGrants,
           Map<String, SnowflakeGrantBuilder> desiredGrantBuilders, String roleName) {
-    Try.of(
+    verifiedEvaluator(playbookGrants, desiredGrantBuilders.values(), roleName);
+  }
+
+  /**
+   * Checks that grants compiled from playbook grants would not be selected for revocation and
+   * returns the evaluator that the check used, so that the revoke compile of the same role can use
+   * it instead of indexing the playbook grants again. The check stops at the first desired grant
+   * that would be revoked.
+   */
+  public static GrantRevocationEvaluator verifiedEvaluator(
+      List<PlaybookPrivilegeGrant> playbookGrants,
+      Collection<SnowflakeGrantBuilder> desiredGrantBuilders,
+      String roleName) {
+    return Try.of(
             () -> {
               log.info(
                   "Verifying grant-revoke consistency for role {} with {} playbook grants",
                   roleName,
                   playbookGrants.size());
 
-              verifyNoRevokesAreCreatedForPlaybookGrants(playbookGrants, desiredGrantBuilders, roleName);
+              GrantRevocationEvaluator evaluator =
+                  new GrantRevocationEvaluator(PolicyGrantHashIndexer.create(playbookGrants));
+              verifyNoRevokesAreCreatedForPlaybookGrants(evaluator, desiredGrantBuilders, roleName);
 
               log.info("Grant-revoke consistency verification passed for role {}", roleName);
-              return null;
+              return evaluator;
             })
         .getOrElseThrow(
             e -> {
@@ -48,22 +69,21 @@ public final class GrantRevokeConsistencyChecker {
   }
 
   private static void verifyNoRevokesAreCreatedForPlaybookGrants(
-      List<PlaybookPrivilegeGrant> playbookGrants,
-      Map<String, SnowflakeGrantBuilder> desiredGrantBuilders,
+      GrantRevocationEvaluator evaluator,
+      Collection<SnowflakeGrantBuilder> desiredGrantBuilders,
       String roleName) {
+    Stream<SnowflakeGrantBuilder> desired =
+        desiredGrantBuilders.size() >= PARALLEL_THRESHOLD
+            ? desiredGrantBuilders.parallelStream()
+            : desiredGrantBuilders.stream();
+    Optional<SnowflakeGrantBuilder> revokeBuilder =
+        desired.filter(grantBuilder -> evaluator.needsRevoke(grantBuilder.getGrant())).findAny();
 
-    List<SnowflakeGrantBuilder> revokeBuilders =
-        SnowflakeRevokeGrantsCompiler.compileRevokeGrants(playbookGrants, desiredGrantBuilders);
-
-    if (!revokeBuilders.isEmpty()) {
-      String revokeDetails =
-          revokeBuilders.stream()
-              .map(b -> b.getGrant().toString())
-              .collect(Collectors.joining("; "));
+    if (revokeBuilder.isPresent()) {
       String errorMessage =
           String.format(
-              "Grant-revoke inconsistency: %d revoke(s) would be generated for playbook grants (role=%s). Revokes: %s",
-              revokeBuilders.size(), roleName, revokeDetails);
+              "Grant-revoke inconsistency: a revoke would be generated for playbook grants (role=%s). Revoke: %s",
+              roleName, revokeBuilder.get().getGrant());
       throw new RbacDataError(errorMessage);
     }
   }
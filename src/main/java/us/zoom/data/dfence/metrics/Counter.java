@@ -0,0 +1,23 @@
+package us.zoom.data.dfence.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void increment(long amount) {
+        count.add(amount);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    void reset() {
+        count.reset();
+    }
+}
@@ -0,0 +1,28 @@
+package us.zoom.data.dfence.metrics;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/*
+Name of a metric together with its tags. Tags are given as alternating keys and values.
+ */
+public record MetricId(String name, SortedMap<String, String> tags) {
+    public MetricId {
+        tags = Collections.unmodifiableSortedMap(new TreeMap<>(tags));
+    }
+
+    public static MetricId of(String name, String... tags) {
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Tags of metric %s must be key value pairs but %s values were given.",
+                    name,
+                    tags.length));
+        }
+        SortedMap<String, String> tagMap = new TreeMap<>();
+        for (int i = 0; i < tags.length; i += 2) {
+            tagMap.put(tags[i], tags[i + 1]);
+        }
+        return new MetricId(name, tagMap);
+    }
+}
@@ -0,0 +1,74 @@
+package us.zoom.data.dfence.metrics;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+/*
+Process wide registry of timers, counters and gauges. Metrics are created on first use and live for the rest of the
+process. Hot paths should keep a reference to the metric rather than look it up on every call.
+
+Gauges are computed when a snapshot is taken, which suits values such as cache hit ratios that are derived from
+statistics kept elsewhere.
+ */
+public class Metrics {
+    private static final Map<MetricId, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<MetricId, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<MetricId, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+    private static final Comparator<MetricId> metricIdComparator = Comparator.comparing(MetricId::name)
+            .thenComparing(x -> x.tags().toString());
+
+    private Metrics() {
+    }
+
+    public static Timer timer(String name, String... tags) {
+        return timers.computeIfAbsent(MetricId.of(name, tags), k -> new Timer());
+    }
+
+    public static Counter counter(String name, String... tags) {
+        return counters.computeIfAbsent(MetricId.of(name, tags), k -> new Counter());
+    }
+
+    public static void gauge(String name, DoubleSupplier value, String... tags) {
+        gauges.put(MetricId.of(name, tags), value);
+    }
+
+    public static void gauge(String name, double value, String... tags) {
+        gauge(name, () -> value, tags);
+    }
+
+    /*
+    Zero all timers and counters. The metrics stay registered so that references held by callers remain valid.
+     */
+    public static void reset() {
+        timers.values().forEach(Timer::reset);
+        counters.values().forEach(Counter::reset);
+    }
+
+    public static MetricsSnapshot snapshot() {
+        List<MetricsSnapshot.TimerValue> timerValues = timers.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(metricIdComparator))
+                .map(x -> new MetricsSnapshot.TimerValue(
+                        x.getKey().name(),
+                        x.getKey().tags(),
+                        x.getValue().count(),
+                        x.getValue().totalNanos() / 1e9,
+                        x.getValue().maxNanos() / 1e9))
+                .toList();
+        List<MetricsSnapshot.CounterValue> counterValues = counters.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(metricIdComparator))
+                .map(x -> new MetricsSnapshot.CounterValue(x.getKey().name(), x.getKey().tags(), x.getValue().count()))
+                .toList();
+        List<MetricsSnapshot.GaugeValue> gaugeValues = gauges.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(metricIdComparator))
+                .map(x -> new MetricsSnapshot.GaugeValue(
+                        x.getKey().name(),
+                        x.getKey().tags(),
+                        x.getValue().getAsDouble()))
+                .toList();
+        return new MetricsSnapshot(timerValues, counterValues, gaugeValues);
+    }
+}
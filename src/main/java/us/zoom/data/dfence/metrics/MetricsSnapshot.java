@@ -0,0 +1,16 @@
+package us.zoom.data.dfence.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+public record MetricsSnapshot(List<TimerValue> timers, List<CounterValue> counters, List<GaugeValue> gauges) {
+
+    public record TimerValue(String name, Map<String, String> tags, long count, double totalSeconds, double maxSeconds) {
+    }
+
+    public record CounterValue(String name, Map<String, String> tags, long count) {
+    }
+
+    public record GaugeValue(String name, Map<String, String> tags, double value) {
+    }
+}
@@ -0,0 +1,77 @@
+package us.zoom.data.dfence.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import us.zoom.data.dfence.Mappers;
+import us.zoom.data.dfence.exception.RbacDataError;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+Writes a metrics snapshot as JSON, or in the Prometheus text exposition format when the file name ends in ".prom".
+ */
+public class MetricsWriter {
+    private static final String PROMETHEUS_PREFIX = "dfence_";
+
+    private static final ObjectMapper objectMapper = Mappers.jsonKebabObjectMapper();
+
+    private MetricsWriter() {
+    }
+
+    public static void write(MetricsSnapshot snapshot, Path path) {
+        String output = path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".prom")
+                ? prometheus(snapshot)
+                : json(snapshot);
+        try {
+            Files.writeString(path, output);
+        } catch (IOException e) {
+            throw new RbacDataError(String.format("Unable to write metrics to file %s. %s", path, e), e);
+        }
+    }
+
+    public static String json(MetricsSnapshot snapshot) {
+        try {
+            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(snapshot);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write metrics to string.", e);
+        }
+    }
+
+    public static String prometheus(MetricsSnapshot snapshot) {
+        StringBuilder builder = new StringBuilder();
+        snapshot.timers().forEach(x -> {
+            String name = prometheusName(x.name()) + "_seconds";
+            builder.append(name).append("_count").append(prometheusLabels(x.tags())).append(' ')
+                    .append(x.count()).append('\n');
+            builder.append(name).append("_sum").append(prometheusLabels(x.tags())).append(' ')
+                    .append(x.totalSeconds()).append('\n');
+            builder.append(name).append("_max").append(prometheusLabels(x.tags())).append(' ')
+                    .append(x.maxSeconds()).append('\n');
+        });
+        snapshot.counters().forEach(x -> builder.append(prometheusName(x.name())).append("_total")
+                .append(prometheusLabels(x.tags())).append(' ').append(x.count()).append('\n'));
+        snapshot.gauges().forEach(x -> builder.append(prometheusName(x.name()))
+                .append(prometheusLabels(x.tags())).append(' ').append(x.value()).append('\n'));
+        return builder.toString();
+    }
+
+    private static String prometheusName(String name) {
+        return PROMETHEUS_PREFIX + name.replaceAll("[^a-zA-Z0-9_]", "_");
+    }
+
+    private static String prometheusLabels(Map<String, String> tags) {
+        if (tags.isEmpty()) {
+            return "";
+        }
+        return tags.entrySet().stream()
+                .map(x -> String.format(
+                        "%s=\"%s\"",
+                        x.getKey().replaceAll("[^a-zA-Z0-9_]", "_"),
+                        x.getValue().replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")))
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+}
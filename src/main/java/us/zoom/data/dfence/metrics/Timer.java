@@ -0,0 +1,57 @@
+package us.zoom.data.dfence.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+Count, total and maximum of the durations recorded. Recording is lock free so that timers can be shared by the
+parallel streams of a compile.
+ */
+public class Timer {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public <T> T record(Supplier<T> supplier) {
+        long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public void run(Runnable runnable) {
+        long start = System.nanoTime();
+        try {
+            runnable.run();
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+}
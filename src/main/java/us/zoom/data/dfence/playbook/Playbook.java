@@ -16,7 +16,12 @@ public class Playbook {
     private static final ObjectMapper yamlKebabObjectMapper = Mappers.yamlKebabObjectMapper();
 
     public static PlaybookModel parse(String value, Map<String, String> variables) throws VariableNotFoundException {
-        String valuePopulated = VariableParser.substituteVariables(value, variables);
+        return parse(VariableTemplate.compile(value), variables);
+    }
+
+    public static PlaybookModel parse(VariableTemplate template, Map<String, String> variables)
+            throws VariableNotFoundException {
+        String valuePopulated = template.render(variables);
         try {
             return yamlKebabObjectMapper.readValue(valuePopulated, PlaybookModel.class);
         } catch (JsonProcessingException e) {
@@ -2,15 +2,29 @@ package us.zoom.data.dfence.playbook;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import us.zoom.data.dfence.ChangesFileReader;
 import us.zoom.data.dfence.ChangesSummary;
 import us.zoom.data.dfence.CompiledChanges;
 import us.zoom.data.dfence.Provider;
 import us.zoom.data.dfence.playbook.model.PlaybookModel;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 @Slf4j
 public class PlaybookService {
+    private static final int APPLY_WINDOW_ROLES = 64;
+
     @Getter
     private final Provider provider;
 
@@ -29,9 +43,137 @@ public class PlaybookService {
                 this.getProvider().compileChanges(playbookModel, ignoreUnknownGrants));
     }
 
+    /*
+    Compile only the roles whose fingerprint differs from the fingerprints saved by the previous compile. See
+    RoleFingerprints for what a fingerprint covers.
+
+    Only the fingerprints of roles that are in sync are saved. A role that still has changes gets no fingerprint, so it
+    is compiled again by the next compile until its changes have been applied.
+     */
+    public ChangesSummary compileChangedRoles(Boolean ignoreUnknownGrants, Path fingerprintsFile) {
+        return compileChangedRoles(ignoreUnknownGrants, fingerprintsFile, RoleFingerprints.DEFAULT_MAX_AGE);
+    }
+
+    /*
+    Compile the roles whose fingerprint changed or is older than the max age. Roles that are not compiled keep their
+    previous fingerprint, so that they still expire on time.
+     */
+    public ChangesSummary compileChangedRoles(Boolean ignoreUnknownGrants, Path fingerprintsFile, Duration maxAge) {
+        Map<String, RoleFingerprints.RoleFingerprint> previousFingerprints = RoleFingerprints.load(fingerprintsFile);
+        Map<String, RoleFingerprints.RoleFingerprint> currentFingerprints = RoleFingerprints.fingerprint(
+                playbookModel,
+                this.provider.databaseVersions(RoleFingerprints.referencedDatabases(playbookModel)));
+        Set<String> changedRoleIds = RoleFingerprints.changedRoleIds(
+                previousFingerprints,
+                currentFingerprints,
+                maxAge);
+        log.info("Compiling changes for {} of {} roles.", changedRoleIds.size(), playbookModel.roles().size());
+        List<CompiledChanges> compiledChanges = changedRoleIds.isEmpty()
+                ? List.of()
+                : this.provider.compileChanges(playbookModel, ignoreUnknownGrants, changedRoleIds);
+        Map<String, RoleFingerprints.RoleFingerprint> savedFingerprints = new TreeMap<>(currentFingerprints);
+        currentFingerprints.keySet().stream()
+                .filter(roleId -> !changedRoleIds.contains(roleId))
+                .forEach(roleId -> savedFingerprints.put(roleId, previousFingerprints.get(roleId)));
+        compiledChanges.forEach(x -> savedFingerprints.remove(x.roleId()));
+        RoleFingerprints.save(fingerprintsFile, savedFingerprints);
+        return new ChangesSummary(changedRoleIds.size(), compiledChanges);
+    }
+
+    public void compileChanges(Boolean ignoreUnknownGrants, Consumer<CompiledChanges> consumer) {
+        log.info("Compiling changes.");
+        this.getProvider().compileChanges(playbookModel, ignoreUnknownGrants, consumer);
+    }
+
     public void applyChanges(List<CompiledChanges> compiledChanges) {
         log.info("Applying {} changes", compiledChanges.size());
         this.provider.applyRolesChanges(compiledChanges);
         this.provider.applyPrivilegeChanges(compiledChanges);
     }
+
+    /*
+    Apply the changes in a changes file while it is being read. The file is first read once without applying anything,
+    so that a file that does not parse to the end or a stream without its trailer is rejected before any statement
+    runs. It is then read twice more. The first of those passes creates roles and the second applies privileges, so
+    that a grant of a role that is created further down in the file still finds the role, just like applyChanges
+    creates all roles first. In each pass roles are gathered into windows and a window is applied while the next one
+    is read. At most two windows of changes are in memory at a time.
+     */
+    public Integer applyChanges(ChangesFileReader changesFileReader) {
+        log.info("Checking changes file {}.", changesFileReader.getFile());
+        changesFileReader.validate();
+        log.info("Applying role changes from {}.", changesFileReader.getFile());
+        applyInWindows(changesFileReader, window -> {
+            List<CompiledChanges> rolesChanges = window.stream()
+                    .filter(x -> !x.roleCreationStatements().isEmpty())
+                    .toList();
+            if (!rolesChanges.isEmpty()) {
+                this.provider.applyRolesChanges(rolesChanges);
+            }
+        });
+        log.info("Applying privilege changes from {}.", changesFileReader.getFile());
+        return applyInWindows(changesFileReader, this.provider::applyPrivilegeChanges);
+    }
+
+    private static Integer applyInWindows(ChangesFileReader changesFileReader, Consumer<List<CompiledChanges>> apply) {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            WindowedApply windowedApply = new WindowedApply(apply, executor);
+            changesFileReader.forEach(windowedApply);
+            windowedApply.finish();
+            return windowedApply.roles;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static class WindowedApply implements Consumer<CompiledChanges> {
+        private final Consumer<List<CompiledChanges>> apply;
+        private final ExecutorService executor;
+        private List<CompiledChanges> window = new ArrayList<>();
+        private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+        private int roles = 0;
+
+        WindowedApply(Consumer<List<CompiledChanges>> apply, ExecutorService executor) {
+            this.apply = apply;
+            this.executor = executor;
+        }
+
+        @Override
+        public void accept(CompiledChanges compiledChanges) {
+            if (!compiledChanges.containsChanges()) {
+                return;
+            }
+            window.add(compiledChanges);
+            roles++;
+            if (window.size() >= APPLY_WINDOW_ROLES) {
+                submitWindow();
+            }
+        }
+
+        void finish() {
+            if (!window.isEmpty()) {
+                submitWindow();
+            }
+            awaitPending();
+        }
+
+        private void submitWindow() {
+            awaitPending();
+            List<CompiledChanges> submitted = window;
+            window = new ArrayList<>();
+            pending = CompletableFuture.runAsync(() -> apply.accept(submitted), executor);
+        }
+
+        private void awaitPending() {
+            try {
+                pending.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+    }
 }
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import us.zoom.data.dfence.EnvironmentService;
 import us.zoom.data.dfence.Provider;
 import us.zoom.data.dfence.exception.RbacDataError;
+import us.zoom.data.dfence.exception.VariableNotFoundException;
 import us.zoom.data.dfence.playbook.model.PlaybookModel;
 import us.zoom.data.dfence.profile.Profile;
 import us.zoom.data.dfence.profile.model.ProfilesModel;
@@ -14,20 +15,26 @@ import java.io.IOException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 @Slf4j
 public class PlaybookServiceBuilder {
     private final Map<String, String> variables = new HashMap<>();
-    private List<String> playbookYamlStrings = List.of();
+    private List<PlaybookSource> playbookSources = List.of();
     private String profilesYamlString = "";
     private String profileName;
     private EnvironmentService environmentService = new EnvironmentService();
     private ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+    private Integer ioParallelism;
 
     public PlaybookServiceBuilder setEnvironmentService(EnvironmentService environmentService) {
         this.environmentService = environmentService;
@@ -35,44 +42,89 @@ public class PlaybookServiceBuilder {
     }
 
 
+    /*
+    A playbook yaml string, or a playbook file that is read when the playbook service is built. The name is used in
+    errors. The variable template is compiled on first use and kept, so that building again with other variables does
+    not read and scan the text again.
+     */
+    private static final class PlaybookSource {
+        private final String name;
+        private final Path path;
+        private final String yamlString;
+        private volatile VariableTemplate template;
+
+        PlaybookSource(String name, Path path, String yamlString) {
+            this.name = name;
+            this.path = path;
+            this.yamlString = yamlString;
+        }
+
+        String name() {
+            return name;
+        }
+
+        String read() {
+            if (path == null) {
+                return yamlString;
+            }
+            try {
+                log.debug("Using file {}", path);
+                return Files.readString(path);
+            } catch (IOException e) {
+                throw new RbacDataError(String.format("Unable to read file %s", path), e);
+            }
+        }
+
+        VariableTemplate template() {
+            VariableTemplate result = template;
+            if (result == null) {
+                result = VariableTemplate.compile(read());
+                template = result;
+            }
+            return result;
+        }
+    }
+
     public List<String> getPlaybookYamlStrings() {
-        return playbookYamlStrings;
+        return playbookSources.stream().map(PlaybookSource::read).toList();
     }
 
     public PlaybookServiceBuilder setPlaybookYamlStrings(List<String> playbookYamlStrings) {
-        this.playbookYamlStrings = List.copyOf(playbookYamlStrings);
+        List<PlaybookSource> sources = new ArrayList<>();
+        for (int i = 0; i < playbookYamlStrings.size(); i++) {
+            sources.add(new PlaybookSource(
+                    String.format("playbook yaml string %s", i),
+                    null,
+                    Objects.requireNonNull(playbookYamlStrings.get(i))));
+        }
+        this.playbookSources = List.copyOf(sources);
         return this;
     }
 
+    /*
+    Files are only listed here. They are read and parsed in parallel when the playbook service is built, in the order
+    of their paths so that the result does not depend on the order the file system lists them in.
+     */
     public PlaybookServiceBuilder setPlaybookYamlStrings(File playbookFile) {
         if (!playbookFile.exists()) {
             throw new RbacDataError(String.format("File %s does not exist.", playbookFile));
         }
         if (playbookFile.isFile()) {
             log.debug("Using role file {}.", playbookFile);
-            try {
-                return this.setPlaybookYamlStrings(List.of(Files.readString(playbookFile.toPath())));
-            } catch (IOException e) {
-                throw new RbacDataError(String.format("Unable to parse playbook file %s. %s", playbookFile, e));
-            }
+            this.playbookSources = List.of(new PlaybookSource(playbookFile.toString(), playbookFile.toPath(), null));
+            return this;
         } else {
             log.debug("Using role directory {}.", playbookFile);
             FileSystem fileSystem = FileSystems.getDefault();
             PathMatcher pathMatcher = fileSystem.getPathMatcher("glob:**/*.{yml,yaml}");
-            try {
-                List<String> yamlStrings = Files.find(
-                        playbookFile.toPath(),
-                        20,
-                        (filePath, fileAttr) -> pathMatcher.matches(filePath) && fileAttr.isRegularFile()).map(x -> {
-                    try {
-                        log.debug("Using file {}", x.getFileName());
-                        return Files.readString(x);
-                    } catch (IOException e) {
-                        log.debug("Using role file {}", x);
-                        throw new RbacDataError(String.format("Unable to read file %s", x), e);
-                    }
-                }).toList();
-                return this.setPlaybookYamlStrings(yamlStrings);
+            try (Stream<Path> paths = Files.find(
+                    playbookFile.toPath(),
+                    20,
+                    (filePath, fileAttr) -> pathMatcher.matches(filePath) && fileAttr.isRegularFile())) {
+                this.playbookSources = paths.sorted()
+                        .map(x -> new PlaybookSource(x.toString(), x, null))
+                        .toList();
+                return this;
             } catch (IOException e) {
                 throw new RbacDataError(e);
             }
@@ -143,18 +195,59 @@ public class PlaybookServiceBuilder {
 
     public PlaybookService build() {
         log.debug("Building playbook service.");
-        List<PlaybookModel> playbookModels = playbookYamlStrings.stream().map(x -> Playbook.parse(x, variables))
-                .toList();
+        PlaybookModel playbookModel = buildPlaybookModel();
+        ProfilesModel profilesModel = Profile.parseProfiles(profilesYamlString, variables);
+        Provider provider = Profile.provider(profilesModel, profileName, forkJoinPool, ioParallelism);
+        return new PlaybookService(provider, playbookModel);
+    }
+
+    /*
+    Build a playbook service for each of several profiles, for example one per account. The playbook is parsed once
+    and shared. Each profile gets its own provider with its own connections and I/O threads, while computation shares
+    the builder's ForkJoinPool. The services are returned in the order of the profile names.
+     */
+    public Map<String, PlaybookService> buildAll(List<String> profileNames) {
+        log.debug("Building playbook services for profiles {}.", profileNames);
+        PlaybookModel playbookModel = buildPlaybookModel();
+        ProfilesModel profilesModel = Profile.parseProfiles(profilesYamlString, variables);
+        Map<String, PlaybookService> playbookServices = new LinkedHashMap<>();
+        for (String name : profileNames) {
+            Provider provider = Profile.provider(profilesModel, name, forkJoinPool, ioParallelism);
+            playbookServices.put(name, new PlaybookService(provider, playbookModel));
+        }
+        return playbookServices;
+    }
+
+    /*
+    Read and parse the playbook sources into one playbook with defaults applied, without connecting to an account.
+     */
+    public PlaybookModel buildPlaybookModel() {
+        List<PlaybookModel> playbookModels = forkJoinPool.submit(() ->
+                playbookSources.parallelStream().map(this::parsePlaybook).toList()
+        ).join();
         log.debug("Using {} playbook models", playbookModels.size());
         PlaybookModel playbookModel = PlaybookModel.merge(playbookModels);
         playbookModel = Playbook.filterPlaybook(playbookModel);
-        playbookModel = Playbook.propagateDefaults(playbookModel);
-        ProfilesModel profilesModel = Profile.parseProfiles(profilesYamlString, variables);
-        Provider provider = Profile.provider(profilesModel, profileName, forkJoinPool);
-        return new PlaybookService(provider, playbookModel);
+        return Playbook.propagateDefaults(playbookModel);
+    }
+
+    private PlaybookModel parsePlaybook(PlaybookSource source) {
+        try {
+            return Playbook.parse(source.template(), variables);
+        } catch (VariableNotFoundException e) {
+            throw new VariableNotFoundException(
+                    String.format("Unable to load playbook %s. %s", source.name(), e.getMessage()),
+                    e);
+        } catch (RbacDataError e) {
+            throw new RbacDataError(String.format("Unable to load playbook %s. %s", source.name(), e.getMessage()), e);
+        }
     }
 
     public void setForkJoinPool(ForkJoinPool forkJoinPool) {
         this.forkJoinPool = forkJoinPool;
     }
+
+    public void setIoParallelism(Integer ioParallelism) {
+        this.ioParallelism = ioParallelism;
+    }
 }
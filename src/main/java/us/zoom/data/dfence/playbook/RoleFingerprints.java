@@ -0,0 +1,212 @@
+package us.zoom.data.dfence.playbook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+import us.zoom.data.dfence.AtomicFiles;
+import us.zoom.data.dfence.Mappers;
+import us.zoom.data.dfence.exception.RbacDataError;
+import us.zoom.data.dfence.playbook.model.PlaybookModel;
+import us.zoom.data.dfence.playbook.model.PlaybookPrivilegeGrant;
+import us.zoom.data.dfence.playbook.model.PlaybookRoleModel;
+import us.zoom.data.dfence.sql.ObjectName;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/*
+Fingerprints of the resolved roles of a playbook, used to compile only the roles that changed since a previous compile.
+
+A role fingerprint has three parts. The playbook part covers what every role is compiled against: the playbook
+defaults, the names of all roles and all ownership grants. The role part covers the role itself after variables and
+defaults are resolved. The database part holds the version of each database that the role grants on, so that a role is
+compiled again when objects in its databases change. A role is compiled again when any part differs from the previous
+fingerprint.
+
+The database version is the LAST_ALTERED time of the schemas in the database. This relies on Snowflake moving that time
+when objects in a schema are created, dropped or altered, which is observed behaviour rather than documented. To bound
+the cost of a change that does not move it, each fingerprint records when the role was last compiled, and a role is
+compiled again once that is longer ago than a max age, just like entries of the object state cache expire.
+
+Grants on account level objects such as warehouses are not versioned, and neither are grants changed in the account
+outside of the playbook. A full compile picks those up.
+ */
+@Slf4j
+public class RoleFingerprints {
+
+    private static final int VERSION = 2;
+
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofHours(24);
+
+    private static final String WILDCARD_DATABASE = "*";
+
+    private static final ObjectMapper objectMapper = Mappers.jsonObjectMapper();
+
+    public record RoleFingerprint(String playbook, String role, Map<String, String> databases, Long compiledAt) {
+
+        /*
+        Whether both fingerprints describe the same role, whenever they were taken.
+         */
+        public boolean sameAs(RoleFingerprint other) {
+            return other != null
+                    && Objects.equals(playbook, other.playbook())
+                    && Objects.equals(role, other.role())
+                    && Objects.equals(databases, other.databases());
+        }
+    }
+
+    public record RoleFingerprintsFile(Integer version, Map<String, RoleFingerprint> roles) {
+    }
+
+    /*
+    The fingerprints of every role of the playbook by role id.
+     */
+    public static Map<String, RoleFingerprint> fingerprint(PlaybookModel playbookModel, Map<String, String> databaseVersions) {
+        return fingerprint(playbookModel, databaseVersions, Instant.now());
+    }
+
+    public static Map<String, RoleFingerprint> fingerprint(
+            PlaybookModel playbookModel,
+            Map<String, String> databaseVersions,
+            Instant compiledAt) {
+        String playbookFingerprint = playbookFingerprint(playbookModel);
+        Map<String, RoleFingerprint> fingerprints = new TreeMap<>();
+        playbookModel.roles().forEach((roleId, role) -> {
+            Map<String, String> databases = new TreeMap<>();
+            referencedDatabases(role).forEach(databaseName -> databases.put(
+                    databaseName,
+                    hash(databaseVersions.getOrDefault(databaseName, ""))));
+            fingerprints.put(roleId, new RoleFingerprint(
+                    playbookFingerprint,
+                    hash(toJson(role)),
+                    databases,
+                    compiledAt.toEpochMilli()));
+        });
+        return fingerprints;
+    }
+
+    /*
+    The ids of the roles whose fingerprint is not the same as before. Roles that grant on every database are always
+    included because there is no single database version to compare.
+     */
+    public static Set<String> changedRoleIds(
+            Map<String, RoleFingerprint> previousFingerprints,
+            Map<String, RoleFingerprint> currentFingerprints) {
+        return changedRoleIds(previousFingerprints, currentFingerprints, DEFAULT_MAX_AGE);
+    }
+
+    /*
+    The ids of the roles whose fingerprint is not the same as before or was taken longer than the max age before the
+    current one.
+     */
+    public static Set<String> changedRoleIds(
+            Map<String, RoleFingerprint> previousFingerprints,
+            Map<String, RoleFingerprint> currentFingerprints,
+            Duration maxAge) {
+        return currentFingerprints.entrySet().stream()
+                .filter(entry -> entry.getValue().databases().containsKey(WILDCARD_DATABASE)
+                        || !entry.getValue().sameAs(previousFingerprints.get(entry.getKey()))
+                        || isExpired(previousFingerprints.get(entry.getKey()), entry.getValue(), maxAge))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static boolean isExpired(RoleFingerprint previous, RoleFingerprint current, Duration maxAge) {
+        if (previous.compiledAt() == null || current.compiledAt() == null) {
+            return true;
+        }
+        return current.compiledAt() - previous.compiledAt() >= maxAge.toMillis();
+    }
+
+    public static Set<String> referencedDatabases(PlaybookRoleModel role) {
+        return role.grants().stream()
+                .map(RoleFingerprints::databaseName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    public static Set<String> referencedDatabases(PlaybookModel playbookModel) {
+        return playbookModel.roles().values().stream()
+                .flatMap(role -> referencedDatabases(role).stream())
+                .filter(databaseName -> !WILDCARD_DATABASE.equals(databaseName))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    static String playbookFingerprint(PlaybookModel playbookModel) {
+        Map<String, List<PlaybookPrivilegeGrant>> ownershipGrantsByRole = new TreeMap<>();
+        playbookModel.roles().values().forEach(role -> ownershipGrantsByRole.put(
+                role.name(),
+                role.grants().stream()
+                        .filter(grant -> grant.privileges().stream().anyMatch("OWNERSHIP"::equalsIgnoreCase))
+                        .toList()));
+        Map<String, Object> playbook = new HashMap<>();
+        playbook.put("role-owner", playbookModel.roleOwner());
+        playbook.put("unsupported-revoke-behavior", playbookModel.unsupportedRevokeBehavior());
+        playbook.put("ownership-grants-by-role", ownershipGrantsByRole);
+        return hash(toJson(playbook));
+    }
+
+    public static Map<String, RoleFingerprint> load(Path path) {
+        if (!Files.exists(path)) {
+            log.info("Role fingerprints {} not found. All roles will be compiled.", path);
+            return Map.of();
+        }
+        try {
+            RoleFingerprintsFile file = objectMapper.readValue(path.toFile(), RoleFingerprintsFile.class);
+            if (!Integer.valueOf(VERSION).equals(file.version()) || file.roles() == null) {
+                log.info("Ignoring role fingerprints {} written by a different version.", path);
+                return Map.of();
+            }
+            return file.roles();
+        } catch (IOException e) {
+            log.warn("Ignoring role fingerprints {} because they could not be read.", path, e);
+            return Map.of();
+        }
+    }
+
+    public static void save(Path path, Map<String, RoleFingerprint> fingerprints) {
+        try {
+            AtomicFiles.write(path, outputStream -> objectMapper.writeValue(
+                    outputStream,
+                    new RoleFingerprintsFile(VERSION, new TreeMap<>(fingerprints))));
+            log.info("Saved fingerprints of {} roles to {}.", fingerprints.size(), path);
+        } catch (IOException e) {
+            throw new RbacDataError(String.format("Unable to save role fingerprints %s. %s", path, e), e);
+        }
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RbacDataError(String.format("Unable to fingerprint %s. %s", value, e), e);
+        }
+    }
+
+    private static String hash(String value) {
+        return Hashing.sha256().hashString(value, StandardCharsets.UTF_8).toString();
+    }
+
+    private static String databaseName(PlaybookPrivilegeGrant grant) {
+        if (grant.databaseName() == null) {
+            return null;
+        }
+        if (grant.databaseName().contains(WILDCARD_DATABASE)) {
+            return WILDCARD_DATABASE;
+        }
+        return ObjectName.normalizeObjectName(grant.databaseName());
+    }
+}
@@ -9,8 +9,6 @@ import us.zoom.data.dfence.exception.VariableNotFoundException;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 
@@ -18,22 +16,14 @@ public class VariableParser {
     private static final TypeReference<HashMap<String, String>> genericTypeReference = new TypeReference<>() {
     };
     private static final ObjectMapper yamlObjectMapper = Mappers.yamlObjectMapper();
-    private static final Pattern varPattern = Pattern.compile("(\\$\\{var\\.)([a-z0-9-]+)(\\})");
 
+    /*
+    Substitute variables in a text that is only rendered once. Texts that are rendered against several variable sets
+    should be compiled once with VariableTemplate.compile instead.
+     */
     public static String substituteVariables(String value, Map<String, String> variables)
             throws VariableNotFoundException {
-        Matcher matcher = varPattern.matcher(value);
-        StringBuilder stringBuilder = new StringBuilder();
-        while (matcher.find()) {
-            String variableName = matcher.group(2);
-            String variableValue = variables.get(variableName);
-            if (variableValue == null) {
-                throw new VariableNotFoundException(String.format("variable %s not found", variableName));
-            }
-            matcher.appendReplacement(stringBuilder, variableValue);
-        }
-        matcher.appendTail(stringBuilder);
-        return stringBuilder.toString();
+        return VariableTemplate.compile(value).render(variables);
     }
 
     public static HashMap<String, String> parseVariables(String value) throws JsonProcessingException {
@@ -0,0 +1,82 @@
+package us.zoom.data.dfence.playbook;
+
+import us.zoom.data.dfence.exception.VariableNotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+A text with ${var.name} references, split once into literal segments and variable slots so that it can be rendered
+against any number of variable sets without scanning the text again. Variable names are lower case letters, digits and
+hyphens. Anything else that looks like a reference is kept as literal text.
+
+Variable values are inserted as they are. Characters such as $ and \ in a value have no special meaning.
+ */
+public final class VariableTemplate {
+    private static final String REFERENCE_START = "${var.";
+
+    private final String[] literals;
+    private final String[] variableNames;
+    private final int literalsLength;
+
+    private VariableTemplate(List<String> literals, List<String> variableNames) {
+        this.literals = literals.toArray(String[]::new);
+        this.variableNames = variableNames.toArray(String[]::new);
+        this.literalsLength = literals.stream().mapToInt(String::length).sum();
+    }
+
+    public static VariableTemplate compile(String value) {
+        List<String> literals = new ArrayList<>();
+        List<String> variableNames = new ArrayList<>();
+        int literalStart = 0;
+        int referenceStart = value.indexOf(REFERENCE_START);
+        while (referenceStart >= 0) {
+            int nameStart = referenceStart + REFERENCE_START.length();
+            int nameEnd = nameStart;
+            while (nameEnd < value.length() && isVariableNameChar(value.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            if (nameEnd > nameStart && nameEnd < value.length() && value.charAt(nameEnd) == '}') {
+                literals.add(value.substring(literalStart, referenceStart));
+                variableNames.add(value.substring(nameStart, nameEnd));
+                literalStart = nameEnd + 1;
+                referenceStart = value.indexOf(REFERENCE_START, literalStart);
+            } else {
+                referenceStart = value.indexOf(REFERENCE_START, referenceStart + 1);
+            }
+        }
+        literals.add(value.substring(literalStart));
+        return new VariableTemplate(literals, variableNames);
+    }
+
+    private static boolean isVariableNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-';
+    }
+
+    public List<String> variableNames() {
+        return List.of(variableNames);
+    }
+
+    public String render(Map<String, String> variables) throws VariableNotFoundException {
+        if (variableNames.length == 0) {
+            return literals[0];
+        }
+        String[] values = new String[variableNames.length];
+        int length = literalsLength;
+        for (int i = 0; i < variableNames.length; i++) {
+            String variableValue = variables.get(variableNames[i]);
+            if (variableValue == null) {
+                throw new VariableNotFoundException(String.format("variable %s not found", variableNames[i]));
+            }
+            values[i] = variableValue;
+            length += variableValue.length();
+        }
+        StringBuilder stringBuilder = new StringBuilder(length);
+        for (int i = 0; i < values.length; i++) {
+            stringBuilder.append(literals[i]).append(values[i]);
+        }
+        stringBuilder.append(literals[values.length]);
+        return stringBuilder.toString();
+    }
+}
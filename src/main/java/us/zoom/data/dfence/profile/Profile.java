@@ -2,6 +2,7 @@ package us.zoom.data.dfence.profile;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import us.zoom.data.dfence.Mappers;
 import us.zoom.data.dfence.Provider;
 import us.zoom.data.dfence.exception.RbacDataError;
@@ -10,10 +11,17 @@ import us.zoom.data.dfence.profile.model.ProfileModel;
 import us.zoom.data.dfence.profile.model.ProfilesModel;
 import us.zoom.data.dfence.providers.snowflake.*;
 import us.zoom.data.dfence.providers.snowflake.informationschema.SnowflakeObjectsService;
+import us.zoom.data.dfence.sql.SqlObjectCache;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class Profile {
 
@@ -51,6 +59,25 @@ public class Profile {
      * @throws RbacDataError if the profile is invalid
      */
     public static Provider provider(ProfilesModel profilesModel, String profileName, ForkJoinPool forkJoinPool) throws RbacDataError {
+        return provider(profilesModel, profileName, forkJoinPool, null);
+    }
+
+    /**
+     * Create a provider using the specified ForkJoinPool for computation and a separate pool of threads for database
+     * calls.
+     * 
+     * @param profilesModel the profiles model
+     * @param profileName the profile name
+     * @param forkJoinPool the fork join pool to use for parallel computation
+     * @param ioThreads the number of threads to use for database calls. Defaults to the maximum number of connections.
+     * @return the provider
+     * @throws RbacDataError if the profile is invalid
+     */
+    public static Provider provider(
+            ProfilesModel profilesModel,
+            String profileName,
+            ForkJoinPool forkJoinPool,
+            Integer ioThreads) throws RbacDataError {
         if (profileName == null) {
             profileName = profilesModel.defaultProfile();
         }
@@ -64,14 +91,54 @@ public class Profile {
         // Leave this as a switch so that we have a place for future providers.
         if (Objects.requireNonNull(profileModel.getProviderName()) == ProfileModel.ProviderName.SNOWFLAKE) {
             SnowflakeProviderConfigModel config = profileModel.getConnection().getSnowflake();
+            SqlObjectCache.configureForProfile(config.getObjectNameCacheSize());
             SnowflakeConnectionService snowflakeConnectionService = new SnowflakeConnectionService(config);
             SnowflakeStatementsService snowflakeStatementsService = new SnowflakeStatementsService(
-                    snowflakeConnectionService);
-            SnowflakeGrantsService snowflakeGrantsService = new SnowflakeGrantsService(snowflakeConnectionService);
-            SnowflakeObjectsService snowflakeObjectsService = new SnowflakeObjectsService(snowflakeConnectionService);
-            return new SnowflakeProvider(snowflakeStatementsService, snowflakeGrantsService, snowflakeObjectsService, forkJoinPool);
+                    snowflakeConnectionService,
+                    config.getStatementBatchSize());
+            SnowflakeGrantsService snowflakeGrantsService = new SnowflakeGrantsService(
+                    snowflakeConnectionService,
+                    config.isGrantSnapshot(),
+                    config.getGrantSnapshotMaxLagMinutes());
+            SnowflakeObjectsService snowflakeObjectsService = new SnowflakeObjectsService(
+                    snowflakeConnectionService,
+                    config.isInventoryPrefetch(),
+                    config.getStateCacheFile() == null ? null : Path.of(config.getStateCacheFile()),
+                    Duration.ofMinutes(config.getStateCacheMaxAgeMinutes()));
+            return new SnowflakeProvider(
+                    snowflakeStatementsService,
+                    snowflakeGrantsService,
+                    snowflakeObjectsService,
+                    forkJoinPool,
+                    ioExecutor(ioThreads != null ? ioThreads : maxConnections(config)));
         }
         // We should not ever get here.
         throw new RuntimeException("Unable to create provider.");
     }
+
+    private static int maxConnections(SnowflakeProviderConfigModel config) {
+        SnowflakeConnectionProperties connectionProperties = config.getConnectionProperties();
+        return connectionProperties != null
+                ? connectionProperties.getMaxConnections()
+                : new SnowflakeConnectionProperties().getMaxConnections();
+    }
+
+    /*
+    Threads for blocking database calls. Idle threads are released so that a large connection pool does not keep
+    hundreds of threads alive, and the threads are daemons so that they never keep the process running.
+     */
+    private static ExecutorService ioExecutor(int threads) {
+        if (threads < 1) {
+            throw new RbacDataError(String.format("Number of I/O threads must be at least 1 but was %s.", threads));
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("dfence-io-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 }
@@ -0,0 +1,58 @@
+package us.zoom.data.dfence.providers.snowflake;
+
+import lombok.extern.slf4j.Slf4j;
+import us.zoom.data.dfence.exception.ObjectNameException;
+import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+Grants to many roles loaded in bulk and indexed by the quoted name of the grantee. A role that had grant activity
+too recently for the bulk source to be trusted is marked as stale and is not served from the snapshot.
+
+Grants whose object name could not be parsed are remembered per role so that they only fail the compile of a role
+that does not skip unknown grants, the same way that reading the grants of that single role would.
+ */
+@Slf4j
+public class SnowflakeGrantSnapshot {
+    private final Map<String, List<SnowflakeGrantModel>> grantsByRole = new HashMap<>();
+    private final Map<String, ObjectNameException> errorsByRole = new HashMap<>();
+    private final Set<String> staleRoles = new HashSet<>();
+
+    void addGrant(String roleName, SnowflakeGrantModel grant) {
+        grantsByRole.computeIfAbsent(roleName, k -> new ArrayList<>()).add(grant);
+    }
+
+    void addError(String roleName, ObjectNameException error) {
+        grantsByRole.computeIfAbsent(roleName, k -> new ArrayList<>());
+        errorsByRole.putIfAbsent(roleName, error);
+    }
+
+    void markStale(String roleName) {
+        staleRoles.add(roleName);
+    }
+
+    public boolean containsRole(String roleName) {
+        return grantsByRole.containsKey(roleName) && !staleRoles.contains(roleName);
+    }
+
+    public List<String> roleNames() {
+        return grantsByRole.keySet().stream().filter(this::containsRole).sorted().toList();
+    }
+
+    public List<SnowflakeGrantModel> grants(String roleName, Boolean skipUnknownGrantTypes) {
+        ObjectNameException error = errorsByRole.get(roleName);
+        if (error != null) {
+            if (!skipUnknownGrantTypes) {
+                throw error;
+            }
+            log.info("Ignoring existing grants for role {} because of failure to parse object name.", roleName, error);
+        }
+        return List.copyOf(grantsByRole.getOrDefault(roleName, List.of()));
+    }
+}
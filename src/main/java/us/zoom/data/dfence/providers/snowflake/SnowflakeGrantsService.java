@@ -1,11 +1,16 @@
 package us.zoom.data.dfence.providers.snowflake;
 
+import com.google.common.collect.Lists;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import net.snowflake.client.jdbc.SnowflakeStatement;
 import us.zoom.data.dfence.exception.DatabaseError;
 import us.zoom.data.dfence.exception.ObjectNameException;
+import us.zoom.data.dfence.metrics.Metrics;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeObjectType;
+import us.zoom.data.dfence.providers.snowflake.grant.store.SnowflakeGrantStore;
 import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
 import us.zoom.data.dfence.sql.ObjectName;
 
@@ -14,9 +19,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -26,10 +33,49 @@ import java.util.stream.Collectors;
 public class SnowflakeGrantsService {
     private final SnowflakeConnectionService snowflakeConnectionService;
 
+    private final Boolean grantSnapshotEnabled;
+
+    private final Integer grantSnapshotMaxLagMinutes;
+
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile SnowflakeGrantSnapshot grantSnapshot;
+
     private static final List<String> IGNORE_GRANTED_ON_TYPES = List.of("DIRECTORY_TABLE", "SEMANTIC_ENTITY", "SEMANTIC_CALCULATION", "SEMANTIC_RELATIONSHIP");
 
+    private static final int FUTURE_GRANTS_BATCH_SIZE = 50;
+
+    private static final String QUERY_TIMER = "snowflake.query";
+
+    private static final String SNAPSHOT_REQUESTS_COUNTER = "grant_snapshot.requests";
+
+    /*
+    Every current grant to a role in the account. Deleted grants are only read if they were deleted within the lag
+    window because they mark their role as recently changed. The view is behind when the newest change that it holds is
+    older than the lag window, in which case the changes made since may be missing from any role.
+     */
+    private static final String GRANTS_TO_ROLES_QUERY = """
+            select privilege, granted_on, table_catalog, table_schema, name, granted_to, grantee_name, grant_option,
+                deleted_on is not null as deleted,
+                greatest(created_on, coalesce(modified_on, created_on), coalesce(deleted_on, created_on))
+                    >= dateadd(minute, -%1$d, current_timestamp()) as recently_changed,
+                max(greatest(created_on, coalesce(modified_on, created_on), coalesce(deleted_on, created_on))) over ()
+                    < dateadd(minute, -%1$d, current_timestamp()) as view_behind
+            from snowflake.account_usage.grants_to_roles
+            where granted_to = 'ROLE'
+                and (deleted_on is null or deleted_on >= dateadd(minute, -%1$d, current_timestamp()));""";
+
     public SnowflakeGrantsService(SnowflakeConnectionService snowflakeConnectionService) {
+        this(snowflakeConnectionService, false, SnowflakeProviderConfigModel.DEFAULT_GRANT_SNAPSHOT_MAX_LAG_MINUTES);
+    }
+
+    public SnowflakeGrantsService(
+            SnowflakeConnectionService snowflakeConnectionService,
+            Boolean grantSnapshotEnabled,
+            Integer grantSnapshotMaxLagMinutes) {
         this.snowflakeConnectionService = snowflakeConnectionService;
+        this.grantSnapshotEnabled = grantSnapshotEnabled;
+        this.grantSnapshotMaxLagMinutes = grantSnapshotMaxLagMinutes;
     }
 
     public static String preprocessObjectName(String objectName, String objectType, Boolean isFuture) {
@@ -52,17 +98,7 @@ public class SnowflakeGrantsService {
                 SnowflakeGrantModel grantModel = null;
                 if (!IGNORE_GRANTED_ON_TYPES.contains(grantedOn)) {
                     try {
-                        String objectNameProcessed = preprocessObjectName(objectName, grantedOn, isFuture);
-
-                        grantModel = new SnowflakeGrantModel(
-                                resultSet.getString("privilege"),
-                                grantedOn,
-                                objectNameProcessed,
-                                resultSet.getString(grantTerm + "_to"),
-                                resultSet.getString("grantee_name"),
-                                resultSet.getBoolean("grant_option"),
-                                isFuture,
-                                false);
+                        grantModel = rowToGrant(resultSet, grantTerm, objectName, isFuture);
                     } catch (ObjectNameException e) {
                         if (ignoreUnknownGrantTypes) {
                             log.info(
@@ -86,11 +122,230 @@ public class SnowflakeGrantsService {
         return List.copyOf(snowflakeGrantModels);
     }
 
+    private static SnowflakeGrantModel rowToGrant(
+            ResultSet resultSet,
+            String grantTerm,
+            String objectName,
+            Boolean isFuture) throws SQLException {
+        String grantedOn = resultSet.getString(grantTerm + "_on");
+        return new SnowflakeGrantModel(
+                resultSet.getString("privilege"),
+                grantedOn,
+                preprocessObjectName(objectName, grantedOn, isFuture),
+                resultSet.getString(grantTerm + "_to"),
+                resultSet.getString("grantee_name"),
+                resultSet.getBoolean("grant_option"),
+                isFuture,
+                false);
+    }
+
+    /*
+    The account usage views return the raw parts of the object name. Rebuild the name the same way show grants reports
+    it so that it goes through the same normalization.
+     */
+    public static String accountUsageObjectName(String grantedOn, String catalog, String schema, String name) {
+        int qualLevel;
+        try {
+            qualLevel = SnowflakeObjectType.fromString(grantedOn.replace(' ', '_')).getQualLevel();
+        } catch (IllegalArgumentException e) {
+            qualLevel = 1;
+        }
+        List<String> parts = new ArrayList<>();
+        if (qualLevel >= 2) {
+            parts.add(quoteAccountUsageName(catalog));
+        }
+        if (qualLevel >= 3) {
+            parts.add(quoteAccountUsageName(schema));
+        }
+        if (List.of("PROCEDURE", "FUNCTION").contains(grantedOn) && !name.contains(":") && name.contains("(")) {
+            // Signature with argument types only. The arguments are parsed rather than quoted.
+            int argumentsStart = name.indexOf('(');
+            parts.add(quoteAccountUsageName(name.substring(0, argumentsStart)) + name.substring(argumentsStart));
+        } else {
+            parts.add(quoteAccountUsageName(name));
+        }
+        return String.join(".", parts);
+    }
+
+    /*
+    The grantee names of the account usage views and of show future grants are raw names. The snapshot is keyed by the
+    quoted form of the role name, which is the raw name quoted, so a role named "my role" is not a name that fails to
+    parse and a role named "analyst" is not taken for the role ANALYST.
+     */
+    static String accountUsageRoleName(String granteeName) {
+        return quoteAccountUsageName(granteeName);
+    }
+
+    private static String quoteAccountUsageName(String name) {
+        return "\"" + Objects.requireNonNullElse(name, "").replace("\"", "\"\"") + "\"";
+    }
+
+    /*
+    Load the grants of the given roles in bulk rather than with two show statements per role. Current grants come from
+    the account usage grants view in one query. Future grants are not in that view so they are read with show
+    statements that are sent in batches. Account usage views lag behind the account, so roles with grant activity
+    within the configured lag are left out of the snapshot and read directly when they are compiled. No snapshot is
+    used when the newest change in the view is older than the lag, because the view has then not caught up with the
+    account. Changes made outside of Data Fence that the view has not taken in yet cannot be seen in it and are missed.
+     */
+    public void loadGrantSnapshot(Collection<String> roleNames) {
+        this.grantSnapshot = null;
+        if (!grantSnapshotEnabled) {
+            return;
+        }
+        Set<String> managedRoleNames = roleNames.stream()
+                .map(ObjectName::quotedObjectName)
+                .collect(Collectors.toSet());
+        log.info("Loading grant snapshot for {} roles.", managedRoleNames.size());
+        SnowflakeGrantSnapshot snapshot = new SnowflakeGrantSnapshot();
+        try (Connection connection = snowflakeConnectionService.connection()) {
+            long start = System.nanoTime();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(String.format(GRANTS_TO_ROLES_QUERY, grantSnapshotMaxLagMinutes));
+                if (!accountUsageResultSetToSnapshot(statement.getResultSet(), managedRoleNames, snapshot)) {
+                    log.warn(
+                            "The grants view has no changes within the last {} minutes and may be behind the account. "
+                                    + "Existing grants will be read for each role.",
+                            grantSnapshotMaxLagMinutes);
+                    return;
+                }
+            } finally {
+                Metrics.timer(QUERY_TIMER, "type", "grants_to_roles").record(System.nanoTime() - start);
+            }
+            for (List<String> batch : Lists.partition(snapshot.roleNames(), FUTURE_GRANTS_BATCH_SIZE)) {
+                String query = batch.stream()
+                        .map(roleName -> String.format("show future grants to role %s;", ObjectName.quotedObjectName(roleName)))
+                        .collect(Collectors.joining(" "));
+                log.debug("Getting future grants for {} roles with statement \"{}\"", batch.size(), query);
+                long batchStart = System.nanoTime();
+                try (Statement statement = connection.createStatement()) {
+                    statement.unwrap(SnowflakeStatement.class).setParameter("MULTI_STATEMENT_COUNT", batch.size());
+                    statement.execute(query);
+                    do {
+                        futureResultSetToSnapshot(statement.getResultSet(), snapshot);
+                    } while (statement.getMoreResults());
+                } finally {
+                    Metrics.timer(QUERY_TIMER, "type", "show_future_grants_batch").record(System.nanoTime() - batchStart);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseError("Failed to load grant snapshot.", e);
+        }
+        log.info("Loaded grant snapshot for {} roles.", snapshot.roleNames().size());
+        this.grantSnapshot = snapshot;
+    }
+
+    /*
+    Add the grants of the managed roles to the snapshot. Returns false when the view is behind the account.
+     */
+    private static boolean accountUsageResultSetToSnapshot(
+            ResultSet resultSet,
+            Set<String> managedRoleNames,
+            SnowflakeGrantSnapshot snapshot) throws SQLException {
+        while (resultSet.next()) {
+            if (resultSet.getBoolean("view_behind")) {
+                return false;
+            }
+            String roleName = accountUsageRoleName(resultSet.getString("grantee_name"));
+            if (!managedRoleNames.contains(roleName)) {
+                continue;
+            }
+            if (resultSet.getBoolean("recently_changed")) {
+                snapshot.markStale(roleName);
+            }
+            String grantedOn = resultSet.getString("granted_on").replace(' ', '_');
+            if (resultSet.getBoolean("deleted") || IGNORE_GRANTED_ON_TYPES.contains(grantedOn)) {
+                continue;
+            }
+            String objectName = accountUsageObjectName(
+                    grantedOn,
+                    resultSet.getString("table_catalog"),
+                    resultSet.getString("table_schema"),
+                    resultSet.getString("name"));
+            try {
+                snapshot.addGrant(
+                        roleName,
+                        new SnowflakeGrantModel(
+                                resultSet.getString("privilege"),
+                                grantedOn,
+                                preprocessObjectName(objectName, grantedOn, false),
+                                resultSet.getString("granted_to"),
+                                resultSet.getString("grantee_name"),
+                                resultSet.getBoolean("grant_option"),
+                                false,
+                                false));
+            } catch (ObjectNameException e) {
+                snapshot.addError(
+                        roleName,
+                        new ObjectNameException(
+                                String.format(
+                                        "Unable to parse result set for object %s of type %s",
+                                        objectName,
+                                        grantedOn), e));
+            }
+        }
+        return true;
+    }
+
+    private static void futureResultSetToSnapshot(ResultSet resultSet, SnowflakeGrantSnapshot snapshot)
+            throws SQLException {
+        while (resultSet.next()) {
+            String grantedOn = resultSet.getString("grant_on");
+            if (IGNORE_GRANTED_ON_TYPES.contains(grantedOn)) {
+                continue;
+            }
+            String roleName = accountUsageRoleName(resultSet.getString("grantee_name"));
+            String objectName = resultSet.getString("name");
+            try {
+                snapshot.addGrant(roleName, rowToGrant(resultSet, "grant", objectName, true));
+            } catch (ObjectNameException e) {
+                snapshot.addError(
+                        roleName,
+                        new ObjectNameException(
+                                String.format(
+                                        "Unable to parse result set for object %s of type %s",
+                                        objectName,
+                                        grantedOn), e));
+            }
+        }
+    }
+
+    /*
+    Drop the snapshot once a compile is done, so that grants read after it, such as by an import or after changes are
+    applied, come from the account.
+     */
+    public void clearGrantSnapshot() {
+        this.grantSnapshot = null;
+    }
+
     public Map<String, SnowflakeGrantBuilder> getGrants(String roleName) {
         return getGrants(roleName, false);
     }
 
     public Map<String, SnowflakeGrantBuilder> getGrants(String roleName, Boolean skipUnknownGrantTypes) {
+        return grantBuilders(grantModels(roleName, skipUnknownGrantTypes), skipUnknownGrantTypes);
+    }
+
+    /*
+    The existing grants of a role in a grant store, which holds them in much less memory than a map of grant builders.
+     */
+    public SnowflakeGrantStore getGrantStore(String roleName, Boolean skipUnknownGrantTypes) {
+        return SnowflakeGrantStore.of(grantModels(roleName, skipUnknownGrantTypes), skipUnknownGrantTypes);
+    }
+
+    private List<SnowflakeGrantModel> grantModels(String roleName, Boolean skipUnknownGrantTypes) {
+        SnowflakeGrantSnapshot snapshot = this.grantSnapshot;
+        if (snapshot != null) {
+            String quotedRoleName = ObjectName.quotedObjectName(roleName);
+            if (snapshot.containsRole(quotedRoleName)) {
+                Metrics.counter(SNAPSHOT_REQUESTS_COUNTER, "result", "hit").increment();
+                log.info("Using grant snapshot for existing grants of role {}", roleName);
+                return snapshot.grants(quotedRoleName, skipUnknownGrantTypes);
+            }
+        }
+        if (snapshot != null) {
+            Metrics.counter(SNAPSHOT_REQUESTS_COUNTER, "result", "miss").increment();
+        }
         log.info("Finding existing grants for role {}", roleName);
         List<SnowflakeGrantModel> snowflakeGrantModels = new ArrayList<>();
         List<Boolean> isFutures = List.of(false, true);
@@ -102,19 +357,30 @@ public class SnowflakeGrantsService {
                 String query = queries.get(i);
                 Boolean isFuture = isFutures.get(i);
                 log.debug("Getting grants for role {} with statement \"{}\"", roleName, query);
-                Statement statement = connection.createStatement();
-                statement.execute(query);
-                ResultSet resultSet = statement.getResultSet();
-                snowflakeGrantModels.addAll(resultSetToGrant(resultSet, isFuture, skipUnknownGrantTypes));
+                long start = System.nanoTime();
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(query);
+                    ResultSet resultSet = statement.getResultSet();
+                    snowflakeGrantModels.addAll(resultSetToGrant(resultSet, isFuture, skipUnknownGrantTypes));
+                } finally {
+                    Metrics.timer(QUERY_TIMER, "type", isFuture ? "show_future_grants" : "show_grants")
+                            .record(System.nanoTime() - start);
+                }
             }
-            return snowflakeGrantModels.stream()
-                    .map(x -> SnowflakeGrantBuilder.fromGrant(x, skipUnknownGrantTypes))
-                    .filter(Objects::nonNull).collect(Collectors.toMap(
-                            SnowflakeGrantBuilder::getKey,
-                            Function.identity(),
-                            (first, second) -> second));
+            return snowflakeGrantModels;
         } catch (SQLException e) {
             throw new DatabaseError(String.format("Failed to retrieve current grant state for role %s.", roleName), e);
         }
     }
+
+    private static Map<String, SnowflakeGrantBuilder> grantBuilders(
+            List<SnowflakeGrantModel> snowflakeGrantModels,
+            Boolean skipUnknownGrantTypes) {
+        return snowflakeGrantModels.stream()
+                .map(x -> SnowflakeGrantBuilder.fromGrant(x, skipUnknownGrantTypes))
+                .filter(Objects::nonNull).collect(Collectors.toMap(
+                        SnowflakeGrantBuilder::getKey,
+                        Function.identity(),
+                        (first, second) -> second));
+    }
 }
@@ -5,54 +5,79 @@ import us.zoom.data.dfence.exception.ObjectNameException;
 import us.zoom.data.dfence.exception.RbacDataError;
 import us.zoom.data.dfence.playbook.model.PlaybookModel;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.GrantBuilderDiff;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeObjectType;
 import us.zoom.data.dfence.providers.snowflake.informationschema.SnowflakeObjectsService;
 import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
 import us.zoom.data.dfence.sql.ObjectName;
+import us.zoom.data.dfence.sql.QualifiedName;
 
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
+/*
+Filters grants and revokes on objects that do not exist out of a diff. One filter is made per compile and shared by every
+role compiled against the same playbook. It holds the normalized names of the playbook roles, which count as existing
+because they are created by the same apply. Within a diff, grants are grouped by the object whose existence decides them,
+such as the container of a future grant, so that existence is checked once per object rather than once per grant.
+ */
 @Slf4j
 public class SnowflakeObjectExistsFilter {
+    private final SnowflakeObjectsService snowflakeObjectsService;
+
+    private final Set<String> playbookRoleNames;
+
+    private record ExistenceCheck(String objectName, SnowflakeObjectType snowflakeObjectType) {
+    }
+
+    public SnowflakeObjectExistsFilter(SnowflakeObjectsService snowflakeObjectsService, PlaybookModel playbookModel) {
+        this.snowflakeObjectsService = snowflakeObjectsService;
+        this.playbookRoleNames = playbookModel.roles().values().stream()
+                .map(x -> ObjectName.normalizeObjectName(x.name()))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
     public static GrantBuilderDiff objectExistsGrantBuilderDiffFilter(
             GrantBuilderDiff grantBuilderDiff,
             SnowflakeObjectsService snowflakeObjectsService,
             PlaybookModel playbookModel) {
-        List<String> playbookRoleNames = playbookModel.roles().values().stream()
-                .map(x -> ObjectName.normalizeObjectName(x.name())).toList();
+        return new SnowflakeObjectExistsFilter(snowflakeObjectsService, playbookModel).filterDiff(grantBuilderDiff);
+    }
+
+    public GrantBuilderDiff filterDiff(GrantBuilderDiff grantBuilderDiff) {
+        Map<ExistenceCheck, Boolean> existence = new HashMap<>();
+        Predicate<SnowflakeGrantBuilder> exists = grantBuilder -> {
+            ExistenceCheck existenceCheck = existenceCheck(grantBuilder.getGrant());
+            return existenceCheck == null || existence.computeIfAbsent(existenceCheck, this::objectExists);
+        };
         return new GrantBuilderDiff(
-                grantBuilderDiff.grant().stream()
-                        .filter(grantBuilder -> objectExistsGrantFilter(
-                                grantBuilder.getGrant(),
-                                snowflakeObjectsService,
-                                playbookRoleNames)).toList(),
-                grantBuilderDiff.revoke().stream()
-                        .filter(grantBuilder -> objectExistsGrantFilter(
-                                grantBuilder.getGrant(),
-                                snowflakeObjectsService,
-                                playbookRoleNames)).toList());
+                grantBuilderDiff.grant().stream().filter(exists).toList(),
+                grantBuilderDiff.revoke().stream().filter(exists).toList());
     }
 
-    public static Boolean objectExistsGrantFilter(
-            SnowflakeGrantModel snowflakeGrantModel,
-            SnowflakeObjectsService snowflakeObjectsService,
-            List<String> playbookRoleNames) {
-        if (
-                snowflakeGrantModel.grantedOn().equals("ROLE") && playbookRoleNames.contains(ObjectName.normalizeObjectName(
-                snowflakeGrantModel.name()))) {
-            return true;
+    public Boolean objectExistsGrantFilter(SnowflakeGrantModel snowflakeGrantModel) {
+        ExistenceCheck existenceCheck = existenceCheck(snowflakeGrantModel);
+        return existenceCheck == null || objectExists(existenceCheck);
+    }
+
+    /*
+    The object whose existence decides whether the grant is kept, or null when the grant is kept regardless.
+     */
+    private ExistenceCheck existenceCheck(SnowflakeGrantModel snowflakeGrantModel) {
+        if (snowflakeGrantModel.grantedOn().equals("ROLE") && playbookRoleNames.contains(snowflakeGrantModel.name())) {
+            return null;
         }
-        String objectName;
-        SnowflakeObjectType snowflakeObjectType;
         if (snowflakeGrantModel.all() || snowflakeGrantModel.future()) {
-            objectName = ObjectName.containerName(snowflakeGrantModel.name());
-            List<String> objectNameParts = ObjectName.splitObjectName(objectName);
-            switch (objectNameParts.size()) {
+            QualifiedName containerName = snowflakeGrantModel.qualifiedName().container();
+            switch (containerName.qualLevel()) {
                 case (1) -> {
-                    snowflakeObjectType = SnowflakeObjectType.DATABASE;
+                    return new ExistenceCheck(containerName.normalized(), SnowflakeObjectType.DATABASE);
                 }
                 case (2) -> {
-                    snowflakeObjectType = SnowflakeObjectType.SCHEMA;
+                    return new ExistenceCheck(containerName.normalized(), SnowflakeObjectType.SCHEMA);
                 }
                 default -> {
                     throw new RbacDataError(String.format(
@@ -60,10 +85,15 @@ public class SnowflakeObjectExistsFilter {
                             snowflakeGrantModel.name()));
                 }
             }
-        } else {
-            objectName = ObjectName.normalizeObjectName(snowflakeGrantModel.name());
-            snowflakeObjectType = SnowflakeObjectType.fromString(snowflakeGrantModel.grantedOn());
         }
+        return new ExistenceCheck(
+                snowflakeGrantModel.name(),
+                SnowflakeObjectType.fromString(snowflakeGrantModel.grantedOn()));
+    }
+
+    private Boolean objectExists(ExistenceCheck existenceCheck) {
+        String objectName = existenceCheck.objectName();
+        SnowflakeObjectType snowflakeObjectType = existenceCheck.snowflakeObjectType();
         Boolean ret;
         try {
             ret = snowflakeObjectsService.objectExists(objectName, snowflakeObjectType);
@@ -1,7 +1,6 @@
 package us.zoom.data.dfence.providers.snowflake;
 
 import lombok.Data;
-import us.zoom.data.dfence.exception.ObjectNameException;
 import us.zoom.data.dfence.exception.RbacDataError;
 import us.zoom.data.dfence.playbook.model.PlaybookModel;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.GrantBuilderDiff;
@@ -50,14 +49,17 @@ public class SnowflakeOwnedObjectFilter {
     }
 
     public static GrantBuilderDiff filterDiff(GrantBuilderDiff grantBuilderDiff, PlaybookModel playbookModel) {
-        List<SnowflakeOwnedObjectFilter> filters = SnowflakeOwnedObjectFilter.filtersFromPlaybookModel(playbookModel);
-        List<SnowflakeGrantBuilder> revokeGrants = grantBuilderDiff.revoke().stream().filter(gb -> {
-            Boolean k = filters.stream().allMatch(f -> {
-                Boolean y = f.keep(gb.getGrant());
-                return y;
-            });
-            return k;
-        }).toList();
+        return filterDiff(grantBuilderDiff, SnowflakeOwnedObjectIndex.of(playbookModel));
+    }
+
+    /*
+    Drop revokes of ownership on objects that another role of the playbook owns. The index is built once per playbook
+    and shared by every role that is compiled against it.
+     */
+    public static GrantBuilderDiff filterDiff(GrantBuilderDiff grantBuilderDiff, SnowflakeOwnedObjectIndex ownedObjectIndex) {
+        List<SnowflakeGrantBuilder> revokeGrants = grantBuilderDiff.revoke().stream()
+                .filter(gb -> !ownedObjectIndex.ownedByOtherRole(gb.getGrant()))
+                .toList();
         return new GrantBuilderDiff(grantBuilderDiff.grant(), revokeGrants);
     }
 
@@ -75,16 +77,7 @@ public class SnowflakeOwnedObjectFilter {
         }
 
         // Now we assume that this is an ownership grant to some other role.
-        List<String> grantObjectNameParts;
-        try {
-            grantObjectNameParts = ObjectName.splitObjectName(snowflakeGrantModel.name());
-        } catch (ObjectNameException e) {
-            throw new ObjectNameException(
-                    String.format(
-                            "Unable to process snowflake grant model %s due to object name exception for name %s",
-                            snowflakeGrantModel,
-                            snowflakeGrantModel.name()), e);
-        }
+        List<String> grantObjectNameParts = snowflakeGrantModel.qualifiedName().parts();
         switch (grantObjectType.getQualLevel()) {
             case 1 -> {
                 if (!(grantObjectNameParts.size() == 1)) {
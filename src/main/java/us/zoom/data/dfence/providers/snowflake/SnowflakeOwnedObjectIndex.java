@@ -0,0 +1,153 @@
+package us.zoom.data.dfence.providers.snowflake;
+
+import us.zoom.data.dfence.exception.RbacDataError;
+import us.zoom.data.dfence.playbook.model.PlaybookModel;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeObjectType;
+import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
+import us.zoom.data.dfence.sql.QualifiedName;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+The ownership grants of a playbook indexed by object type and quoted name parts. Whether a revoke of ownership is on
+an object that another role of the playbook owns is answered with at most three lookups instead of a pass over every
+ownership grant of the playbook. Wildcard schema and object names are kept as "*" parts of the key, so an object matches
+its own name, its schema with a "*" object and its database with "*" for both.
+
+Role names and name parts are keyed by their quoted form, because SnowflakeOwnedObjectFilter.keep compares them with
+ObjectName.equalObjectName, which compares quoted forms. Normalized forms would tell a quoted part such as "A" apart
+from A. The index is built once per playbook and matches the same grants as SnowflakeOwnedObjectFilter.keep.
+ */
+public class SnowflakeOwnedObjectIndex {
+    private static final String WILDCARD = "*";
+
+    private final PlaybookModel playbookModel;
+
+    private final Map<SnowflakeObjectType, Set<String>> ownerRolesByType = new EnumMap<>(SnowflakeObjectType.class);
+
+    private final Map<SnowflakeObjectType, Map<List<String>, Set<String>>> ownerRolesByName =
+            new EnumMap<>(SnowflakeObjectType.class);
+
+    private SnowflakeOwnedObjectIndex(PlaybookModel playbookModel, List<SnowflakeOwnedObjectFilter> filters) {
+        this.playbookModel = playbookModel;
+        filters.forEach(this::add);
+    }
+
+    public static SnowflakeOwnedObjectIndex of(PlaybookModel playbookModel) {
+        return new SnowflakeOwnedObjectIndex(
+                playbookModel,
+                SnowflakeOwnedObjectFilter.filtersFromPlaybookModel(playbookModel));
+    }
+
+    public PlaybookModel getPlaybookModel() {
+        return playbookModel;
+    }
+
+    /*
+    True when the grant is a revoke of ownership that must be kept out because another role of the playbook owns the
+    object.
+     */
+    public Boolean ownedByOtherRole(SnowflakeGrantModel snowflakeGrantModel) {
+        if (ownerRolesByType.isEmpty()
+                || !"OWNERSHIP".equals(snowflakeGrantModel.privilege())
+                || snowflakeGrantModel.future()
+                || snowflakeGrantModel.all()) {
+            return false;
+        }
+        SnowflakeObjectType grantObjectType = SnowflakeObjectType.fromString(snowflakeGrantModel.grantedOn());
+        Set<String> ownerRoles = ownerRolesByType.get(grantObjectType);
+        if (ownerRoles == null) {
+            return false;
+        }
+        String granteeName = quoted(snowflakeGrantModel.granteeName());
+        if (ownerRoles.size() == 1 && ownerRoles.contains(granteeName)) {
+            return false;
+        }
+        List<String> parts = snowflakeGrantModel.qualifiedName().parts();
+        int qualLevel = grantObjectType.getQualLevel();
+        if (qualLevel < 1 || qualLevel > 3) {
+            throw new RbacDataError(String.format(
+                    "Invalid qualifaction level of %s for ownership grant.",
+                    qualLevel));
+        }
+        if (parts.size() != qualLevel) {
+            throw new RbacDataError(String.format(
+                    "Invalid object name %s for object type %s",
+                    snowflakeGrantModel.granteeName(),
+                    grantObjectType));
+        }
+        Map<List<String>, Set<String>> byName = ownerRolesByName.getOrDefault(grantObjectType, Map.of());
+        String first = quoted(parts.get(0));
+        return switch (qualLevel) {
+            case 1 -> ownedByOther(byName, List.of(first), granteeName);
+            case 2 -> {
+                String second = quoted(parts.get(1));
+                yield ownedByOther(byName, List.of(first, second), granteeName)
+                        || ownedByOther(byName, List.of(first, WILDCARD), granteeName);
+            }
+            default -> {
+                String second = quoted(parts.get(1));
+                String third = quoted(parts.get(2));
+                yield ownedByOther(byName, List.of(first, second, third), granteeName)
+                        || ownedByOther(byName, List.of(first, second, WILDCARD), granteeName)
+                        || ownedByOther(byName, List.of(first, WILDCARD, WILDCARD), granteeName);
+            }
+        };
+    }
+
+    private static boolean ownedByOther(Map<List<String>, Set<String>> byName, List<String> key, String granteeName) {
+        Set<String> owners = byName.get(key);
+        return owners != null && (owners.size() > 1 || !owners.contains(granteeName));
+    }
+
+    private void add(SnowflakeOwnedObjectFilter filter) {
+        SnowflakeObjectType objectType = filter.getSnowflakeObjectType();
+        String roleName = quoted(filter.getRoleName());
+        ownerRolesByType.computeIfAbsent(objectType, x -> new HashSet<>()).add(roleName);
+        List<String> key = key(filter);
+        if (key != null) {
+            ownerRolesByName.computeIfAbsent(objectType, x -> new HashMap<>())
+                    .computeIfAbsent(key, x -> new HashSet<>())
+                    .add(roleName);
+        }
+    }
+
+    /*
+    The name parts that a filter matches for its object type, or null when it cannot match any object.
+     */
+    private static List<String> key(SnowflakeOwnedObjectFilter filter) {
+        String databaseName = quotedOrWildcard(filter.getDatabaseName());
+        String schemaName = quotedOrWildcard(filter.getSchemaName());
+        String objectName = quotedOrWildcard(filter.getObjectName());
+        switch (filter.getSnowflakeObjectType().getQualLevel()) {
+            case 1 -> {
+                String name = filter.getSnowflakeObjectType() == SnowflakeObjectType.DATABASE ? databaseName : objectName;
+                return name == null ? null : List.of(name);
+            }
+            case 2 -> {
+                return databaseName == null || schemaName == null ? null : List.of(databaseName, schemaName);
+            }
+            case 3 -> {
+                return databaseName == null || schemaName == null || objectName == null
+                        ? null
+                        : List.of(databaseName, schemaName, objectName);
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private static String quoted(String name) {
+        return QualifiedName.of(name).quoted();
+    }
+
+    private static String quotedOrWildcard(String name) {
+        return name == null || WILDCARD.equals(name) ? name : quoted(name);
+    }
+}
@@ -1,13 +1,14 @@
 package us.zoom.data.dfence.providers.snowflake;
 
 import lombok.extern.slf4j.Slf4j;
-import com.google.common.collect.MapDifference;
-import com.google.common.collect.Maps;
+import com.google.common.collect.Lists;
 import us.zoom.data.dfence.CompiledChanges;
 import us.zoom.data.dfence.Provider;
 import us.zoom.data.dfence.consistency.GrantRevokeConsistencyChecker;
 import us.zoom.data.dfence.exception.DatabaseError;
 import us.zoom.data.dfence.exception.RbacDataError;
+import us.zoom.data.dfence.metrics.Metrics;
+import us.zoom.data.dfence.metrics.Timer;
 import us.zoom.data.dfence.playbook.model.PlaybookModel;
 import us.zoom.data.dfence.playbook.model.PlaybookPrivilegeGrant;
 import us.zoom.data.dfence.playbook.model.PlaybookRoleModel;
@@ -17,12 +18,23 @@ import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeObjectType
 import us.zoom.data.dfence.providers.snowflake.grant.builder.options.SnowflakeGrantBuilderOptions;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.options.UnsupportedRevokeBehavior;
 import us.zoom.data.dfence.providers.snowflake.grant.desired.create.DesiredGrantsCompiler;
+import us.zoom.data.dfence.providers.snowflake.grant.store.SnowflakeGrantDiff;
+import us.zoom.data.dfence.providers.snowflake.grant.store.SnowflakeGrantStore;
 import us.zoom.data.dfence.providers.snowflake.informationschema.SnowflakeObjectsService;
 import us.zoom.data.dfence.providers.snowflake.models.PartitionedGrantStatements;
 import us.zoom.data.dfence.providers.snowflake.revoke.SnowflakeRevokeGrantsCompiler;
+import us.zoom.data.dfence.providers.snowflake.revoke.evaluator.GrantRevocationEvaluator;
+import us.zoom.data.dfence.sql.SqlObjectCache;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -39,6 +51,37 @@ public class SnowflakeProvider implements Provider {
 
     private final ForkJoinPool forkJoinPool;
 
+    private final ExecutorService ioExecutor;
+
+    private volatile Duration cacheMaxAge;
+
+    private volatile boolean cacheLoaded = false;
+
+    private volatile long cacheLoadedNanos;
+
+    private volatile PlaybookFilters playbookFilters;
+
+    /*
+    Filters that depend only on the playbook, built once for all roles compiled against the same playbook model.
+     */
+    private record PlaybookFilters(
+            PlaybookModel playbookModel,
+            SnowflakeObjectExistsFilter objectExistsFilter,
+            SnowflakeOwnedObjectIndex ownedObjectIndex) {
+    }
+
+    private static final String COMPILE_PHASE_TIMER = "compile.phase";
+
+    private static final String COMPILE_STAGE_TIMER = "compile.stage";
+
+    private static final String APPLY_PHASE_TIMER = "apply.phase";
+
+    // One timer for all roles. A timer per role name would add a series for every role ever compiled to the process
+    // wide registry, which grows without bound in a long running server.
+    private static final Timer compileRoleTimer = Metrics.timer("compile.role");
+
+    private static final int STREAMING_ROLES_PER_THREAD = 4;
+
     /**
      * Constructor that uses the common ForkJoinPool.
      * 
@@ -54,7 +97,7 @@ public class SnowflakeProvider implements Provider {
     }
 
     /**
-     * Constructor that accepts a custom ForkJoinPool.
+     * Constructor that accepts a custom ForkJoinPool. Blocking database calls run on the same pool.
      * 
      * @param snowflakeStatementsService the statements service
      * @param snowflakeGrantsService the grants service
@@ -66,43 +109,268 @@ public class SnowflakeProvider implements Provider {
             SnowflakeGrantsService snowflakeGrantsService,
             SnowflakeObjectsService snowflakeObjectsService,
             ForkJoinPool forkJoinPool) {
+        this(snowflakeStatementsService, snowflakeGrantsService, snowflakeObjectsService, forkJoinPool, forkJoinPool);
+    }
+
+    /**
+     * Constructor that accepts a ForkJoinPool for computation and a separate executor for blocking database calls.
+     * The executor should be sized to the connection pool so that threads do not wait on connections.
+     * 
+     * @param snowflakeStatementsService the statements service
+     * @param snowflakeGrantsService the grants service
+     * @param snowflakeObjectsService the objects service
+     * @param forkJoinPool the fork join pool to use for parallel computation
+     * @param ioExecutor the executor to use for database calls
+     */
+    public SnowflakeProvider(
+            SnowflakeStatementsService snowflakeStatementsService,
+            SnowflakeGrantsService snowflakeGrantsService,
+            SnowflakeObjectsService snowflakeObjectsService,
+            ForkJoinPool forkJoinPool,
+            ExecutorService ioExecutor) {
         this.snowflakeStatementsService = snowflakeStatementsService;
         this.snowflakeGrantsService = snowflakeGrantsService;
         this.snowflakeObjectsService = snowflakeObjectsService;
         this.desiredGrantsCompiler = new DesiredGrantsCompiler(snowflakeObjectsService);
         this.forkJoinPool = forkJoinPool;
+        this.ioExecutor = ioExecutor;
+    }
+
+    /*
+    Run a blocking call on the I/O executor and wait for it. Runtime exceptions are rethrown unwrapped so that callers
+    can keep handling DatabaseError and friends as if the call was made directly.
+     */
+    private <T> T onIoExecutor(Supplier<T> supplier) {
+        return joinUnwrapped(CompletableFuture.supplyAsync(supplier, ioExecutor));
+    }
+
+    /*
+    Run a blocking action for every item on the I/O executor and wait for all of them. When one fails, the items that
+    have not started yet are cancelled and the failure is rethrown.
+     */
+    private <T> void forEachOnIoExecutor(Collection<T> items, Consumer<T> action) {
+        List<CompletableFuture<Void>> futures = items.stream()
+                .map(item -> CompletableFuture.runAsync(() -> action.accept(item), ioExecutor))
+                .toList();
+        try {
+            futures.forEach(SnowflakeProvider::joinUnwrapped);
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.cancel(false));
+            throw e;
+        }
+    }
+
+    private static <T> T joinUnwrapped(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 
     @Override
     public List<CompiledChanges> compileChanges(PlaybookModel playbookModel, Boolean ignoreUnknownGrants) {
-        Boolean consolidateWildcardGrantsToAll = false;
+        return compileChanges(playbookModel, ignoreUnknownGrants, playbookModel.roles().keySet());
+    }
+
+    /*
+    Only the given roles are compiled and only their databases and grants are loaded. The rest of the playbook is still
+    used to decide which roles will exist and which objects are owned by other roles.
+     */
+    @Override
+    public List<CompiledChanges> compileChanges(
+            PlaybookModel playbookModel,
+            Boolean ignoreUnknownGrants,
+            Set<String> roleIds) {
+        try {
+            List<String> existingRoles = prepareCompile(roleIds.stream().map(k -> playbookModel.roles().get(k)).toList());
+            return Metrics.timer(COMPILE_PHASE_TIMER, "phase", "compile_roles").record(() ->
+                forkJoinPool.submit(() ->
+                    roleIds.parallelStream()
+                        .map(k -> compilePlaybookRoleChanges(k, playbookModel, existingRoles, ignoreUnknownGrants))
+                        .filter(CompiledChanges::containsChanges)
+                        .sorted(Comparator.comparing(CompiledChanges::roleName)).toList()
+                ).join());
+        } finally {
+            finishCompile();
+        }
+    }
+
+    @Override
+    public Map<String, String> databaseVersions(Set<String> databaseNames) {
+        return Metrics.timer(COMPILE_PHASE_TIMER, "phase", "database_versions").record(() -> {
+            Map<String, CompletableFuture<String>> futures = new TreeMap<>();
+            // Resolved up front so that the parallel lookups below do not each list the databases of the account.
+            snowflakeObjectsService.existingDatabases(databaseNames).forEach(databaseName -> futures.put(
+                    databaseName,
+                    CompletableFuture.supplyAsync(() -> snowflakeObjectsService.databaseVersion(databaseName), ioExecutor)));
+            Map<String, String> databaseVersions = new TreeMap<>();
+            futures.forEach((databaseName, future) -> {
+                String version = joinUnwrapped(future);
+                if (version != null) {
+                    databaseVersions.put(databaseName, version);
+                }
+            });
+            return databaseVersions;
+        });
+    }
+
+    /*
+    Roles are compiled in parallel in windows of a few roles per thread and handed to the consumer in role name order
+    once their window is done. Only one window of changes is held in memory at a time.
+     */
+    @Override
+    public void compileChanges(
+            PlaybookModel playbookModel,
+            Boolean ignoreUnknownGrants,
+            Consumer<CompiledChanges> consumer) {
+        try {
+            List<String> existingRoles = prepareCompile(playbookModel.roles().values());
+            List<String> roleIds = playbookModel.roles().keySet().stream()
+                    .sorted(Comparator.comparing(k -> playbookModel.roles().get(k).name()))
+                    .toList();
+            int windowSize = Math.max(1, forkJoinPool.getParallelism() * STREAMING_ROLES_PER_THREAD);
+            Metrics.timer(COMPILE_PHASE_TIMER, "phase", "compile_roles").run(() -> {
+                for (List<String> window : Lists.partition(roleIds, windowSize)) {
+                    List<CompiledChanges> windowChanges = forkJoinPool.submit(() ->
+                        window.parallelStream()
+                            .map(k -> compilePlaybookRoleChanges(k, playbookModel, existingRoles, ignoreUnknownGrants))
+                            .filter(CompiledChanges::containsChanges)
+                            .toList()
+                    ).join();
+                    windowChanges.forEach(consumer);
+                }
+            });
+        } finally {
+            finishCompile();
+        }
+    }
+
+    /*
+    By default the object caches are cleared at the start of every compile. A long running process can keep them
+    between compiles for a while instead, until they are too old or are invalidated.
+     */
+    @Override
+    public void retainCaches(Duration maxAge) {
+        this.cacheMaxAge = maxAge;
+    }
+
+    @Override
+    public void invalidateCaches() {
+        log.debug("Invalidating caches.");
+        this.cacheLoaded = false;
+    }
+
+    private boolean cacheIsFresh() {
+        Duration maxAge = cacheMaxAge;
+        return maxAge != null && cacheLoaded && System.nanoTime() - cacheLoadedNanos < maxAge.toNanos();
+    }
+
+    private List<String> prepareCompile(Collection<PlaybookRoleModel> roles) {
         log.debug("Compiling changes.");
-        this.snowflakeObjectsService.clearCache();
-        List<String> existingRoles = snowflakeObjectsService.getContainerObjectQualNames(
-                SnowflakeObjectType.ACCOUNT,
-                SnowflakeObjectType.ROLE,
-                "");
-        return forkJoinPool.submit(() -> 
-            playbookModel.roles().keySet().parallelStream().map(k -> this.compileRoleChanges(
-                    k,
-                    playbookModel.roles().get(k),
-                    existingRoles,
-                    consolidateWildcardGrantsToAll,
-                    playbookModel,
-                    ignoreUnknownGrants)).filter(CompiledChanges::containsChanges)
-            .sorted(Comparator.comparing(CompiledChanges::roleName)).toList()
-        ).join();
+        if (cacheIsFresh()) {
+            log.debug("Reusing object caches.");
+        } else {
+            this.snowflakeObjectsService.clearCache();
+            Metrics.timer(COMPILE_PHASE_TIMER, "phase", "prefetch_inventory").run(() ->
+                this.snowflakeObjectsService.prefetchInventory(
+                        roles.stream()
+                                .flatMap(role -> role.grants().stream())
+                                .map(PlaybookPrivilegeGrant::databaseName)
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.toSet()),
+                        ioExecutor));
+            cacheLoadedNanos = System.nanoTime();
+            cacheLoaded = true;
+        }
+        List<String> existingRoles = Metrics.timer(COMPILE_PHASE_TIMER, "phase", "list_roles").record(() ->
+            snowflakeObjectsService.getContainerObjectQualNames(
+                    SnowflakeObjectType.ACCOUNT,
+                    SnowflakeObjectType.ROLE,
+                    ""));
+        Metrics.timer(COMPILE_PHASE_TIMER, "phase", "grant_snapshot").run(() ->
+            this.snowflakeGrantsService.loadGrantSnapshot(roles.stream()
+                    .map(PlaybookRoleModel::name)
+                    .filter(roleName -> existingRoles.contains(roleName.toUpperCase()))
+                    .toList()));
+        return existingRoles;
+    }
+
+    private CompiledChanges compilePlaybookRoleChanges(
+            String roleId,
+            PlaybookModel playbookModel,
+            List<String> existingRoles,
+            Boolean ignoreUnknownGrants) {
+        Boolean consolidateWildcardGrantsToAll = false;
+        return compileRoleChanges(
+                roleId,
+                playbookModel.roles().get(roleId),
+                existingRoles,
+                consolidateWildcardGrantsToAll,
+                playbookModel,
+                ignoreUnknownGrants);
+    }
+
+    /*
+    The filters of the playbook being compiled. Every role of a compile is compiled against the same playbook model, so
+    the filters are built by the first role and reused by the rest.
+     */
+    private PlaybookFilters playbookFilters(PlaybookModel playbookModel) {
+        PlaybookFilters filters = playbookFilters;
+        if (filters == null || filters.playbookModel() != playbookModel) {
+            synchronized (this) {
+                filters = playbookFilters;
+                if (filters == null || filters.playbookModel() != playbookModel) {
+                    filters = new PlaybookFilters(
+                            playbookModel,
+                            new SnowflakeObjectExistsFilter(snowflakeObjectsService, playbookModel),
+                            SnowflakeOwnedObjectIndex.of(playbookModel));
+                    playbookFilters = filters;
+                }
+            }
+        }
+        return filters;
+    }
+
+    /*
+    Called when a compile ends, whether or not it succeeded. The grant snapshot is only valid for the compile that
+    loaded it.
+     */
+    private void finishCompile() {
+        this.snowflakeGrantsService.clearGrantSnapshot();
+        Metrics.timer(COMPILE_PHASE_TIMER, "phase", "save_state_cache").run(
+            this.snowflakeObjectsService::saveStateCache);
+        log.debug(
+                "Object name cache hits {} misses {}.",
+                SqlObjectCache.hitCount(),
+                SqlObjectCache.missCount());
     }
 
     @Override
     public void applyPrivilegeChanges(List<CompiledChanges> compiledChanges) {
         log.info("Applying privilege changes for {} roles.", compiledChanges.size());
+        long statementsBefore = SnowflakeStatementsService.STATEMENTS_APPLIED.count();
+        long start = System.nanoTime();
         forkJoinPool.submit(() -> 
             compiledChanges.parallelStream().forEach(this::applyPrivilegeChangesToRole)
         ).join();
+        long elapsedNanos = System.nanoTime() - start;
+        Metrics.timer(APPLY_PHASE_TIMER, "phase", "privileges").record(elapsedNanos);
+        long statementsApplied = SnowflakeStatementsService.STATEMENTS_APPLIED.count() - statementsBefore;
+        Metrics.gauge(
+                "apply.statements_per_second",
+                elapsedNanos > 0 ? statementsApplied / (elapsedNanos / 1e9) : 0.0);
     }
 
     public void applyPrivilegeChangesToRole(CompiledChanges compiledChanges) {
+        Metrics.timer("apply.role", "role", compiledChanges.roleName())
+                .run(() -> applyPrivilegeChangesToRoleUntimed(compiledChanges));
+    }
+
+    private void applyPrivilegeChangesToRoleUntimed(CompiledChanges compiledChanges) {
         log.info("Applying {} ownership grants and {} non-ownership grants for role {}",
             compiledChanges.ownershipGrantStatements().size(),
             compiledChanges.roleGrantStatements().size(),
@@ -112,30 +380,38 @@ public class SnowflakeProvider implements Provider {
             if (!compiledChanges.ownershipGrantStatements().isEmpty()) {
                 log.info("Applying {} ownership grants for role {}", 
                     compiledChanges.ownershipGrantStatements().size(), compiledChanges.roleName());
-                forkJoinPool.submit(() -> 
-                    compiledChanges.ownershipGrantStatements().parallelStream().forEach(snowflakeStatementsService::applyStatements)
-                ).join();
+                applyGrantStatements(compiledChanges.ownershipGrantStatements());
             }
             
             // Then, run the rest of the grants in parallel
             if (!compiledChanges.roleGrantStatements().isEmpty()) {
                 log.info("Applying {} non-ownership grants for role {}",
                     compiledChanges.roleGrantStatements().size(), compiledChanges.roleName());
-                forkJoinPool.submit(() -> 
-                    compiledChanges.roleGrantStatements().parallelStream().forEach(snowflakeStatementsService::applyStatements)
-                ).join();
+                applyGrantStatements(compiledChanges.roleGrantStatements());
             }
         } catch (DatabaseError e) {
             log.error("Unable to apply privileges to role {} due to database error.", compiledChanges.roleName(), e);
         }
     }
 
+    private void applyGrantStatements(List<List<String>> grantStatements) {
+        int statementBatchSize = snowflakeStatementsService.getStatementBatchSize();
+        if (statementBatchSize > 1) {
+            List<List<List<String>>> batches = SnowflakeStatementsService.batchStatementGroups(
+                    grantStatements,
+                    statementBatchSize);
+            log.debug("Applying {} grants in {} batches.", grantStatements.size(), batches.size());
+            forEachOnIoExecutor(batches, snowflakeStatementsService::applyStatementBatch);
+        } else {
+            forEachOnIoExecutor(grantStatements, snowflakeStatementsService::applyStatements);
+        }
+    }
+
     @Override
     public void applyRolesChanges(List<CompiledChanges> compiledChanges) {
         log.info("Applying {} role changes.", compiledChanges.size());
-        forkJoinPool.submit(() -> 
-            compiledChanges.parallelStream().forEach(this::applyRoleChanges)
-        ).join();
+        Metrics.timer(APPLY_PHASE_TIMER, "phase", "roles")
+                .run(() -> forEachOnIoExecutor(compiledChanges, this::applyRoleChanges));
     }
 
     @Override
@@ -145,10 +421,7 @@ public class SnowflakeProvider implements Provider {
                 throw new RbacDataError(String.format("Role %s not found", roleName));
             }
         }
-        return forkJoinPool.submit(() -> 
-            roleNames.parallelStream().map(this::importRole).sorted(Comparator.comparing(PlaybookRoleModel::name))
-                .toList()
-        ).join();
+        return importRolesOnIoExecutor(roleNames);
     }
 
     @Override
@@ -159,10 +432,17 @@ public class SnowflakeProvider implements Provider {
                 "");
         List<String> filteredRoles = existingRoleNames.stream().filter(s -> rolePatterns.stream()
                 .anyMatch(p -> p.matcher(s.toLowerCase()).find() || p.matcher(s.toUpperCase()).find())).toList();
-        return forkJoinPool.submit(() -> 
-            filteredRoles.parallelStream().map(this::importRole).toList().stream()
-                .sorted(Comparator.comparing(PlaybookRoleModel::name)).toList()
-        ).join();
+        return importRolesOnIoExecutor(filteredRoles);
+    }
+
+    private List<PlaybookRoleModel> importRolesOnIoExecutor(List<String> roleNames) {
+        List<CompletableFuture<PlaybookRoleModel>> futures = roleNames.stream()
+                .map(roleName -> CompletableFuture.supplyAsync(() -> importRole(roleName), ioExecutor))
+                .toList();
+        return futures.stream()
+                .map(SnowflakeProvider::joinUnwrapped)
+                .sorted(Comparator.comparing(PlaybookRoleModel::name))
+                .toList();
     }
 
     @Override
@@ -196,6 +476,7 @@ public class SnowflakeProvider implements Provider {
             Boolean consolidateWildcardsToAllGrants,
             PlaybookModel playbookModel,
             Boolean ignoreUnknownGrants) {
+        long start = System.nanoTime();
         log.info("Compiling changes for role {}", role.name());
         Boolean roleExists = existingRoles.contains(role.name().toUpperCase());
         List<String> roleCreationStatements = new ArrayList<>();
@@ -236,6 +517,9 @@ public class SnowflakeProvider implements Provider {
         
         log.debug("{} ownership statements and {} non-ownership statements planned for role {}",
             ownershipGrantStatements.size(), nonOwnershipGrantStatements.size(), role.name());
+        long elapsed = System.nanoTime() - start;
+        compileRoleTimer.record(elapsed);
+        log.debug("Compiled role {} in {} ms.", role.name(), TimeUnit.NANOSECONDS.toMillis(elapsed));
         return new CompiledChanges(roleId, role.name(), ownershipGrantStatements, roleCreationStatements, nonOwnershipGrantStatements);
     }
 
@@ -252,16 +536,20 @@ public class SnowflakeProvider implements Provider {
             SnowflakeGrantBuilderOptions options = new SnowflakeGrantBuilderOptions();
             options.setSuppressErrors(ignoreUnknownGrants);
             options.setUnsupportedRevokeBehavior(unsupportedRevokeBehavior);
-            Map<String, SnowflakeGrantBuilder> desiredGrantBuilders = forkJoinPool.submit(() -> 
-                privilegeGrants.parallelStream()
-                    .flatMap(x -> desiredGrantsCompiler.compileGrants(x, roleName, options).stream())
-                    .collect(Collectors.toMap(SnowflakeGrantBuilder::getKey, x -> x, (x0, x1) -> x0))
-            ).join();
+            Map<String, SnowflakeGrantBuilder> desiredGrantBuilders = Metrics.timer(COMPILE_STAGE_TIMER, "stage", "desired_grants").record(() ->
+                forkJoinPool.submit(() ->
+                    privilegeGrants.parallelStream()
+                        .flatMap(x -> desiredGrantsCompiler.compileGrants(x, roleName, options).stream())
+                        .collect(Collectors.toMap(SnowflakeGrantBuilder::getKey, x -> x, (x0, x1) -> x0))
+                ).join());
+            // The evaluator of the check indexes the playbook grants of the role and is used again for the revokes.
+            GrantRevocationEvaluator revocationEvaluator;
             try {
-                GrantRevokeConsistencyChecker.check(
-                        privilegeGrants,
-                        desiredGrantBuilders,
-                        roleName);
+                revocationEvaluator = Metrics.timer(COMPILE_STAGE_TIMER, "stage", "consistency_check").record(() ->
+                    GrantRevokeConsistencyChecker.verifiedEvaluator(
+                            privilegeGrants,
+                            desiredGrantBuilders.values(),
+                            roleName));
             } catch (RbacDataError e) {
                 throw new RbacDataError(
                         String.format(
@@ -273,43 +561,45 @@ public class SnowflakeProvider implements Provider {
                                 e.getMessage()),
                         e);
             }
-            Map<String, SnowflakeGrantBuilder> currentGrantBuilders = new HashMap<>();
+            SnowflakeGrantStore currentGrants = new SnowflakeGrantStore(ignoreUnknownGrants);
             if (roleExists) {
                 log.debug("Role exists so we are going to get the current grants.");
-                currentGrantBuilders = this.snowflakeGrantsService.getGrants(
-                        roleName,
-                        !revokeOtherGrants || ignoreUnknownGrants);
-                log.debug("Found {} existing grants.", currentGrantBuilders.size());
+                Boolean skipUnknownGrantTypes = !revokeOtherGrants || ignoreUnknownGrants;
+                currentGrants = Metrics.timer(COMPILE_STAGE_TIMER, "stage", "existing_grants").record(() ->
+                    onIoExecutor(() -> this.snowflakeGrantsService.getGrantStore(
+                            roleName,
+                            skipUnknownGrantTypes)));
+                log.debug("Found {} existing grants.", currentGrants.size());
             } else {
                 log.debug("Role does not exist. We will not look up existing roles.");
             }
-            MapDifference<String, SnowflakeGrantBuilder> diff = Maps.difference(
-                    currentGrantBuilders,
-                    desiredGrantBuilders);
+            SnowflakeGrantStore finalCurrentGrants = currentGrants;
+            SnowflakeGrantDiff diff = Metrics.timer(COMPILE_STAGE_TIMER, "stage", "diff").record(() ->
+                SnowflakeGrantDiff.of(finalCurrentGrants, desiredGrantBuilders.values()));
+            log.debug("{} desired grants are missing and {} existing grants are not desired for role {}",
+                    diff.added().size(), diff.removedCount(), roleName);
             List<SnowflakeGrantBuilder> revokeGrantBuilders = new ArrayList<>();
             if (revokeOtherGrants) {
                 // Use SnowflakeRevokeGrantsCompiler to identify grants that should be revoked.
                 // This compares current grants against playbook privilege grants to find grants
                 // that are not allowed by the playbook.
-                List<SnowflakeGrantBuilder> grantsToRevoke = SnowflakeRevokeGrantsCompiler
-                        .compileRevokeGrants(privilegeGrants, currentGrantBuilders).stream().toList();
+                List<SnowflakeGrantBuilder> grantsToRevoke = Metrics.timer(COMPILE_STAGE_TIMER, "stage", "revoke_compile").record(() ->
+                    SnowflakeRevokeGrantsCompiler.compileRevokeGrants(revocationEvaluator, finalCurrentGrants));
                 revokeGrantBuilders.addAll(grantsToRevoke);
             }
-            List<SnowflakeGrantBuilder> grantBuilders = diff.entriesOnlyOnRight().values().stream()
-                    .sorted(Comparator.comparing(SnowflakeGrantBuilder::getKey)).toList();
-
-            GrantBuilderDiff grantBuilderDiff = new GrantBuilderDiff(grantBuilders, revokeGrantBuilders);
-            grantBuilderDiff = SnowflakeObjectExistsFilter.objectExistsGrantBuilderDiffFilter(
-                    grantBuilderDiff,
-                    snowflakeObjectsService,
-                    playbookModel);
+
+            long filterStart = System.nanoTime();
+            GrantBuilderDiff grantBuilderDiff = new GrantBuilderDiff(diff.added(), revokeGrantBuilders);
+            PlaybookFilters filters = playbookFilters(playbookModel);
+            grantBuilderDiff = filters.objectExistsFilter().filterDiff(grantBuilderDiff);
             if (consolidateWildcardsToAllGrants) {
                 grantBuilderDiff = SnowflakeWildcardAllGrantFilter.consolidateWildcardAllGrantBuilders(
                         grantBuilderDiff,
                         privilegeGrants,
                         roleName);
             }
-            grantBuilderDiff = SnowflakeOwnedObjectFilter.filterDiff(grantBuilderDiff, playbookModel);
+            grantBuilderDiff = SnowflakeOwnedObjectFilter.filterDiff(grantBuilderDiff, filters.ownedObjectIndex());
+            Metrics.timer(COMPILE_STAGE_TIMER, "stage", "filters").record(System.nanoTime() - filterStart);
             PartitionedGrantStatements partitionedGrantStatements = partitionGrantsByOwnership(grantBuilderDiff);
             log.debug("{} ownership grant changes and {} non-ownership changes planned for role {}",
                     partitionedGrantStatements.ownershipStatements().size(),
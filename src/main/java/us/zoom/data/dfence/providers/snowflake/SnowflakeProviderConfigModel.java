@@ -1,9 +1,20 @@
 package us.zoom.data.dfence.providers.snowflake;
 
 import lombok.Data;
+import us.zoom.data.dfence.sql.SqlObjectCache;
 
 @Data
 public class SnowflakeProviderConfigModel {
+    public static final int DEFAULT_GRANT_SNAPSHOT_MAX_LAG_MINUTES = 120;
+    public static final int DEFAULT_STATE_CACHE_MAX_AGE_MINUTES = 1440;
+
     private String connectionString;
     private SnowflakeConnectionProperties connectionProperties;
+    private long objectNameCacheSize = SqlObjectCache.DEFAULT_MAXIMUM_SIZE;
+    private boolean grantSnapshot = false;
+    private int grantSnapshotMaxLagMinutes = DEFAULT_GRANT_SNAPSHOT_MAX_LAG_MINUTES;
+    private boolean inventoryPrefetch = false;
+    private String stateCacheFile;
+    private int stateCacheMaxAgeMinutes = DEFAULT_STATE_CACHE_MAX_AGE_MINUTES;
+    private int statementBatchSize = SnowflakeStatementsService.DEFAULT_STATEMENT_BATCH_SIZE;
 }
@@ -2,42 +2,151 @@ package us.zoom.data.dfence.providers.snowflake;
 
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
+import net.snowflake.client.jdbc.SnowflakeStatement;
 import us.zoom.data.dfence.exception.DatabaseError;
+import us.zoom.data.dfence.metrics.Counter;
+import us.zoom.data.dfence.metrics.Metrics;
+import us.zoom.data.dfence.metrics.Timer;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Slf4j
 @EqualsAndHashCode
 public class SnowflakeStatementsService {
+    public static final int DEFAULT_STATEMENT_BATCH_SIZE = 1;
+
+    public static final Counter STATEMENTS_APPLIED = Metrics.counter("statements.applied");
+
+    private static final Timer statementTimer = Metrics.timer("snowflake.statement", "mode", "single");
+
+    private static final Timer batchTimer = Metrics.timer("snowflake.statement", "mode", "batch");
+
     private final SnowflakeConnectionService snowflakeConnectionService;
+    private final int statementBatchSize;
 
     public SnowflakeStatementsService(
             SnowflakeConnectionService snowflakeConnectionService) {
+        this(snowflakeConnectionService, DEFAULT_STATEMENT_BATCH_SIZE);
+    }
+
+    public SnowflakeStatementsService(
+            SnowflakeConnectionService snowflakeConnectionService,
+            int statementBatchSize) {
+        if (statementBatchSize < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Statement batch size must be at least 1 but was %s.",
+                    statementBatchSize));
+        }
         this.snowflakeConnectionService = snowflakeConnectionService;
+        this.statementBatchSize = statementBatchSize;
     }
 
     @Override
     public String toString() {
-        return "SnowflakeStatementsService{" + "snowflakeConnectionService=" + snowflakeConnectionService + '}';
+        return "SnowflakeStatementsService{" + "snowflakeConnectionService=" + snowflakeConnectionService
+                + ", statementBatchSize=" + statementBatchSize + '}';
+    }
+
+    public int getStatementBatchSize() {
+        return statementBatchSize;
     }
 
     public void applyStatements(List<String> statements) {
         try (Connection connection = snowflakeConnectionService.connection()) {
             statements.forEach(statementString -> {
-                try {
-                    log.debug("Executing Statement: {}", statementString);
-                    Statement statement = connection.createStatement();
+                log.debug("Executing Statement: {}", statementString);
+                long start = System.nanoTime();
+                try (Statement statement = connection.createStatement()) {
                     statement.execute(statementString);
+                    STATEMENTS_APPLIED.increment();
                 } catch (SQLException e) {
                     throw new DatabaseError(String.format("Unable to execute statement %s", statementString), e);
+                } finally {
+                    statementTimer.record(System.nanoTime() - start);
                 }
             });
         } catch (SQLException e) {
             throw new DatabaseError("Unable to connect to Snowflake.", e);
         }
+    }
+
+    /*
+    Group the statement lists of many grants into batches of at most the batch size statements. The statements of one
+    grant are never split across batches so that they still run in order on one connection. A grant with more
+    statements than the batch size gets a batch of its own.
+     */
+    public static List<List<List<String>>> batchStatementGroups(List<List<String>> statementGroups, int batchSize) {
+        List<List<List<String>>> batches = new ArrayList<>();
+        List<List<String>> currentBatch = new ArrayList<>();
+        int currentSize = 0;
+        for (List<String> statementGroup : statementGroups) {
+            if (statementGroup.isEmpty()) {
+                continue;
+            }
+            if (!currentBatch.isEmpty() && currentSize + statementGroup.size() > batchSize) {
+                batches.add(currentBatch);
+                currentBatch = new ArrayList<>();
+                currentSize = 0;
+            }
+            currentBatch.add(statementGroup);
+            currentSize += statementGroup.size();
+        }
+        if (!currentBatch.isEmpty()) {
+            batches.add(currentBatch);
+        }
+        return batches;
+    }
+
+    /*
+    Apply the statements of several grants in one multi statement request. Snowflake stops a multi statement request at
+    the first failure without telling which statement failed, so when the request fails the grants of the batch are
+    applied again one statement at a time. Grant and revoke statements are idempotent, which makes repeating the ones
+    that already succeeded harmless, and the error that is finally raised names the statement that failed.
+     */
+    public void applyStatementBatch(List<List<String>> statementGroups) {
+        List<String> statements = statementGroups.stream().flatMap(List::stream).toList();
+        if (statements.isEmpty()) {
+            return;
+        }
+        if (statements.size() == 1) {
+            applyStatements(statements);
+            return;
+        }
+        String batchString = statements.stream()
+                .map(SnowflakeStatementsService::terminatedStatement)
+                .collect(Collectors.joining("\n"));
+        try (Connection connection = snowflakeConnectionService.connection()) {
+            log.debug("Executing batch of {} statements: {}", statements.size(), batchString);
+            long start = System.nanoTime();
+            try (Statement statement = connection.createStatement()) {
+                statement.unwrap(SnowflakeStatement.class).setParameter("MULTI_STATEMENT_COUNT", statements.size());
+                statement.execute(batchString);
+                while (statement.getMoreResults()) {
+                    log.trace("Consumed result of batched statement.");
+                }
+                STATEMENTS_APPLIED.increment(statements.size());
+                return;
+            } catch (SQLException e) {
+                log.warn(
+                        "Batch of {} statements failed. Applying the statements one at a time to find the failure.",
+                        statements.size(),
+                        e);
+            } finally {
+                batchTimer.record(System.nanoTime() - start);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseError("Unable to connect to Snowflake.", e);
+        }
+        statementGroups.forEach(this::applyStatements);
+    }
 
+    private static String terminatedStatement(String statement) {
+        String trimmed = statement.strip();
+        return trimmed.endsWith(";") ? trimmed : trimmed + ";";
     }
 }
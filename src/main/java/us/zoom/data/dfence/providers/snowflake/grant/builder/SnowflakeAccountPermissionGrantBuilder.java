@@ -62,10 +62,14 @@ public class SnowflakeAccountPermissionGrantBuilder extends SnowflakeGrantBuilde
 
     public SnowflakeAccountPermissionGrantBuilder(SnowflakeGrantModel grant, SnowflakeGrantBuilderOptions options) {
         this.options = options;
+        this.grant = maskAccountName(grant);
+    }
+
+    public static SnowflakeGrantModel maskAccountName(SnowflakeGrantModel grant) {
         // The account name parameter is not used in any of the grant statements and we
         // don't want to need to know it. We mask it out. This matters for key creation
         // with the getKey method.
-        this.grant = new SnowflakeGrantModel(
+        return new SnowflakeGrantModel(
                 grant.privilege(),
                 grant.grantedOn(),
                 "",
@@ -6,12 +6,116 @@ import us.zoom.data.dfence.playbook.model.PlaybookPrivilegeGrant;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.options.SnowflakeGrantBuilderOptions;
 import us.zoom.data.dfence.providers.snowflake.models.GrantValidationDefinition;
 import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
-import us.zoom.data.dfence.sql.ObjectName;
 
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
 
 @Slf4j
 public abstract class SnowflakeGrantBuilder {
+    private enum GrantKind {
+        STANDARD, FUTURE, ALL
+    }
+
+    private record BuilderFactory(
+            GrantKind grantKind,
+            BiFunction<SnowflakeGrantModel, SnowflakeGrantBuilderOptions, SnowflakeGrantBuilder> constructor) {
+    }
+
+    /*
+    The builders in the order they are tried. The first builder that is valid for a grant is the one that is used.
+     */
+    private static final List<BuilderFactory> builderFactories = List.of(
+            new BuilderFactory(GrantKind.STANDARD, SnowflakeRoleGrantBuilder::new),
+            new BuilderFactory(GrantKind.STANDARD, SnowflakePermissionGrantBuilder::new),
+            new BuilderFactory(GrantKind.STANDARD, SnowflakeOwnershipGrantBuilder::new),
+            new BuilderFactory(GrantKind.STANDARD, SnowflakeAccountPermissionGrantBuilder::new),
+            new BuilderFactory(GrantKind.STANDARD, SnowflakeMLPermissionGrantBuilder::new),
+            new BuilderFactory(GrantKind.STANDARD, SnowflakeCorePermissionGrantBuilder::new),
+            new BuilderFactory(GrantKind.FUTURE, SnowflakeFuturePermissionGrantBuilder::new),
+            new BuilderFactory(GrantKind.FUTURE, SnowflakeFutureMLPermissionGrantBuilder::new),
+            new BuilderFactory(GrantKind.FUTURE, SnowflakeFutureCorePermissionGrantBuilder::new),
+            new BuilderFactory(GrantKind.FUTURE, SnowflakeFutureOwnershipGrantBuilder::new),
+            new BuilderFactory(GrantKind.STANDARD, SnowflakeDatabaseRoleGrantBuilder::new),
+            new BuilderFactory(GrantKind.ALL, SnowflakeAllPermissionGrantBuilder::new),
+            new BuilderFactory(GrantKind.ALL, SnowflakeAllOwnershipGrantBuilder::new),
+            new BuilderFactory(GrantKind.ALL, SnowflakeAllMLPermissionGrantBuilder::new),
+            new BuilderFactory(GrantKind.ALL, SnowflakeAllCorePermissionGrantBuilder::new),
+            new BuilderFactory(GrantKind.STANDARD, SnowflakeUnsupportedOwnershipManagementGrantBuilder::new));
+
+    /*
+    The first valid builder for each kind of grant, object type and privilege, worked out once from the valid
+    combinations of the builders. A grant then costs two map lookups and one builder instead of a builder and a scan of
+    the valid combinations for every builder.
+
+    The table is in its own class so that it is built on first use. Building it needs the valid combinations of every
+    builder, which are not set yet while this class is initialized because a builder subclass was loaded first.
+     */
+    private static final class DispatchTable {
+        private static final Map<GrantKind, Map<SnowflakeObjectType, Map<String, BuilderFactory>>> table = build();
+
+        private static Map<GrantKind, Map<SnowflakeObjectType, Map<String, BuilderFactory>>> build() {
+            Map<GrantKind, Map<SnowflakeObjectType, Map<String, BuilderFactory>>> table = new EnumMap<>(GrantKind.class);
+            for (GrantKind grantKind : GrantKind.values()) {
+                table.put(grantKind, new EnumMap<>(SnowflakeObjectType.class));
+            }
+            // The valid combinations do not depend on the grant, so any grant will do to get them from a builder.
+            SnowflakeGrantModel probeGrant = new SnowflakeGrantModel("", "", "", "", "", false, false, false);
+            SnowflakeGrantBuilderOptions probeOptions = new SnowflakeGrantBuilderOptions();
+            for (BuilderFactory builderFactory : builderFactories) {
+                SnowflakeGrantBuilder probe = builderFactory.constructor().apply(probeGrant, probeOptions);
+                for (GrantValidationDefinition definition : probe.getValidCombinations()) {
+                    for (SnowflakeObjectType objectType : definition.objectTypes()) {
+                        Map<String, BuilderFactory> byPrivilege = table.get(builderFactory.grantKind())
+                                .computeIfAbsent(objectType, x -> new HashMap<>());
+                        for (String privilege : definition.privileges()) {
+                            byPrivilege.putIfAbsent(privilege, builderFactory);
+                        }
+                    }
+                }
+            }
+            return table;
+        }
+    }
+
+    /*
+    The builder for a grant that has been normalized to an object type name, or null when no builder is valid for it.
+     */
+    static SnowflakeGrantBuilder dispatchedBuilder(SnowflakeGrantModel grant, SnowflakeGrantBuilderOptions options) {
+        BuilderFactory builderFactory = builderFactory(SnowflakeObjectType.valueOf(grant.grantedOn()), grant);
+        return builderFactory == null ? null : builderFactory.constructor().apply(grant, options);
+    }
+
+    private static BuilderFactory builderFactory(SnowflakeObjectType objectType, SnowflakeGrantModel grant) {
+        GrantKind grantKind;
+        if (grant.future() && grant.all()) {
+            return null;
+        } else if (grant.future()) {
+            grantKind = GrantKind.FUTURE;
+        } else if (grant.all()) {
+            grantKind = GrantKind.ALL;
+        } else {
+            grantKind = GrantKind.STANDARD;
+        }
+        Map<String, BuilderFactory> byPrivilege = DispatchTable.table.get(grantKind).get(objectType);
+        return byPrivilege == null ? null : byPrivilege.get(grant.privilege());
+    }
+
+    /*
+    The builder for a grant found by trying every builder in order. This is what the dispatch table is built to agree
+    with.
+     */
+    static SnowflakeGrantBuilder firstValidBuilder(SnowflakeGrantModel grant, SnowflakeGrantBuilderOptions options) {
+        for (BuilderFactory builderFactory : builderFactories) {
+            SnowflakeGrantBuilder builder = builderFactory.constructor().apply(grant, options);
+            if (builder.isValid()) {
+                return builder;
+            }
+        }
+        return null;
+    }
 
     public static SnowflakeGrantBuilder fromGrant(SnowflakeGrantModel grant) {
         return fromGrant(grant, new SnowflakeGrantBuilderOptions());
@@ -27,10 +131,43 @@ public abstract class SnowflakeGrantBuilder {
             SnowflakeGrantModel grant,
             SnowflakeGrantBuilderOptions options
     ) {
-        SnowflakeObjectType objectType;
-        try {
-            objectType = SnowflakeObjectType.fromString(grant.grantedOn());
+        SnowflakeObjectType objectType = objectType(grant, options);
+        if (objectType == null) {
+            return null;
+        }
+        SnowflakeGrantModel normalizedGrant = normalizedGrant(grant, objectType);
+        SnowflakeGrantBuilder builder = dispatchedBuilder(normalizedGrant, options);
+        if (builder == null) {
+            noCompatibleBuilder(normalizedGrant, options);
+        }
+        return builder;
+    }
+
+    public static Boolean hasBuilder(SnowflakeGrantModel grant, Boolean suppressErrors) {
+        SnowflakeGrantBuilderOptions options = new SnowflakeGrantBuilderOptions();
+        options.setSuppressErrors(suppressErrors);
+        return hasBuilder(grant, options);
+    }
 
+    /*
+    Whether fromGrant would return a builder for the grant, without creating the builder. Errors are raised or logged
+    the same way as by fromGrant.
+     */
+    public static Boolean hasBuilder(SnowflakeGrantModel grant, SnowflakeGrantBuilderOptions options) {
+        SnowflakeObjectType objectType = objectType(grant, options);
+        if (objectType == null) {
+            return false;
+        }
+        if (builderFactory(objectType, grant) == null) {
+            noCompatibleBuilder(normalizedGrant(grant, objectType), options);
+            return false;
+        }
+        return true;
+    }
+
+    private static SnowflakeObjectType objectType(SnowflakeGrantModel grant, SnowflakeGrantBuilderOptions options) {
+        try {
+            return SnowflakeObjectType.fromString(grant.grantedOn());
         } catch (IllegalArgumentException e) {
             String msg = String.format("Invalid object type %s", grant.grantedOn());
             NoGrantBuilderError err = new NoGrantBuilderError(msg, e);
@@ -40,44 +177,27 @@ public abstract class SnowflakeGrantBuilder {
             }
             throw err;
         }
+    }
+
+    private static SnowflakeGrantModel normalizedGrant(SnowflakeGrantModel grant, SnowflakeObjectType objectType) {
         // ToDo: We should really convert to object type once and use it in the rest of the app.
-        SnowflakeGrantModel normalizedGrant = new SnowflakeGrantModel(
+        return SnowflakeGrantModel.withQualifiedName(
                 grant.privilege(),
                 objectType.name(),
-                grant.name(),
+                grant.qualifiedName(),
                 grant.grantedTo(),
                 grant.granteeName(),
                 grant.grantOption(),
                 grant.future(),
-                grant.all()
-        );
-        SnowflakeGrantBuilder[] snowflakeGrantBuilders = new SnowflakeGrantBuilder[]{
-                new SnowflakeRoleGrantBuilder(normalizedGrant, options),
-                new SnowflakePermissionGrantBuilder(normalizedGrant, options),
-                new SnowflakeOwnershipGrantBuilder(normalizedGrant, options),
-                new SnowflakeAccountPermissionGrantBuilder(normalizedGrant, options),
-                new SnowflakeMLPermissionGrantBuilder(normalizedGrant, options),
-                new SnowflakeCorePermissionGrantBuilder(normalizedGrant, options),
-                new SnowflakeFuturePermissionGrantBuilder(normalizedGrant, options),
-                new SnowflakeFutureMLPermissionGrantBuilder(normalizedGrant, options),
-                new SnowflakeFutureCorePermissionGrantBuilder(normalizedGrant, options),
-                new SnowflakeFutureOwnershipGrantBuilder(normalizedGrant, options),
-                new SnowflakeDatabaseRoleGrantBuilder(normalizedGrant, options),
-                new SnowflakeAllPermissionGrantBuilder(normalizedGrant, options),
-                new SnowflakeAllOwnershipGrantBuilder(normalizedGrant, options),
-                new SnowflakeAllMLPermissionGrantBuilder(normalizedGrant, options),
-                new SnowflakeAllCorePermissionGrantBuilder(normalizedGrant, options),
-                new SnowflakeUnsupportedOwnershipManagementGrantBuilder(normalizedGrant, options)};
-        for (SnowflakeGrantBuilder builder : snowflakeGrantBuilders) {
-            if (builder.isValid()) {
-                return builder;
-            }
-        }
+                grant.all());
+    }
+
+    private static void noCompatibleBuilder(SnowflakeGrantModel normalizedGrant, SnowflakeGrantBuilderOptions options) {
         String msg = String.format("No compatible grant builder found for grant %s", normalizedGrant);
         NoGrantBuilderError err = new NoGrantBuilderError(msg);
         if (options.getSuppressErrors()) {
             log.warn(msg, err);
-            return null;
+            return;
         }
         throw err;
     }
@@ -96,7 +216,7 @@ public abstract class SnowflakeGrantBuilder {
     public abstract SnowflakeGrantModel getGrant();
 
     public PlaybookPrivilegeGrant playbookPrivilegeGrant() {
-        List<String> parts = ObjectName.splitObjectName(this.getGrant().name());
+        List<String> parts = this.getGrant().qualifiedName().parts();
         SnowflakeObjectType snowflakeObjectType = SnowflakeObjectType.fromString(this.getGrant().grantedOn());
         String databaseName = null;
         String schemaName = null;
@@ -0,0 +1,39 @@
+package us.zoom.data.dfence.providers.snowflake.grant.store;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeObjectType;
+import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+A 128 bit hash of the fields of SnowflakeGrantBuilder.getKey. Two grants with the same key have the same fingerprint.
+Murmur3 is not collision resistant and object names come from the account, so two grants with different keys can have
+the same fingerprint. The fingerprint only narrows down where to look: SnowflakeGrantStore compares the key fields of a
+row before it treats a matching fingerprint as the same grant.
+
+The grant is the grant held by a builder, so the account name of an account grant has already been masked out.
+ */
+public record GrantFingerprint(long high, long low) {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    public static GrantFingerprint of(SnowflakeGrantModel grant) {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        putField(hasher, grant.privilege().toUpperCase());
+        putField(hasher, SnowflakeObjectType.fromString(grant.grantedOn()).getAliasFor());
+        putField(hasher, grant.name());
+        putField(hasher, grant.grantedTo().toUpperCase());
+        putField(hasher, grant.granteeName().toUpperCase());
+        hasher.putBoolean(grant.future());
+        ByteBuffer bytes = ByteBuffer.wrap(hasher.hash().asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        return new GrantFingerprint(bytes.getLong(), bytes.getLong());
+    }
+
+    // The length goes first so that the boundary between two fields cannot move without changing the hash.
+    private static void putField(Hasher hasher, String value) {
+        hasher.putInt(value.length()).putUnencodedChars(value);
+    }
+}
@@ -0,0 +1,80 @@
+package us.zoom.data.dfence.providers.snowflake.grant.store;
+
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
+import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/*
+The desired grants that a role does not have and the existing grants of the role that are not desired, worked out in
+one pass over the desired grants. Each desired grant is hashed once to its GrantFingerprint and looked up in the store
+of existing grants, which confirms the key fields of a match. Nothing is built for the grants that are both existing
+and desired, which is most of them.
+
+Desired grants with the same key are added once, compared by their key rather than their fingerprint. The grants to add are sorted by key, which is computed once for each
+of them.
+ */
+public final class SnowflakeGrantDiff {
+    private final List<SnowflakeGrantBuilder> added;
+
+    private final SnowflakeGrantStore current;
+
+    private final BitSet desiredRows;
+
+    private SnowflakeGrantDiff(List<SnowflakeGrantBuilder> added, SnowflakeGrantStore current, BitSet desiredRows) {
+        this.added = added;
+        this.current = current;
+        this.desiredRows = desiredRows;
+    }
+
+    private record KeyedGrantBuilder(String key, SnowflakeGrantBuilder grantBuilder) {
+    }
+
+    public static SnowflakeGrantDiff of(SnowflakeGrantStore current, Collection<SnowflakeGrantBuilder> desired) {
+        BitSet desiredRows = new BitSet(current.size());
+        Set<String> addedKeys = new HashSet<>();
+        List<KeyedGrantBuilder> added = new ArrayList<>();
+        for (SnowflakeGrantBuilder grantBuilder : desired) {
+            SnowflakeGrantModel grant = grantBuilder.getGrant();
+            int row = current.find(GrantFingerprint.of(grant), grant);
+            if (row >= 0) {
+                desiredRows.set(row);
+            } else {
+                String key = grantBuilder.getKey();
+                if (addedKeys.add(key)) {
+                    added.add(new KeyedGrantBuilder(key, grantBuilder));
+                }
+            }
+        }
+        added.sort(Comparator.comparing(KeyedGrantBuilder::key));
+        return new SnowflakeGrantDiff(
+                added.stream().map(KeyedGrantBuilder::grantBuilder).toList(),
+                current,
+                desiredRows);
+    }
+
+    /*
+    The desired grants that are not existing grants, sorted by key.
+     */
+    public List<SnowflakeGrantBuilder> added() {
+        return added;
+    }
+
+    /*
+    The rows of the store of existing grants that are not desired.
+     */
+    public IntStream removedRows() {
+        return current.rows().filter(row -> !desiredRows.get(row));
+    }
+
+    public int removedCount() {
+        return current.size() - desiredRows.cardinality();
+    }
+}
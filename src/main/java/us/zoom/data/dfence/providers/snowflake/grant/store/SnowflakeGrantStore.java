@@ -0,0 +1,253 @@
+package us.zoom.data.dfence.providers.snowflake.grant.store;
+
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeAccountPermissionGrantBuilder;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeObjectType;
+import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
+import us.zoom.data.dfence.sql.QualifiedName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/*
+The existing grants of a role kept as columns of dictionary ids instead of a map of keys to grant builders. Privileges,
+grantees and object names are stored once each and a grant is a row of ids, so a role with hundreds of thousands of
+grants holds no builder, key string or grant model for each grant. Rows are indexed by the GrantFingerprint of their
+key in an open addressing table of row numbers. A row only matches a grant when both its fingerprint and its key fields
+are the same, so grants whose fingerprints collide are kept apart. A grant with the same key as an earlier one replaces
+it, the same way that the map of grant builders keeps the last grant for a key.
+
+Grant models and builders are only created when they are asked for, which the compile does for the grants that it
+revokes.
+ */
+public class SnowflakeGrantStore {
+    private static final SnowflakeObjectType[] OBJECT_TYPES = SnowflakeObjectType.values();
+
+    private static final byte FUTURE = 1;
+    private static final byte ALL = 2;
+    private static final byte GRANT_OPTION = 4;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Boolean skipUnknownGrantTypes;
+
+    private final Dictionary strings = new Dictionary();
+    private final Dictionary names = new Dictionary();
+    private final List<QualifiedName> qualifiedNames = new ArrayList<>();
+
+    private int size = 0;
+    private int[] privilegeIds = new int[INITIAL_CAPACITY];
+    private byte[] objectTypes = new byte[INITIAL_CAPACITY];
+    private int[] nameIds = new int[INITIAL_CAPACITY];
+    private int[] grantedToIds = new int[INITIAL_CAPACITY];
+    private int[] granteeIds = new int[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    private long[] fingerprintHighs = new long[INITIAL_CAPACITY];
+    private long[] fingerprintLows = new long[INITIAL_CAPACITY];
+
+    // Row number plus one for each slot, zero for an empty slot.
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    public SnowflakeGrantStore(Boolean skipUnknownGrantTypes) {
+        this.skipUnknownGrantTypes = skipUnknownGrantTypes;
+    }
+
+    public static SnowflakeGrantStore of(Collection<SnowflakeGrantModel> grants, Boolean skipUnknownGrantTypes) {
+        SnowflakeGrantStore store = new SnowflakeGrantStore(skipUnknownGrantTypes);
+        grants.forEach(store::add);
+        return store;
+    }
+
+    /*
+    A store of the grants held by builders, for callers and tests that already have the builders.
+     */
+    public static SnowflakeGrantStore ofBuilders(Collection<SnowflakeGrantBuilder> grantBuilders) {
+        SnowflakeGrantStore store = new SnowflakeGrantStore(false);
+        grantBuilders.forEach(grantBuilder -> store.add(grantBuilder.getGrant()));
+        return store;
+    }
+
+    /*
+    Add a grant if there is a builder for it. Errors for grants without a builder are raised or logged the same way as
+    by SnowflakeGrantBuilder.fromGrant.
+     */
+    public void add(SnowflakeGrantModel grant) {
+        if (!SnowflakeGrantBuilder.hasBuilder(grant, skipUnknownGrantTypes)) {
+            return;
+        }
+        SnowflakeObjectType objectType = SnowflakeObjectType.fromString(grant.grantedOn());
+        if (objectType == SnowflakeObjectType.ACCOUNT) {
+            grant = SnowflakeAccountPermissionGrantBuilder.maskAccountName(grant);
+        }
+        add(grant, objectType, GrantFingerprint.of(grant));
+    }
+
+    /*
+    Add a grant under the given fingerprint. Tests use this to store grants whose fingerprints collide.
+     */
+    void add(SnowflakeGrantModel grant, SnowflakeObjectType objectType, GrantFingerprint fingerprint) {
+        int slot = findSlot(fingerprint, grant);
+        int row;
+        if (slots[slot] == 0) {
+            row = size++;
+            ensureCapacity();
+            // The table may have been resized, so the slot is looked up again.
+            slot = findSlot(fingerprint, grant);
+            slots[slot] = row + 1;
+        } else {
+            row = slots[slot] - 1;
+        }
+        int nameId = names.intern(grant.name());
+        if (nameId == qualifiedNames.size()) {
+            qualifiedNames.add(grant.qualifiedName());
+        }
+        privilegeIds[row] = strings.intern(grant.privilege());
+        objectTypes[row] = (byte) objectType.ordinal();
+        nameIds[row] = nameId;
+        grantedToIds[row] = strings.intern(grant.grantedTo());
+        granteeIds[row] = strings.intern(grant.granteeName());
+        flags[row] = (byte) ((grant.future() ? FUTURE : 0)
+                | (grant.all() ? ALL : 0)
+                | (grant.grantOption() ? GRANT_OPTION : 0));
+        fingerprintHighs[row] = fingerprint.high();
+        fingerprintLows[row] = fingerprint.low();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /*
+    Whether the store has a grant with the same key as the grant of the builder.
+     */
+    public boolean contains(SnowflakeGrantBuilder grantBuilder) {
+        SnowflakeGrantModel grant = grantBuilder.getGrant();
+        return find(GrantFingerprint.of(grant), grant) >= 0;
+    }
+
+    /*
+    The row of the grant with the same key as the grant, or -1 when there is none. The fingerprint must be the
+    fingerprint of the grant.
+     */
+    public int find(GrantFingerprint fingerprint, SnowflakeGrantModel grant) {
+        return slots[findSlot(fingerprint, grant)] - 1;
+    }
+
+    public SnowflakeGrantModel grant(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException(String.format("Row %s is not in a store of %s grants.", row, size));
+        }
+        QualifiedName qualifiedName = qualifiedNames.get(nameIds[row]);
+        return SnowflakeGrantModel.withQualifiedName(
+                strings.get(privilegeIds[row]),
+                OBJECT_TYPES[objectTypes[row]].name(),
+                qualifiedName,
+                strings.get(grantedToIds[row]),
+                strings.get(granteeIds[row]),
+                (flags[row] & GRANT_OPTION) != 0,
+                (flags[row] & FUTURE) != 0,
+                (flags[row] & ALL) != 0);
+    }
+
+    public SnowflakeGrantBuilder builder(int row) {
+        return SnowflakeGrantBuilder.fromGrant(grant(row), skipUnknownGrantTypes);
+    }
+
+    public IntStream rows() {
+        return IntStream.range(0, size);
+    }
+
+    public Stream<SnowflakeGrantModel> grants() {
+        return rows().mapToObj(this::grant);
+    }
+
+    public Stream<SnowflakeGrantBuilder> builders() {
+        return rows().mapToObj(this::builder);
+    }
+
+    private int findSlot(GrantFingerprint fingerprint, SnowflakeGrantModel grant) {
+        int mask = slots.length - 1;
+        int slot = (int) fingerprint.low() & mask;
+        while (slots[slot] != 0) {
+            int row = slots[slot] - 1;
+            if (fingerprintLows[row] == fingerprint.low()
+                    && fingerprintHighs[row] == fingerprint.high()
+                    && hasKeyOf(row, grant)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /*
+    Whether the row has the same values as the grant for the fields of SnowflakeGrantBuilder.getKey, which are the
+    fields that GrantFingerprint hashes.
+     */
+    private boolean hasKeyOf(int row, SnowflakeGrantModel grant) {
+        return ((flags[row] & FUTURE) != 0) == grant.future()
+                && names.get(nameIds[row]).equals(grant.name())
+                && strings.get(granteeIds[row]).toUpperCase().equals(grant.granteeName().toUpperCase())
+                && strings.get(privilegeIds[row]).toUpperCase().equals(grant.privilege().toUpperCase())
+                && strings.get(grantedToIds[row]).toUpperCase().equals(grant.grantedTo().toUpperCase())
+                && OBJECT_TYPES[objectTypes[row]].getAliasFor()
+                        .equals(SnowflakeObjectType.fromString(grant.grantedOn()).getAliasFor());
+    }
+
+    private void ensureCapacity() {
+        if (size > privilegeIds.length) {
+            int capacity = privilegeIds.length * 2;
+            privilegeIds = Arrays.copyOf(privilegeIds, capacity);
+            objectTypes = Arrays.copyOf(objectTypes, capacity);
+            nameIds = Arrays.copyOf(nameIds, capacity);
+            grantedToIds = Arrays.copyOf(grantedToIds, capacity);
+            granteeIds = Arrays.copyOf(granteeIds, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            fingerprintHighs = Arrays.copyOf(fingerprintHighs, capacity);
+            fingerprintLows = Arrays.copyOf(fingerprintLows, capacity);
+        }
+        // The table is kept at most half full.
+        if (size * 2 > slots.length) {
+            int[] oldSlots = slots;
+            slots = new int[oldSlots.length * 2];
+            int mask = slots.length - 1;
+            for (int oldSlot : oldSlots) {
+                if (oldSlot != 0) {
+                    int slot = (int) fingerprintLows[oldSlot - 1] & mask;
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = oldSlot;
+                }
+            }
+        }
+    }
+
+    /*
+    Strings numbered in the order they are first seen.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int intern(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        String get(int id) {
+            return values.get(id);
+        }
+    }
+}
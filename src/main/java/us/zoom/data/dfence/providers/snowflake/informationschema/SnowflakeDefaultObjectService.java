@@ -97,4 +97,34 @@ public class SnowflakeDefaultObjectService {
         }
 
     }
+
+    /*
+    A version of a database that changes whenever a schema in it is created, dropped or altered. The version is the
+    schema names with their LAST_ALTERED times, one per line. It is meant to change when objects in the schemas change
+    too, which relies on Snowflake moving LAST_ALTERED of a schema for those changes. That is observed but not
+    documented, so callers expire versions after a max age rather than trust them indefinitely.
+     */
+    public String getDatabaseVersion(@NotEmpty String databaseName) {
+        String query = String.format(
+                "select schema_name, last_altered from %s.information_schema.schemata order by schema_name;",
+                databaseName);
+        log.debug("Finding database version with query: \"{}\"", query);
+        try (Connection connection = snowflakeConnectionService.connection(SnowflakeRoleType.SYSADMIN);
+             Statement statement = connection.createStatement()) {
+            statement.execute(query);
+            ResultSet resultSet = statement.getResultSet();
+            StringBuilder version = new StringBuilder();
+            while (resultSet.next()) {
+                version.append(resultSet.getString("SCHEMA_NAME"))
+                        .append('=')
+                        .append(resultSet.getString("LAST_ALTERED"))
+                        .append('\n');
+            }
+            return version.toString();
+        } catch (SQLException e) {
+            throw new DatabaseError(
+                    String.format("Unable to find version of database %s using query \"%s\"", databaseName, query),
+                    e);
+        }
+    }
 }
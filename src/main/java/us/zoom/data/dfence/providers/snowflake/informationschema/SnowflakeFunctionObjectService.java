@@ -49,7 +49,7 @@ public class SnowflakeFunctionObjectService {
                             containerName));
                 }
                 query = String.format(
-                        "select function_catalog, function_schema, function_name, argument_signature, from %s.INFORMATION_SCHEMA.FUNCTIONS",
+                        "select function_catalog, function_schema, function_name, argument_signature from %s.INFORMATION_SCHEMA.FUNCTIONS",
                         databaseName);
             }
             case SCHEMA -> {
@@ -6,13 +6,27 @@ import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import us.zoom.data.dfence.metrics.Counter;
+import us.zoom.data.dfence.metrics.Metrics;
 import us.zoom.data.dfence.providers.snowflake.SnowflakeConnectionService;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeObjectType;
 import us.zoom.data.dfence.sql.ObjectName;
+import us.zoom.data.dfence.sql.QualifiedName;
 
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 @EqualsAndHashCode
@@ -21,8 +35,32 @@ import java.util.concurrent.ConcurrentHashMap;
 public class SnowflakeObjectsService {
 
     private final Map<String, List<String>> getContainerObjectQualNamesCache = new ConcurrentHashMap<>();
+    private final Map<String, Set<QualifiedName>> containerObjectQualifiedNamesCache = new ConcurrentHashMap<>();
     private final Map<String, Boolean> objectExistsCache = new ConcurrentHashMap<>();
 
+    private static final String QUERY_TIMER = "snowflake.query";
+    // The cache metrics are static, so they are process totals. When several profiles are compiled in one run the
+    // requests of all of their accounts are added up in the same series.
+    private static final Counter containerObjectsCacheHits = Metrics.counter(
+            "cache.requests", "cache", "container_objects", "result", "hit");
+    private static final Counter containerObjectsCacheMisses = Metrics.counter(
+            "cache.requests", "cache", "container_objects", "result", "miss");
+    private static final Counter objectExistsCacheHits = Metrics.counter(
+            "cache.requests", "cache", "object_exists", "result", "hit");
+    private static final Counter objectExistsCacheMisses = Metrics.counter(
+            "cache.requests", "cache", "object_exists", "result", "miss");
+
+    static {
+        Metrics.gauge(
+                "cache.hit_ratio",
+                () -> hitRatio(containerObjectsCacheHits, containerObjectsCacheMisses),
+                "cache", "container_objects");
+        Metrics.gauge(
+                "cache.hit_ratio",
+                () -> hitRatio(objectExistsCacheHits, objectExistsCacheMisses),
+                "cache", "object_exists");
+    }
+
     private final SnowflakeDefaultObjectService snowflakeDefaultObjectService;
 
     private final SnowflakeTableObjectService snowflakeTableObjectService;
@@ -35,8 +73,41 @@ public class SnowflakeObjectsService {
 
     private final SnowflakeVolumeService snowflakeVolumeService;
 
+    private final Boolean inventoryPrefetch;
+
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final SnowflakeObjectsStateCache snowflakeObjectsStateCache;
+
     public SnowflakeObjectsService(
             SnowflakeConnectionService snowflakeConnectionService) {
+        this(snowflakeConnectionService, false);
+    }
+
+    public SnowflakeObjectsService(
+            SnowflakeConnectionService snowflakeConnectionService,
+            Boolean inventoryPrefetch) {
+        this(snowflakeConnectionService, inventoryPrefetch, null);
+    }
+
+    public SnowflakeObjectsService(
+            SnowflakeConnectionService snowflakeConnectionService,
+            Boolean inventoryPrefetch,
+            Path stateCacheFile) {
+        this(snowflakeConnectionService, inventoryPrefetch, stateCacheFile, SnowflakeObjectsStateCache.DEFAULT_MAX_AGE);
+    }
+
+    public SnowflakeObjectsService(
+            SnowflakeConnectionService snowflakeConnectionService,
+            Boolean inventoryPrefetch,
+            Path stateCacheFile,
+            Duration stateCacheMaxAge) {
+        this.inventoryPrefetch = inventoryPrefetch;
+        this.snowflakeObjectsStateCache = stateCacheFile == null ? null : new SnowflakeObjectsStateCache(
+                stateCacheFile,
+                snowflakeConnectionService,
+                stateCacheMaxAge,
+                Clock.systemUTC());
         this.snowflakeDefaultObjectService = new SnowflakeDefaultObjectService(snowflakeConnectionService);
         this.snowflakeTableObjectService = new SnowflakeTableObjectService(snowflakeConnectionService);
         this.snowflakeStageObjectsService = new SnowflakeStageObjectsService(snowflakeConnectionService);
@@ -49,22 +120,174 @@ public class SnowflakeObjectsService {
             SnowflakeObjectType containerObjectType,
             SnowflakeObjectType objectType,
             String containerName) {
-        String key = String.join(
-                "::",
-                List.of(containerObjectType.getObjectType(), objectType.getObjectType(), containerName));
+        String key = containerCacheKey(containerObjectType, objectType, containerName);
         if (getContainerObjectQualNamesCache.containsKey(key)) {
+            containerObjectsCacheHits.increment();
             return getContainerObjectQualNamesCache.get(key);
         } else {
-            List<String> result = getContainerObjectQualNamesRaw(containerObjectType, objectType, containerName);
+            containerObjectsCacheMisses.increment();
+            Supplier<List<String>> loader = () -> Metrics.timer(
+                    QUERY_TIMER,
+                    "type",
+                    "objects_" + objectType.name().toLowerCase())
+                    .record(() -> getContainerObjectQualNamesRaw(containerObjectType, objectType, containerName));
+            List<String> result;
+            if (snowflakeObjectsStateCache != null && containerObjectType == SnowflakeObjectType.SCHEMA) {
+                result = snowflakeObjectsStateCache.getSchemaObjects(key, containerName, loader);
+            } else {
+                result = loader.get();
+            }
             getContainerObjectQualNamesCache.put(key, result);
             return result;
         }
     }
 
+    /*
+    The objects of a container as parsed qualified names so that checking if an object exists is a set lookup rather
+    than parsing and comparing every object in the container.
+     */
+    public Set<QualifiedName> getContainerObjectQualifiedNames(
+            SnowflakeObjectType containerObjectType,
+            SnowflakeObjectType objectType,
+            String containerName) {
+        String key = containerCacheKey(containerObjectType, objectType, containerName);
+        if (containerObjectQualifiedNamesCache.containsKey(key)) {
+            return containerObjectQualifiedNamesCache.get(key);
+        } else {
+            Set<QualifiedName> result = getContainerObjectQualNames(containerObjectType, objectType, containerName)
+                    .stream()
+                    .map(QualifiedName::of)
+                    .collect(Collectors.toUnmodifiableSet());
+            containerObjectQualifiedNamesCache.put(key, result);
+            return result;
+        }
+    }
+
+    /*
+    Fill the cache for every schema of the given databases up front. Each database is read with a handful of queries
+    for the whole database rather than one query per schema and object type. The results are split by schema and
+    stored under the same keys that lookups for a single schema use. Databases are loaded in parallel on the given
+    executor, which should be sized to the connection pool. Which databases exist is resolved before that, so the
+    databases of the account are listed once rather than by every task at the same time.
+     */
+    public void prefetchInventory(Collection<String> databaseNames, Executor executor) {
+        if (!Boolean.TRUE.equals(inventoryPrefetch)) {
+            return;
+        }
+        List<String> normalizedDatabaseNames = existingDatabases(databaseNames.stream()
+                .filter(x -> x != null && !"*".equals(x))
+                .map(ObjectName::normalizeObjectName)
+                .distinct()
+                .sorted()
+                .toList());
+        log.info("Prefetching objects in {} databases.", normalizedDatabaseNames.size());
+        List<CompletableFuture<Void>> futures = normalizedDatabaseNames.stream()
+                .map(databaseName -> CompletableFuture.runAsync(
+                        () -> Metrics.timer(QUERY_TIMER, "type", "prefetch_database").run(() -> prefetchDatabase(databaseName)),
+                        executor))
+                .toList();
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void prefetchDatabase(String databaseName) {
+        List<String> schemaNames = getContainerObjectQualNames(
+                SnowflakeObjectType.DATABASE,
+                SnowflakeObjectType.SCHEMA,
+                databaseName);
+        Map<SnowflakeObjectType, List<String>> objectsByType = new EnumMap<>(SnowflakeObjectType.class);
+        objectsByType.putAll(snowflakeTableObjectService.getDatabaseTablesByType(databaseName));
+        objectsByType.put(
+                SnowflakeObjectType.PROCEDURE,
+                snowflakeProcedureObjectService.getContainerProcedures(databaseName, SnowflakeObjectType.DATABASE));
+        objectsByType.put(
+                SnowflakeObjectType.FUNCTION,
+                snowflakeFunctionObjectService.getContainerProcedures(databaseName, SnowflakeObjectType.DATABASE));
+        objectsByType.put(
+                SnowflakeObjectType.STAGE,
+                snowflakeStageObjectsService.getContainerExternalStages(databaseName, SnowflakeObjectType.DATABASE));
+        objectsByType.forEach((objectType, objectNames) -> {
+            getContainerObjectQualNamesCache.putIfAbsent(
+                    containerCacheKey(SnowflakeObjectType.DATABASE, objectType, databaseName),
+                    objectNames);
+            Map<String, List<String>> objectNamesBySchema = objectNames.stream()
+                    .collect(Collectors.groupingBy(x -> QualifiedName.of(x).containerName()));
+            // Only schemas that exist are stored so that schemas such as INFORMATION_SCHEMA keep their behavior.
+            for (String schemaName : schemaNames) {
+                getContainerObjectQualNamesCache.putIfAbsent(
+                        containerCacheKey(SnowflakeObjectType.SCHEMA, objectType, schemaName),
+                        objectNamesBySchema.getOrDefault(schemaName, List.of()));
+            }
+        });
+        log.debug("Prefetched objects in {} schemas of database {}.", schemaNames.size(), databaseName);
+    }
+
+    /*
+    The given databases that exist, in the given order. They are checked one after the other on the calling thread, so
+    the first check lists the databases of the account and the others are answered from the cache. Call this before
+    handing databases to parallel tasks that check them again.
+     */
+    public List<String> existingDatabases(Collection<String> databaseNames) {
+        return databaseNames.stream()
+                .filter(databaseName -> {
+                    if (objectExists(databaseName, SnowflakeObjectType.DATABASE)) {
+                        return true;
+                    }
+                    log.debug("Database {} not found.", databaseName);
+                    return false;
+                })
+                .toList();
+    }
+
+    /*
+    The version of a database, or null when the database does not exist. See
+    SnowflakeDefaultObjectService.getDatabaseVersion.
+     */
+    public String databaseVersion(String databaseName) {
+        if (!objectExists(databaseName, SnowflakeObjectType.DATABASE)) {
+            return null;
+        }
+        return Metrics.timer(QUERY_TIMER, "type", "database_version")
+                .record(() -> snowflakeDefaultObjectService.getDatabaseVersion(databaseName));
+    }
+
+    private static String containerCacheKey(
+            SnowflakeObjectType containerObjectType,
+            SnowflakeObjectType objectType,
+            String containerName) {
+        return String.join(
+                "::",
+                List.of(containerObjectType.getObjectType(), objectType.getObjectType(), containerName));
+    }
+
+    private static double hitRatio(Counter hits, Counter misses) {
+        long total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : (double) hits.count() / total;
+    }
+
     public void clearCache() {
         log.debug("Clearing cache.");
         this.getContainerObjectQualNamesCache.clear();
+        this.containerObjectQualifiedNamesCache.clear();
         this.objectExistsCache.clear();
+        if (snowflakeObjectsStateCache != null) {
+            snowflakeObjectsStateCache.refresh();
+        }
+    }
+
+    /*
+    Write the objects found so far to the state cache file, if one is configured.
+     */
+    public void saveStateCache() {
+        if (snowflakeObjectsStateCache != null) {
+            snowflakeObjectsStateCache.save();
+        }
     }
 
     /*
@@ -76,8 +299,10 @@ public class SnowflakeObjectsService {
     public Boolean objectExists(String objectName, SnowflakeObjectType objectType) {
         String key = String.join("::", List.of(objectName, objectType.toString()));
         if (objectExistsCache.containsKey(key)) {
+            objectExistsCacheHits.increment();
             return objectExistsCache.get(key);
         } else {
+            objectExistsCacheMisses.increment();
             Boolean result = objectExistsRaw(objectName, objectType);
             objectExistsCache.put(key, result);
             return result;
@@ -91,8 +316,8 @@ public class SnowflakeObjectsService {
         if (objectType == SnowflakeObjectType.ACCOUNT) {
             return true;
         }
-        String normalizedObjectName = ObjectName.quotedObjectName(objectName);
-        String containerName = ObjectName.containerName(normalizedObjectName);
+        QualifiedName qualifiedName = QualifiedName.of(objectName);
+        String containerName = qualifiedName.containerName();
         SnowflakeObjectType containerObjectType;
         switch (objectType.getQualLevel()) {
             case 0 -> {
@@ -121,16 +346,7 @@ public class SnowflakeObjectsService {
                 return false;
             }
         }
-        List<String> containerObjectQualNames = getContainerObjectQualNames(
-                containerObjectType,
-                objectType,
-                containerName);
-        for (String name : containerObjectQualNames) {
-            if (ObjectName.equalObjectName(name, objectName)) {
-                return true;
-            }
-        }
-        return false;
+        return getContainerObjectQualifiedNames(containerObjectType, objectType, containerName).contains(qualifiedName);
     }
 
     public List<String> getContainerObjectQualNamesRaw(
@@ -0,0 +1,209 @@
+package us.zoom.data.dfence.providers.snowflake.informationschema;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import us.zoom.data.dfence.AtomicFiles;
+import us.zoom.data.dfence.Mappers;
+import us.zoom.data.dfence.exception.DatabaseError;
+import us.zoom.data.dfence.providers.snowflake.SnowflakeConnectionService;
+import us.zoom.data.dfence.providers.snowflake.SnowflakeRoleType;
+import us.zoom.data.dfence.sql.ObjectName;
+import us.zoom.data.dfence.sql.QualifiedName;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+Keeps the objects found in each schema in a local file between runs. An entry is reused as long as the LAST_ALTERED
+time of its schema has not changed, so a run only goes back to the information schema for the schemas that changed
+since the previous run. The LAST_ALTERED times of all schemas in a database are read with one query the first time a
+schema of that database is looked up in a compile.
+
+That an object created, dropped or renamed in a schema always moves the LAST_ALTERED time of the schema is relied on
+but not documented by Snowflake, so an entry is also read again once it is older than the max age, however its schema
+looks. Entries of schemas that are no longer in their database, and entries older than the max age, are dropped so
+that the file does not keep growing.
+
+The file is gzip compressed JSON. It is only a cache, so a file that cannot be read is ignored and rebuilt.
+ */
+@Slf4j
+public class SnowflakeObjectsStateCache {
+
+    private static final int VERSION = 2;
+
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofHours(24);
+
+    private static final ObjectMapper objectMapper = Mappers.jsonObjectMapper();
+
+    private final Path path;
+
+    private final SnowflakeConnectionService snowflakeConnectionService;
+
+    private final Duration maxAge;
+
+    private final Clock clock;
+
+    private final Map<String, CachedContainer> containers = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<String, String>> schemaLastAlteredByDatabase = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded = false;
+
+    public SnowflakeObjectsStateCache(Path path, SnowflakeConnectionService snowflakeConnectionService) {
+        this(path, snowflakeConnectionService, DEFAULT_MAX_AGE, Clock.systemUTC());
+    }
+
+    public SnowflakeObjectsStateCache(
+            Path path,
+            SnowflakeConnectionService snowflakeConnectionService,
+            Duration maxAge,
+            Clock clock) {
+        this.path = path;
+        this.snowflakeConnectionService = snowflakeConnectionService;
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    public record CachedContainer(String schemaName, String lastAltered, Long loadedAt, List<String> objectNames) {
+    }
+
+    public record StateCacheFile(Integer version, Map<String, CachedContainer> containers) {
+    }
+
+    /*
+    Start a new compile. The file is read the first time and the LAST_ALTERED times are looked up again.
+     */
+    public synchronized void refresh() {
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+        schemaLastAlteredByDatabase.clear();
+    }
+
+    /*
+    The objects in a schema, either from the file if the schema did not change or from the loader.
+     */
+    public List<String> getSchemaObjects(String key, String schemaName, Supplier<List<String>> loader) {
+        String lastAltered = schemaLastAltered(schemaName);
+        if (lastAltered == null) {
+            // The schema was not found so there is nothing to compare against.
+            return loader.get();
+        }
+        CachedContainer cachedContainer = containers.get(key);
+        if (cachedContainer != null && lastAltered.equals(cachedContainer.lastAltered()) && isFresh(cachedContainer)) {
+            return cachedContainer.objectNames();
+        }
+        long loadedAt = clock.millis();
+        List<String> objectNames = loader.get();
+        containers.put(key, new CachedContainer(schemaName, lastAltered, loadedAt, List.copyOf(objectNames)));
+        return objectNames;
+    }
+
+    private boolean isFresh(CachedContainer cachedContainer) {
+        return cachedContainer.loadedAt() != null
+                && clock.millis() - cachedContainer.loadedAt() < maxAge.toMillis();
+    }
+
+    private String schemaLastAltered(String schemaName) {
+        QualifiedName qualifiedName = QualifiedName.of(schemaName);
+        String databaseName = qualifiedName.part(0).normalized();
+        return schemaLastAlteredByDatabase
+                .computeIfAbsent(databaseName, this::queryDatabaseSchemaLastAltered)
+                .get(qualifiedName.normalized());
+    }
+
+    private Map<String, String> queryDatabaseSchemaLastAltered(String databaseName) {
+        String query = String.format(
+                "select catalog_name, schema_name, last_altered from %s.information_schema.schemata;",
+                databaseName);
+        log.debug("Finding schema last altered times with query: \"{}\"", query);
+        try (Connection connection = snowflakeConnectionService.connection(SnowflakeRoleType.SYSADMIN);
+             Statement statement = connection.createStatement()) {
+            statement.execute(query);
+            ResultSet resultSet = statement.getResultSet();
+            Map<String, String> result = new HashMap<>();
+            while (resultSet.next()) {
+                result.put(
+                        ObjectName.normalizeObjectName(String.format(
+                                "\"%s\".\"%s\"",
+                                resultSet.getString("CATALOG_NAME"),
+                                resultSet.getString("SCHEMA_NAME"))),
+                        resultSet.getString("LAST_ALTERED"));
+            }
+            pruneDroppedSchemas(databaseName, result.keySet());
+            return result;
+        } catch (SQLException e) {
+            throw new DatabaseError(
+                    String.format("Unable to find schemas in database %s due to database error.", databaseName),
+                    e);
+        }
+    }
+
+    /*
+    Drop the entries of schemas of the database that are not in the database any more.
+     */
+    private void pruneDroppedSchemas(String databaseName, Set<String> schemaNames) {
+        containers.values().removeIf(cachedContainer -> {
+            QualifiedName schemaName = QualifiedName.of(cachedContainer.schemaName());
+            return schemaName.part(0).normalized().equals(databaseName)
+                    && !schemaNames.contains(schemaName.normalized());
+        });
+    }
+
+    private void load() {
+        if (!Files.exists(path)) {
+            log.info("Object state cache {} not found. It will be created.", path);
+            return;
+        }
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(path))) {
+            StateCacheFile stateCacheFile = objectMapper.readValue(inputStream, StateCacheFile.class);
+            if (!Integer.valueOf(VERSION).equals(stateCacheFile.version()) || stateCacheFile.containers() == null) {
+                log.info("Ignoring object state cache {} written by a different version.", path);
+                return;
+            }
+            stateCacheFile.containers().forEach((key, cachedContainer) -> {
+                if (cachedContainer.schemaName() != null && isFresh(cachedContainer)) {
+                    containers.put(key, cachedContainer);
+                }
+            });
+            log.info("Loaded {} containers from object state cache {}.", containers.size(), path);
+        } catch (IOException e) {
+            log.warn("Ignoring object state cache {} because it could not be read.", path, e);
+        }
+    }
+
+    /*
+    Write the cache atomically. Entries older than the max age are not written.
+     */
+    public synchronized void save() {
+        containers.values().removeIf(cachedContainer -> !isFresh(cachedContainer));
+        try {
+            AtomicFiles.write(path, outputStream -> {
+                try (OutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+                    objectMapper.writeValue(gzipOutputStream, new StateCacheFile(VERSION, Map.copyOf(containers)));
+                }
+            });
+            log.info("Saved {} containers to object state cache {}.", containers.size(), path);
+        } catch (IOException e) {
+            log.warn("Unable to save object state cache {}.", path, e);
+        }
+    }
+}
@@ -49,7 +49,7 @@ public class SnowflakeProcedureObjectService {
                             containerName));
                 }
                 query = String.format(
-                        "select procedure_catalog, procedure_schema, procedure_name, argument_signature, from %s.INFORMATION_SCHEMA.PROCEDURES",
+                        "select procedure_catalog, procedure_schema, procedure_name, argument_signature from %s.INFORMATION_SCHEMA.PROCEDURES",
                         databaseName);
             }
             case SCHEMA -> {
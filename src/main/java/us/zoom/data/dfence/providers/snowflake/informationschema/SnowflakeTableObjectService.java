@@ -17,41 +17,77 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @AllArgsConstructor
 @EqualsAndHashCode
 @Slf4j
 public class SnowflakeTableObjectService {
 
+    private static final Map<SnowflakeObjectType, List<String>> TABLE_TYPES = Map.of(
+            SnowflakeObjectType.TABLE, List.of("BASE TABLE", "TEMPORARY TABLE"),
+            SnowflakeObjectType.EXTERNAL_TABLE, List.of("EXTERNAL TABLE"),
+            SnowflakeObjectType.EVENT_TABLE, List.of("EVENT TABLE"),
+            SnowflakeObjectType.VIEW, List.of("VIEW"),
+            SnowflakeObjectType.MATERIALIZED_VIEW, List.of("MATERIALIZED VIEW"));
+
     private final SnowflakeConnectionService snowflakeConnectionService;
 
+    /*
+    All tables and views of every type in a database with a single query. Each type that can be looked up with
+    getContainerTables is in the result, even when the database has no objects of that type.
+     */
+    public Map<SnowflakeObjectType, List<String>> getDatabaseTablesByType(@NotEmpty String databaseName) {
+        Map<String, SnowflakeObjectType> objectTypesByTableType = new HashMap<>();
+        TABLE_TYPES.forEach((objectType, tableTypes) -> tableTypes.forEach(tableType -> objectTypesByTableType.put(
+                tableType,
+                objectType)));
+        String tableTypesSql = String.join(
+                ", ",
+                objectTypesByTableType.keySet().stream().sorted().map(x -> String.format("'%s'", x)).toList());
+        String query = String.format(
+                "select table_catalog, table_name, table_schema, table_type from %s.information_schema.tables where table_schema != 'INFORMATION_SCHEMA' and table_type in ( %s );",
+                ObjectName.normalizeObjectNamePart(databaseName),
+                tableTypesSql);
+        log.debug("Finding objects with query: \"{}\"", query);
+        Map<SnowflakeObjectType, List<String>> result = new EnumMap<>(SnowflakeObjectType.class);
+        TABLE_TYPES.keySet().forEach(objectType -> result.put(objectType, new ArrayList<>()));
+        try (Connection connection = snowflakeConnectionService.connection(SnowflakeRoleType.SYSADMIN);
+             Statement statement = connection.createStatement()) {
+            statement.execute(query);
+            ResultSet resultSet = statement.getResultSet();
+            while (resultSet.next()) {
+                SnowflakeObjectType objectType = objectTypesByTableType.get(resultSet.getString("TABLE_TYPE"));
+                if (objectType == null) {
+                    continue;
+                }
+                result.get(objectType).add(ObjectName.normalizeObjectName(String.format(
+                        "\"%s\".\"%s\".\"%s\"",
+                        resultSet.getString("TABLE_CATALOG"),
+                        resultSet.getString("TABLE_SCHEMA"),
+                        resultSet.getString("TABLE_NAME"))));
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new DatabaseError(
+                    String.format(
+                            "Unable to find tables in database %s due to database error.",
+                            databaseName), e);
+        }
+    }
+
 
     public List<String> getContainerTables(
             @NotEmpty String containerName,
             @NotNull SnowflakeObjectType containerObjectType,
             @NotNull SnowflakeObjectType objectType) {
-        List<String> tableTypes;
-        switch (objectType) {
-            case TABLE -> {
-                tableTypes = List.of("BASE TABLE", "TEMPORARY TABLE");
-            }
-            case EXTERNAL_TABLE -> {
-                tableTypes = List.of("EXTERNAL TABLE");
-            }
-            case EVENT_TABLE -> {
-                tableTypes = List.of("EVENT TABLE");
-            }
-            case VIEW -> {
-                tableTypes = List.of("VIEW");
-            }
-            case MATERIALIZED_VIEW -> {
-                tableTypes = List.of("MATERIALIZED VIEW");
-            }
-            default -> {
-                throw new RuntimeException(String.format("Object type %s cannot be queried in INFORMATION_SCHEMA.TABLES.",
-                        objectType));
-            }
+        List<String> tableTypes = TABLE_TYPES.get(objectType);
+        if (tableTypes == null) {
+            throw new RuntimeException(String.format("Object type %s cannot be queried in INFORMATION_SCHEMA.TABLES.",
+                    objectType));
         }
         String tableTypesSql = String.join(", ", tableTypes.stream().map(x -> String.format("'%s'", x)).toList());
         String query;
@@ -2,6 +2,7 @@ package us.zoom.data.dfence.providers.snowflake.models;
 
 import us.zoom.data.dfence.exception.ObjectNameException;
 import us.zoom.data.dfence.sql.ObjectName;
+import us.zoom.data.dfence.sql.QualifiedName;
 
 public record SnowflakeGrantModel(
         String privilege,
@@ -11,20 +12,32 @@ public record SnowflakeGrantModel(
         String granteeName,
         Boolean grantOption,
         Boolean future,
-        Boolean all) {
+        Boolean all,
+        QualifiedName qualifiedName) {
     public SnowflakeGrantModel {
-        if (!name.isEmpty()) {
-            // Patch for user name not quoted in Snowflake. This looks like a bug in Snowflake where they handle the
-            // user name totally different than the way they handle other objects.
-            if (grantedOn.equalsIgnoreCase("USER") && !name.startsWith("\"")) {
-                name = "\"" + name + "\"";
-            }
-            try {
-                name = ObjectName.normalizeObjectName(name);
-            } catch (ObjectNameException e) {
-                throw new ObjectNameException(String.format("Unable to normalize name %s for grant.", name), e);
+        // The qualified name is only parsed when it is not handed over from a grant that already parsed it.
+        if (qualifiedName == null) {
+            qualifiedName = QualifiedName.EMPTY;
+            if (!name.isEmpty()) {
+                // Patch for user name not quoted in Snowflake. This looks like a bug in Snowflake where they handle the
+                // user name totally different than the way they handle other objects.
+                if (grantedOn.equalsIgnoreCase("USER") && !name.startsWith("\"")) {
+                    name = "\"" + name + "\"";
+                }
+                try {
+                    qualifiedName = QualifiedName.of(name);
+                } catch (ObjectNameException e) {
+                    throw new ObjectNameException(String.format("Unable to normalize name %s for grant.", name), e);
+                }
             }
+        } else if (!name.isEmpty() && !name.equals(qualifiedName.normalized())) {
+            // The name is taken from the qualified name, so a different one would silently be dropped.
+            throw new IllegalArgumentException(String.format(
+                    "Name %s of grant does not match its qualified name %s.",
+                    name,
+                    qualifiedName.normalized()));
         }
+        name = qualifiedName.normalized();
         privilege = privilege.toUpperCase();
         grantedOn = grantedOn.toUpperCase();
         grantedTo = grantedTo.toUpperCase();
@@ -40,15 +53,47 @@ public record SnowflakeGrantModel(
         }
     }
 
+    public SnowflakeGrantModel(
+            String privilege,
+            String grantedOn,
+            String name,
+            String grantedTo,
+            String granteeName,
+            Boolean grantOption,
+            Boolean future,
+            Boolean all) {
+        this(privilege, grantedOn, name, grantedTo, granteeName, grantOption, future, all, null);
+    }
+
+    /*
+    A grant on an object whose name was already parsed, so that it is not parsed again.
+     */
+    public static SnowflakeGrantModel withQualifiedName(
+            String privilege,
+            String grantedOn,
+            QualifiedName qualifiedName,
+            String grantedTo,
+            String granteeName,
+            Boolean grantOption,
+            Boolean future,
+            Boolean all) {
+        return new SnowflakeGrantModel(
+                privilege,
+                grantedOn,
+                qualifiedName.normalized(),
+                grantedTo,
+                granteeName,
+                grantOption,
+                future,
+                all,
+                qualifiedName);
+    }
+
     public Boolean isOwnershipGrant() {
         return "OWNERSHIP".equalsIgnoreCase(privilege.trim());
     }
 
     public String getEscapedName() {
-        try {
-            return ObjectName.quotedObjectName(name);
-        } catch (ObjectNameException e) {
-            throw new ObjectNameException(String.format("Unable to generate escaped name for grant %s", this, e));
-        }
+        return qualifiedName.quoted();
     }
 }
@@ -5,12 +5,15 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import us.zoom.data.dfence.exception.RbacDataError;
 import us.zoom.data.dfence.playbook.model.PlaybookPrivilegeGrant;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
+import us.zoom.data.dfence.providers.snowflake.grant.store.SnowflakeGrantStore;
 import us.zoom.data.dfence.providers.snowflake.revoke.evaluator.GrantRevocationEvaluator;
 import us.zoom.data.dfence.providers.snowflake.revoke.index.PolicyGrantHashIndexer;
 
@@ -18,6 +21,59 @@ import us.zoom.data.dfence.providers.snowflake.revoke.index.PolicyGrantHashIndex
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class SnowflakeRevokeGrantsCompiler {
 
+  /**
+   * Roles with this many current grants are evaluated in parallel. The rows are split into chunks
+   * by the fork-join pool that the compile runs in, and the revoked grants are merged by a parallel
+   * sort.
+   */
+  static final int PARALLEL_THRESHOLD = 10_000;
+
+  private record KeyedGrantBuilder(String key, SnowflakeGrantBuilder grantBuilder) {}
+
+  /**
+   * Compiles grants to revoke from a grant store. Builders are only created for the grants that are
+   * revoked.
+   */
+  public static List<SnowflakeGrantBuilder> compileRevokeGrants(
+      List<PlaybookPrivilegeGrant> playbookGrants, SnowflakeGrantStore currentGrants) {
+    return Try.of(() -> new GrantRevocationEvaluator(PolicyGrantHashIndexer.create(playbookGrants)))
+        .map(evaluator -> compileRevokeGrants(evaluator, currentGrants))
+        .getOrElseThrow(
+            e -> {
+              log.error(
+                  "Unexpected error compiling revoke grants: {} playbook grants provided",
+                  playbookGrants.size(),
+                  e);
+              return new RbacDataError("Failed to compile revoke grants: " + e.getMessage(), e);
+            });
+  }
+
+  /**
+   * Compiles grants to revoke from a grant store with an evaluator that has already been built for
+   * the playbook grants of the role, such as the one returned by the consistency check.
+   */
+  public static List<SnowflakeGrantBuilder> compileRevokeGrants(
+      GrantRevocationEvaluator evaluator, SnowflakeGrantStore currentGrants) {
+    return Try.of(
+            () -> {
+              IntStream rows =
+                  currentGrants.size() >= PARALLEL_THRESHOLD
+                      ? currentGrants.rows().parallel()
+                      : currentGrants.rows();
+              return sortedByKey(
+                  rows.filter(row -> evaluator.needsRevoke(currentGrants.grant(row)))
+                      .mapToObj(currentGrants::builder));
+            })
+        .getOrElseThrow(
+            e -> {
+              log.error(
+                  "Unexpected error compiling revoke grants: {} current grants provided",
+                  currentGrants.size(),
+                  e);
+              return new RbacDataError("Failed to compile revoke grants: " + e.getMessage(), e);
+            });
+  }
+
   /**
    * Compiles grants to revoke by comparing current grants with playbook grants. Returns grants that
    * don't match any playbook grant.
@@ -30,10 +86,13 @@ public class SnowflakeRevokeGrantsCompiler {
               GrantRevocationEvaluator evaluator =
                   new GrantRevocationEvaluator(PolicyGrantHashIndexer.create(playbookGrants));
 
-              return currentGrantBuilders.values().stream()
-                  .filter(grantBuilder -> evaluator.needsRevoke(grantBuilder.getGrant()))
-                  .sorted(Comparator.comparing(SnowflakeGrantBuilder::getKey))
-                  .collect(Collectors.toList());
+              Stream<SnowflakeGrantBuilder> grantBuilders =
+                  currentGrantBuilders.size() >= PARALLEL_THRESHOLD
+                      ? currentGrantBuilders.values().parallelStream()
+                      : currentGrantBuilders.values().stream();
+              return sortedByKey(
+                  grantBuilders.filter(
+                      grantBuilder -> evaluator.needsRevoke(grantBuilder.getGrant())));
             })
         .getOrElseThrow(
             e -> {
@@ -44,4 +103,17 @@ public class SnowflakeRevokeGrantsCompiler {
               return new RbacDataError("Failed to compile revoke grants: " + e.getMessage(), e);
             });
   }
+
+  /**
+   * Sorts grant builders by key, computing the key of each builder once. A parallel stream is
+   * sorted in parallel and collected in order.
+   */
+  private static List<SnowflakeGrantBuilder> sortedByKey(
+      Stream<SnowflakeGrantBuilder> grantBuilders) {
+    return grantBuilders
+        .map(grantBuilder -> new KeyedGrantBuilder(grantBuilder.getKey(), grantBuilder))
+        .sorted(Comparator.comparing(KeyedGrantBuilder::key))
+        .map(KeyedGrantBuilder::grantBuilder)
+        .collect(Collectors.toList());
+  }
 }
@@ -1,9 +1,45 @@
 package us.zoom.data.dfence.providers.snowflake.revoke.models;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import us.zoom.data.dfence.policies.models.PolicyGrant;
 import us.zoom.data.dfence.policies.models.PolicyGrantPrivilege;
 
+/**
+ * Policy grants by object type alias and privilege. The parts index holds the same grants by alias,
+ * privilege and normalized name parts, and is derived from the grants when the index is made.
+ */
 public record PolicyGrantHashIndex(
-    ConcurrentHashMap<String, ConcurrentHashMap<PolicyGrantPrivilege, Set<PolicyGrant>>> kv) {}
+    ConcurrentHashMap<String, ConcurrentHashMap<PolicyGrantPrivilege, Set<PolicyGrant>>> kv,
+    Map<String, Map<PolicyGrantPrivilege, PolicyGrantPartsIndex>> partsIndex) {
+
+  public PolicyGrantHashIndex(
+      ConcurrentHashMap<String, ConcurrentHashMap<PolicyGrantPrivilege, Set<PolicyGrant>>> kv) {
+    this(kv, partsIndex(kv));
+  }
+
+  /** True when a policy grant of the same alias and privilege matches the grant's name. */
+  public boolean matches(SnowflakeGrant snowflakeGrant) {
+    PolicyGrantPartsIndex parts =
+        partsIndex
+            .getOrDefault(snowflakeGrant.snowflakeObjectType().getAliasFor(), Map.of())
+            .get(snowflakeGrant.privilege());
+    return parts != null && parts.matches(snowflakeGrant.type());
+  }
+
+  private static Map<String, Map<PolicyGrantPrivilege, PolicyGrantPartsIndex>> partsIndex(
+      Map<String, ConcurrentHashMap<PolicyGrantPrivilege, Set<PolicyGrant>>> kv) {
+    Map<String, Map<PolicyGrantPrivilege, PolicyGrantPartsIndex>> partsIndex = new HashMap<>();
+    kv.forEach(
+        (alias, byPrivilege) ->
+            byPrivilege.forEach(
+                (privilege, policyGrants) -> {
+                  PolicyGrantPartsIndex parts = new PolicyGrantPartsIndex();
+                  policyGrants.forEach(parts::add);
+                  partsIndex.computeIfAbsent(alias, k -> new HashMap<>()).put(privilege, parts);
+                }));
+    return partsIndex;
+  }
+}
@@ -0,0 +1,83 @@
+package us.zoom.data.dfence.providers.snowflake.revoke.models;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import us.zoom.data.dfence.policies.models.PolicyGrant;
+import us.zoom.data.dfence.policies.pattern.models.PolicyType;
+import us.zoom.data.dfence.sql.ObjectName;
+import us.zoom.data.dfence.sql.QualifiedName;
+
+/**
+ * The name parts of the policy grants for one object type alias and privilege, quoted once so that
+ * a grant is matched with a few hash lookups instead of comparing names part by part. Parts are
+ * keyed by their quoted form, which is what {@link ObjectName#equalObjectName} compares, so a
+ * quoted part such as {@code "A"} matches the unquoted part {@code A}.
+ *
+ * <p>A standard policy matches a standard grant with the same parts. A container policy matches
+ * when the shorter of its parts and the grant's parts is a prefix of the other, which is what
+ * comparing the zipped parts does. Container policies with the all option only match standard
+ * grants, those with the future option match standard and future grants.
+ */
+public final class PolicyGrantPartsIndex {
+  private final Set<List<String>> standard = new HashSet<>();
+  private final ContainerParts all = new ContainerParts();
+  private final ContainerParts future = new ContainerParts();
+
+  public void add(PolicyGrant policyGrant) {
+    PolicyType policyType = policyGrant.policyType();
+    List<String> parts =
+        policyType.parts().map(PolicyGrantPartsIndex::key).toJavaList();
+    if (policyType instanceof PolicyType.Standard) {
+      standard.add(List.copyOf(parts));
+    } else if (policyType instanceof PolicyType.Container c) {
+      if (c.containerPolicyOptions().all()) {
+        all.add(parts);
+      }
+      if (c.containerPolicyOptions().future()) {
+        future.add(parts);
+      }
+    }
+  }
+
+  public boolean matches(SnowflakeGrantType grantType) {
+    List<String> parts = grantType.parts().map(PolicyGrantPartsIndex::key).toJavaList();
+    if (grantType instanceof SnowflakeGrantType.Standard) {
+      return standard.contains(parts) || all.matches(parts) || future.matches(parts);
+    }
+    return future.matches(parts);
+  }
+
+  private static String key(String part) {
+    return QualifiedName.of(part).quoted();
+  }
+
+  private static final class ContainerParts {
+    private final Set<List<String>> parts = new HashSet<>();
+    private final Set<List<String>> strictPrefixes = new HashSet<>();
+
+    void add(List<String> policyParts) {
+      parts.add(List.copyOf(policyParts));
+      for (int length = 0; length < policyParts.size(); length++) {
+        strictPrefixes.add(List.copyOf(policyParts.subList(0, length)));
+      }
+    }
+
+    boolean matches(List<String> grantParts) {
+      if (parts.isEmpty()) {
+        return false;
+      }
+      // A policy with more parts than the grant matches when the grant is a prefix of it.
+      if (strictPrefixes.contains(grantParts)) {
+        return true;
+      }
+      // A policy with no more parts than the grant matches when it is a prefix of the grant.
+      for (int length = 0; length <= grantParts.size(); length++) {
+        if (parts.contains(grantParts.subList(0, length))) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,271 @@
+package us.zoom.data.dfence.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import us.zoom.data.dfence.ChangesSummary;
+import us.zoom.data.dfence.CompiledChanges;
+import us.zoom.data.dfence.Mappers;
+import us.zoom.data.dfence.Provider;
+import us.zoom.data.dfence.exception.DatabaseError;
+import us.zoom.data.dfence.exception.RbacDataError;
+import us.zoom.data.dfence.playbook.PlaybookImport;
+import us.zoom.data.dfence.playbook.PlaybookService;
+import us.zoom.data.dfence.playbook.model.PlaybookModel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/*
+A local HTTP endpoint for compile, apply, import-roles and list-roles that keeps one provider for its whole life, so
+that connections and the object caches of the provider are reused between requests instead of being built again by
+every command. The playbook is loaded again for every compile so that edits to the playbook files are picked up.
+
+Requests and responses are JSON in the same kebab case form as the output of the commands. Calls to the provider,
+including cache invalidations, are made one at a time. Errors are returned as {"error": message} with status 400 for
+data errors, 502 for database errors and 500 for anything else.
+
+Apply runs the statements of the changes it is sent with the connection of the provider, so every endpoint except
+/health requires the token of the server as a bearer token, compared in constant time. Requests sent by a browser carry
+an Origin header and are refused, and posted bodies must be application/json, which a browser cannot send to another
+origin without a preflight request that the server does not answer.
+ */
+@Slf4j
+public class DfenceServer implements AutoCloseable {
+    private static final ObjectMapper objectMapper = Mappers.jsonKebabObjectMapper();
+
+    private static final int REQUEST_THREADS = 4;
+
+    private static final String BEARER = "Bearer ";
+
+    private final Provider provider;
+
+    private final Supplier<PlaybookModel> playbookLoader;
+
+    private final HttpServer httpServer;
+
+    private final ExecutorService executor;
+
+    private final Object providerLock = new Object();
+
+    private final byte[] token;
+
+    public record CompileRequest(Boolean ignoreUnknownGrants) {
+    }
+
+    public record ImportRolesRequest(List<String> roleNames, Boolean patterns) {
+    }
+
+    public record ApplyResponse(Integer appliedRoles) {
+    }
+
+    public record ErrorResponse(String error) {
+    }
+
+    private interface Endpoint {
+        Object handle(byte[] body) throws IOException;
+    }
+
+    public DfenceServer(
+            Provider provider,
+            Supplier<PlaybookModel> playbookLoader,
+            InetSocketAddress address,
+            String token) {
+        if (token == null || token.isBlank()) {
+            throw new RbacDataError("A token is required to serve requests.");
+        }
+        this.provider = provider;
+        this.playbookLoader = playbookLoader;
+        this.token = token.strip().getBytes(StandardCharsets.UTF_8);
+        try {
+            this.httpServer = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new RbacDataError(String.format("Unable to listen on %s. %s", address, e), e);
+        }
+        this.executor = Executors.newFixedThreadPool(
+                REQUEST_THREADS,
+                new ThreadFactoryBuilder().setNameFormat("dfence-server-%d").setDaemon(true).build());
+        this.httpServer.setExecutor(executor);
+        addEndpoint("/health", "GET", false, body -> Map.of("status", "ok"));
+        addEndpoint("/compile", "POST", true, body -> withProvider(() -> compile(body)));
+        addEndpoint("/apply", "POST", true, body -> withProvider(() -> apply(body)));
+        addEndpoint("/import-roles", "POST", true, body -> withProvider(() -> importRoles(body)));
+        addEndpoint("/roles", "GET", true, body -> withProvider(provider::listRoles));
+        // Also under the provider lock, so that an invalidation cannot land between the prefetch of a running compile
+        // and that compile marking its caches as loaded.
+        addEndpoint("/invalidate", "POST", true, body -> withProvider(() -> {
+            provider.invalidateCaches();
+            return Map.of("status", "ok");
+        }));
+    }
+
+    public void start() {
+        httpServer.start();
+        log.info("Listening on {}.", getAddress());
+    }
+
+    public InetSocketAddress getAddress() {
+        return httpServer.getAddress();
+    }
+
+    @Override
+    public void close() {
+        log.info("Stopping server.");
+        httpServer.stop(0);
+        executor.shutdown();
+    }
+
+    private ChangesSummary compile(byte[] body) throws IOException {
+        CompileRequest request = body.length == 0
+                ? new CompileRequest(false)
+                : objectMapper.readValue(body, CompileRequest.class);
+        PlaybookService playbookService = new PlaybookService(provider, playbookLoader.get());
+        return playbookService.compileChanges(Boolean.TRUE.equals(request.ignoreUnknownGrants()));
+    }
+
+    /*
+    Apply the changes of a compile. Objects and grants change, so the caches of the provider are refreshed by the next
+    compile.
+     */
+    private ApplyResponse apply(byte[] body) throws IOException {
+        if (body.length == 0) {
+            throw new RbacDataError("A changes summary is required to apply changes.");
+        }
+        ChangesSummary changesSummary = objectMapper.readValue(body, ChangesSummary.class);
+        List<CompiledChanges> changes = changesSummary.changes().stream()
+                .filter(CompiledChanges::containsChanges)
+                .toList();
+        try {
+            if (!changes.isEmpty()) {
+                log.info("Applying {} changes", changes.size());
+                provider.applyRolesChanges(changes);
+                provider.applyPrivilegeChanges(changes);
+            }
+        } finally {
+            provider.invalidateCaches();
+        }
+        return new ApplyResponse(changes.size());
+    }
+
+    private PlaybookModel importRoles(byte[] body) throws IOException {
+        ImportRolesRequest request = objectMapper.readValue(body, ImportRolesRequest.class);
+        List<String> roleNames = request.roleNames() == null ? List.of() : request.roleNames();
+        if (Boolean.TRUE.equals(request.patterns())) {
+            List<Pattern> rolePatterns;
+            try {
+                rolePatterns = roleNames.stream().map(Pattern::compile).toList();
+            } catch (PatternSyntaxException e) {
+                throw new RbacDataError(String.format("Invalid regex pattern found. %s", e));
+            }
+            return PlaybookImport.importRolePatterns(rolePatterns, provider);
+        }
+        return PlaybookImport.importRoles(roleNames, provider);
+    }
+
+    private interface ProviderCall<T> {
+        T call() throws IOException;
+    }
+
+    private <T> T withProvider(ProviderCall<T> call) throws IOException {
+        synchronized (providerLock) {
+            return call.call();
+        }
+    }
+
+    private void addEndpoint(String path, String method, Boolean authenticated, Endpoint endpoint) {
+        httpServer.createContext(path, exchange -> {
+            try {
+                if (!path.equals(exchange.getRequestURI().getPath())) {
+                    respond(exchange, 404, new ErrorResponse(String.format(
+                            "Not found: %s",
+                            exchange.getRequestURI().getPath())));
+                } else if (!method.equalsIgnoreCase(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    respond(exchange, 405, new ErrorResponse(String.format(
+                            "Method %s is not allowed. Use %s.",
+                            exchange.getRequestMethod(),
+                            method)));
+                } else if (authenticated && exchange.getRequestHeaders().containsKey("Origin")) {
+                    respond(exchange, 403, new ErrorResponse("Requests from browsers are not allowed."));
+                } else if (authenticated && !hasToken(exchange)) {
+                    exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                    respond(exchange, 401, new ErrorResponse("A valid bearer token is required."));
+                } else if ("POST".equals(method) && !isJson(exchange)) {
+                    respond(exchange, 415, new ErrorResponse(
+                            "The content type of the request must be application/json."));
+                } else {
+                    handle(exchange, endpoint);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private boolean hasToken(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return false;
+        }
+        byte[] requestToken = authorization.substring(BEARER.length()).strip().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(token, requestToken);
+    }
+
+    private static boolean isJson(HttpExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        return contentType != null
+                && contentType.split(";", 2)[0].strip().equalsIgnoreCase("application/json");
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        byte[] body;
+        try (InputStream inputStream = exchange.getRequestBody()) {
+            body = inputStream.readAllBytes();
+        }
+        Object response;
+        int status;
+        try {
+            response = endpoint.handle(body);
+            status = 200;
+        } catch (RbacDataError | JsonProcessingException e) {
+            log.error("A data error has occurred handling {}. {}", path, e.getMessage());
+            log.debug("Error traceback", e);
+            response = new ErrorResponse(e.getMessage());
+            status = 400;
+        } catch (DatabaseError e) {
+            log.error("A database error has occurred handling {}. {}", path, e.getMessage());
+            log.debug("Error traceback", e);
+            response = new ErrorResponse(e.getMessage());
+            status = 502;
+        } catch (RuntimeException e) {
+            log.error("An error has occurred handling {}.", path, e);
+            response = new ErrorResponse(String.valueOf(e));
+            status = 500;
+        }
+        respond(exchange, status, response);
+    }
+
+    private static void respond(HttpExchange exchange, int status, Object response) throws IOException {
+        byte[] responseBody = objectMapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, responseBody.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(responseBody);
+        }
+    }
+}
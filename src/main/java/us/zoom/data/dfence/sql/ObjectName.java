@@ -4,6 +4,8 @@ import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 import us.zoom.data.dfence.exception.ObjectNameException;
+import us.zoom.data.dfence.metrics.Metrics;
+import us.zoom.data.dfence.metrics.Timer;
 import us.zoom.data.dfence.sql.error.ParserException;
 import us.zoom.data.dfence.sql.error.RbacAntlrErrorListener;
 import us.zoom.data.dfence.sql.models.SqlObject;
@@ -11,12 +13,17 @@ import us.zoom.data.dfence.sql.parser.*;
 import us.zoom.data.dfence.sql.visitors.objectname.SqlObjectObjectNameVisitor;
 import us.zoom.data.dfence.sql.visitors.showgrantsprocedurename.SqlObjectShowGrantsProcedureNameVisitor;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class ObjectName {
 
+    private static final Timer simpleParseTimer = Metrics.timer("object_name.parse", "parser", "simple");
+
+    private static final Timer grammarParseTimer = Metrics.timer("object_name.parse", "parser", "grammar");
+
     public static String normalizeObjectNamePart(String value) {
         return normalizeObjectName(value);
     }
@@ -41,11 +48,24 @@ public class ObjectName {
         if (value.isEmpty()) {
             return "";
         }
-        SqlObject sqlObject = ObjectName.parseSqlObject(value);
-        return sqlObject.quotedName();
+        return QualifiedName.of(value).quoted();
     }
 
     public static SqlObject parseSqlObject(String objectName) {
+        return SqlObjectCache.get(objectName, ObjectName::parseSqlObjectUncached);
+    }
+
+    static SqlObject parseSqlObjectUncached(String objectName) {
+        long start = System.nanoTime();
+        SqlObject simpleSqlObject = parseSimpleSqlObject(objectName);
+        if (simpleSqlObject != null) {
+            simpleParseTimer.record(System.nanoTime() - start);
+            return simpleSqlObject;
+        }
+        return grammarParseTimer.record(() -> parseSqlObjectWithGrammar(objectName));
+    }
+
+    static SqlObject parseSqlObjectWithGrammar(String objectName) {
         RbacAntlrErrorListener errorListener = new RbacAntlrErrorListener();
         ObjectNameLexer lexer = new ObjectNameLexer(CharStreams.fromString(objectName));
         lexer.addErrorListener(errorListener);
@@ -63,6 +83,87 @@ public class ObjectName {
         }
     }
 
+    /*
+    Fast path for the plain dotted names that make up nearly all of the names we handle. The name is scanned once
+    without building a lexer, token stream or parse tree. Anything that is not one to three unquoted identifiers or
+    quoted identifiers without escaped quotes separated by dots returns null so that the grammar handles it. That
+    includes arguments, future type placeholders, whitespace and every invalid name, so errors are still reported by
+    the parser. The result must be identical to what the grammar produces.
+     */
+    static SqlObject parseSimpleSqlObject(String objectName) {
+        int length = objectName.length();
+        SqlObject sqlObject = new SqlObject();
+        List<String> names = sqlObject.getNames();
+        int position = 0;
+        while (true) {
+            if (position >= length || names.size() == 3) {
+                return null;
+            }
+            char first = objectName.charAt(position);
+            int end;
+            if (first == '"') {
+                int closingQuote = objectName.indexOf('"', position + 1);
+                if (closingQuote < 0) {
+                    return null;
+                }
+                end = closingQuote + 1;
+                if (end < length && objectName.charAt(end) == '"') {
+                    // Escaped quote within the identifier.
+                    return null;
+                }
+                if (isUpperCaseIdentifier(objectName, position + 1, closingQuote)) {
+                    names.add(objectName.substring(position + 1, closingQuote));
+                } else {
+                    names.add(objectName.substring(position, end));
+                }
+            } else if (isIdentifierStart(first)) {
+                end = position + 1;
+                while (end < length && isIdentifierPart(objectName.charAt(end))) {
+                    end++;
+                }
+                names.add(objectName.substring(position, end).toUpperCase());
+            } else {
+                return null;
+            }
+            if (end == length) {
+                return sqlObject;
+            }
+            if (objectName.charAt(end) != '.') {
+                return null;
+            }
+            position = end + 1;
+        }
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9');
+    }
+
+    /*
+    Mirrors the quoted identifier pattern of the part visitor. Quoted identifiers of at least two upper case
+    characters are stored without quotes.
+     */
+    private static boolean isUpperCaseIdentifier(String value, int start, int end) {
+        if (end - start < 2) {
+            return false;
+        }
+        char first = value.charAt(start);
+        if (!((first >= 'A' && first <= 'Z') || first == '_')) {
+            return false;
+        }
+        for (int i = start + 1; i < end; i++) {
+            char c = value.charAt(i);
+            if (!((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static SqlObject parseSqlObjectFromShowGrantsProcedureName(String showGrantsProcedureName) {
         SqlObject outerSqlObject = parseSqlObject(showGrantsProcedureName);
         if (outerSqlObject.getNames().size() != 3) {
@@ -100,8 +201,7 @@ public class ObjectName {
             if (input.isEmpty()) {
                 return "";
             }
-            SqlObject sqlObject = ObjectName.parseSqlObject(input);
-            return sqlObject.normalizedName();
+            return QualifiedName.of(input).normalized();
         } catch (ObjectNameException e) {
             throw new ObjectNameException(String.format("Unable to normalize object name %s", input), e);
         }
@@ -152,21 +252,14 @@ public class ObjectName {
             if (value.isEmpty()) {
                 return List.of(value);
             }
-            SqlObject sqlObject = ObjectName.parseSqlObject(value);
-            List<String> names = sqlObject.getNames();
-            if (sqlObject.isHasArguments()) {
-                String arguments = sqlObject.normalizedArguments();
-                names.set(names.size() - 1, names.get(names.size() - 1) + arguments);
-            }
-            return names;
+            return new ArrayList<>(QualifiedName.of(value).parts());
         } catch (ObjectNameException e) {
             throw new ObjectNameException(String.format("Unable to split object name %s", value), e);
         }
     }
 
     public static String containerName(String objectName) {
-        SqlObject sqlObject = ObjectName.parseSqlObject(objectName);
-        return String.join(".", sqlObject.getNames().subList(0, sqlObject.getNames().size() - 1));
+        return QualifiedName.of(objectName).containerName();
     }
 
     public static Integer qualLevel(String objectName) {
@@ -180,6 +273,6 @@ public class ObjectName {
         if (qualName == null) {
             return otherQualName == null;
         }
-        return quotedObjectName(qualName).equals(quotedObjectName(otherQualName));
+        return QualifiedName.of(qualName).equals(QualifiedName.of(otherQualName));
     }
 }
@@ -0,0 +1,163 @@
+package us.zoom.data.dfence.sql;
+
+import com.google.common.collect.MapMaker;
+import us.zoom.data.dfence.exception.ObjectNameException;
+import us.zoom.data.dfence.sql.models.SqlObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+An immutable, already parsed object name. Object names are compared, split and quoted over and over while grants are
+compiled, and going back through the parser for every one of those calls dominated the compile time of large
+playbooks. A qualified name is parsed once and every derived form is computed up front.
+
+Instances whose input was already in normalized form are interned so that the same name seen in the playbook, in
+show grants and in the information schema resolves to one shared instance. The intern pool holds weak references and
+so does not keep names alive after the compile that used them.
+ */
+public final class QualifiedName {
+
+    public static final QualifiedName EMPTY = new QualifiedName(List.of(), "", false);
+
+    private static final ConcurrentMap<String, QualifiedName> interned = new MapMaker().weakValues().makeMap();
+
+    private final List<String> names;
+    private final String arguments;
+    private final boolean hasArguments;
+    private final List<String> parts;
+    private final String normalized;
+    private final String quoted;
+    private final int hash;
+
+    private QualifiedName(List<String> names, String arguments, boolean hasArguments) {
+        this.names = names;
+        this.arguments = arguments;
+        this.hasArguments = hasArguments;
+        if (hasArguments) {
+            List<String> partsWithArguments = new ArrayList<>(names);
+            int last = partsWithArguments.size() - 1;
+            partsWithArguments.set(last, partsWithArguments.get(last) + arguments);
+            this.parts = List.copyOf(partsWithArguments);
+        } else {
+            this.parts = names;
+        }
+        this.normalized = String.join(".", names) + arguments;
+        StringBuilder quotedBuilder = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                quotedBuilder.append('.');
+            }
+            String name = names.get(i);
+            if (name.startsWith("\"")) {
+                quotedBuilder.append(name);
+            } else {
+                quotedBuilder.append('"').append(name).append('"');
+            }
+        }
+        this.quoted = quotedBuilder.append(arguments).toString();
+        this.hash = this.quoted.hashCode();
+    }
+
+    public static QualifiedName of(String objectName) {
+        if (objectName.isEmpty()) {
+            return EMPTY;
+        }
+        QualifiedName existing = interned.get(objectName);
+        if (existing != null) {
+            return existing;
+        }
+        QualifiedName parsed = fromSqlObject(ObjectName.parseSqlObject(objectName));
+        if (!parsed.normalized.equals(objectName)) {
+            // Only names already in normalized form are used as intern keys, so a later lookup by the normalized
+            // name can never return an instance that was parsed from something else.
+            QualifiedName canonical = interned.get(parsed.normalized);
+            return canonical != null ? canonical : parsed;
+        }
+        QualifiedName previous = interned.putIfAbsent(objectName, parsed);
+        return previous != null ? previous : parsed;
+    }
+
+    public static QualifiedName fromSqlObject(SqlObject sqlObject) {
+        if (sqlObject.getNames().isEmpty()) {
+            return EMPTY;
+        }
+        return new QualifiedName(
+                List.copyOf(sqlObject.getNames()),
+                sqlObject.normalizedArguments(),
+                sqlObject.isHasArguments());
+    }
+
+    /*
+    The individual parts of the name. Arguments of functions and procedures are appended to the last part.
+     */
+    public List<String> parts() {
+        if (this == EMPTY) {
+            return List.of("");
+        }
+        return parts;
+    }
+
+    /*
+    A single part of the name as a qualified name of its own. This does not go back through the parser.
+     */
+    public QualifiedName part(int index) {
+        boolean last = index == names.size() - 1;
+        return new QualifiedName(
+                List.of(names.get(index)),
+                last ? arguments : "",
+                last && hasArguments);
+    }
+
+    public QualifiedName container() {
+        if (names.isEmpty()) {
+            throw new ObjectNameException("An empty object name does not have a container.");
+        }
+        if (names.size() == 1) {
+            return EMPTY;
+        }
+        return new QualifiedName(List.copyOf(names.subList(0, names.size() - 1)), "", false);
+    }
+
+    public String containerName() {
+        return container().normalized();
+    }
+
+    public int qualLevel() {
+        return names.size();
+    }
+
+    public boolean hasArguments() {
+        return hasArguments;
+    }
+
+    public String normalized() {
+        return normalized;
+    }
+
+    public String quoted() {
+        return quoted;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof QualifiedName otherName)) {
+            return false;
+        }
+        return hash == otherName.hash && quoted.equals(otherName.quoted);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return normalized;
+    }
+}
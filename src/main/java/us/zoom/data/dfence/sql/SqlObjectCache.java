@@ -0,0 +1,102 @@
+package us.zoom.data.dfence.sql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import us.zoom.data.dfence.metrics.Metrics;
+import us.zoom.data.dfence.sql.models.SqlObject;
+
+import java.util.function.Function;
+
+/*
+Process wide cache of parsed object names keyed by the raw input string. The same database and schema names are parsed
+over and over while grants are compiled from many parallel streams, so the cache is size bounded with least recently
+used eviction and split into segments that are locked independently.
+
+Parsed objects are mutable, so the cache keeps its own copy and hands out a fresh copy on every lookup.
+
+The size comes from the object-name-cache-size of the profiles in use. Because the cache is shared by every profile of
+the process, the largest size of those profiles applies, whichever profile's provider was built last.
+ */
+@Slf4j
+public class SqlObjectCache {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 100_000;
+
+    private static volatile Cache<String, SqlObject> cache = buildCache(DEFAULT_MAXIMUM_SIZE);
+
+    // The largest size asked for by a profile since the cache was last configured directly.
+    private static Long profileMaximumSize = null;
+
+    static {
+        Metrics.gauge("cache.hit_ratio", () -> stats().hitRate(), "cache", "object_name");
+    }
+
+    private SqlObjectCache() {
+    }
+
+    private static Cache<String, SqlObject> buildCache(long maximumSize) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .concurrencyLevel(Math.max(4, Runtime.getRuntime().availableProcessors()))
+                .recordStats()
+                .build();
+    }
+
+    /*
+    Replace the cache with an empty cache of the given size. A size of zero disables caching.
+     */
+    public static synchronized void configure(long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Object name cache size must not be negative but was %s.",
+                    maximumSize));
+        }
+        log.debug("Configuring object name cache with a maximum size of {}.", maximumSize);
+        cache = buildCache(maximumSize);
+        profileMaximumSize = null;
+    }
+
+    /*
+    Size the cache for a profile. The first profile sets the size. A later profile only replaces the cache when it asks
+    for a larger size, so that the largest size of all profiles applies and the cache is not emptied for every
+    provider that is built.
+     */
+    public static synchronized void configureForProfile(long maximumSize) {
+        if (profileMaximumSize != null && maximumSize <= profileMaximumSize) {
+            return;
+        }
+        configure(maximumSize);
+        profileMaximumSize = maximumSize;
+    }
+
+    public static SqlObject get(String objectName, Function<String, SqlObject> parser) {
+        Cache<String, SqlObject> currentCache = cache;
+        SqlObject cached = currentCache.getIfPresent(objectName);
+        if (cached == null) {
+            // Parse outside of the cache loader so that parser exceptions reach the caller unwrapped. Two threads
+            // may parse the same name at the same time, which is harmless because the results are equal.
+            cached = parser.apply(objectName);
+            currentCache.put(objectName, cached.copy());
+            return cached;
+        }
+        return cached.copy();
+    }
+
+    public static CacheStats stats() {
+        return cache.stats();
+    }
+
+    public static long hitCount() {
+        return stats().hitCount();
+    }
+
+    public static long missCount() {
+        return stats().missCount();
+    }
+
+    public static void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
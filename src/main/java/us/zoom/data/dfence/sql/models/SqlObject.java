@@ -11,6 +11,14 @@ public class SqlObject {
     private List<String> names = new ArrayList<>();
     private boolean hasArguments = false;
 
+    public SqlObject copy() {
+        SqlObject copy = new SqlObject();
+        copy.getNames().addAll(names);
+        copy.getArguments().addAll(arguments);
+        copy.setHasArguments(hasArguments);
+        return copy;
+    }
+
     public String normalizedArguments() {
         StringBuilder result = new StringBuilder();
         if (hasArguments) {
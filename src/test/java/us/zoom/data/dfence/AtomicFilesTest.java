@@ -0,0 +1,49 @@
+package us.zoom.data.dfence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AtomicFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeReplacesTheFile() throws IOException {
+        Path path = tempDir.resolve("state.json");
+        Files.writeString(path, "old");
+        AtomicFiles.write(path, outputStream -> outputStream.write("new".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("new", Files.readString(path));
+        assertEquals(List.of(path), listFiles());
+    }
+
+    @Test
+    void failedWriteKeepsTheFileAndDeletesTheTemporaryFile() throws IOException {
+        Path path = tempDir.resolve("state.json");
+        Files.writeString(path, "old");
+        assertThrows(IOException.class, () -> AtomicFiles.write(path, outputStream -> {
+            outputStream.write("partial".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("Disk full");
+        }));
+        assertThrows(IllegalStateException.class, () -> AtomicFiles.write(path, outputStream -> {
+            throw new IllegalStateException("Not serializable");
+        }));
+        assertEquals("old", Files.readString(path));
+        assertEquals(List.of(path), listFiles());
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (var files = Files.list(tempDir)) {
+            return files.toList();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package us.zoom.data.dfence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import us.zoom.data.dfence.exception.RbacDataError;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChangesFileReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<CompiledChanges> changes = List.of(
+            new CompiledChanges("role-a", "ROLE_A", List.of(), List.of("create role ROLE_A;"), List.of()),
+            new CompiledChanges(
+                    "role-b",
+                    "ROLE_B",
+                    List.of(List.of("grant ownership on schema DB.S to role ROLE_B copy current grants;")),
+                    List.of(),
+                    List.of(List.of("grant usage on database DB to role ROLE_B;"))));
+
+    private List<CompiledChanges> read(Path path) {
+        List<CompiledChanges> read = new ArrayList<>();
+        Integer roles = new ChangesFileReader(path.toFile()).forEach(read::add);
+        assertEquals(read.size(), roles);
+        return read;
+    }
+
+    private Path writeSummary(ObjectMapper objectMapper, String fileName) throws IOException {
+        Path path = tempDir.resolve(fileName);
+        objectMapper.writeValue(path.toFile(), new ChangesSummary(3, changes));
+        return path;
+    }
+
+    private Path writeStream(ObjectMapper objectMapper, String fileName) throws IOException {
+        Path path = tempDir.resolve(fileName);
+        try (OutputStream outputStream = Files.newOutputStream(path);
+                ChangesStreamWriter writer = new ChangesStreamWriter(objectMapper, outputStream, 3)) {
+            changes.forEach(writer::write);
+            writer.finish();
+        }
+        return path;
+    }
+
+    @Test
+    void readYamlSummary() throws IOException {
+        assertEquals(changes, read(writeSummary(Mappers.yamlKebabObjectMapper(), "changes.yml")));
+    }
+
+    @Test
+    void readJsonSummary() throws IOException {
+        assertEquals(changes, read(writeSummary(Mappers.jsonKebabObjectMapper(), "changes.json")));
+    }
+
+    @Test
+    void readYamlStream() throws IOException {
+        assertEquals(changes, read(writeStream(Mappers.yamlKebabObjectMapper(), "changes.yml")));
+    }
+
+    @Test
+    void readJsonStream() throws IOException {
+        assertEquals(changes, read(writeStream(Mappers.jsonKebabObjectMapper(), "changes.jsonl")));
+    }
+
+    @Test
+    void readEmptySummary() throws IOException {
+        Path path = tempDir.resolve("changes.yml");
+        Mappers.yamlKebabObjectMapper().writeValue(path.toFile(), new ChangesSummary(3, List.of()));
+        assertEquals(List.of(), read(path));
+    }
+
+    @Test
+    void readInvalidFile() throws IOException {
+        Path path = tempDir.resolve("changes.yml");
+        Files.writeString(path, "- not a changes file");
+        ChangesFileReader changesFileReader = new ChangesFileReader(path.toFile());
+        assertThrows(RbacDataError.class, () -> changesFileReader.forEach(x -> {
+        }));
+    }
+
+    @Test
+    void readStreamWithoutTrailer() throws IOException {
+        Path path = tempDir.resolve("changes.yml");
+        try (OutputStream outputStream = Files.newOutputStream(path);
+                ChangesStreamWriter writer = new ChangesStreamWriter(Mappers.yamlKebabObjectMapper(), outputStream, 3)) {
+            changes.forEach(writer::write);
+        }
+        assertThrows(RbacDataError.class, () -> new ChangesFileReader(path.toFile()).validate());
+    }
+
+    @Test
+    void readStreamWithWrongTotal() throws IOException {
+        Path path = tempDir.resolve("changes.jsonl");
+        ObjectMapper objectMapper = Mappers.jsonKebabObjectMapper();
+        Files.writeString(path, objectMapper.writeValueAsString(changes.get(0)) + "\n"
+                + objectMapper.writeValueAsString(new ChangesTrailer(3, 2)) + "\n");
+        assertThrows(RbacDataError.class, () -> new ChangesFileReader(path.toFile()).validate());
+    }
+
+    @Test
+    void readTruncatedYamlStream() throws IOException {
+        Path path = writeStream(Mappers.yamlKebabObjectMapper(), "changes.yml");
+        String stream = Files.readString(path);
+        Files.writeString(path, stream.substring(0, stream.indexOf("role-b")));
+        assertThrows(RbacDataError.class, () -> new ChangesFileReader(path.toFile()).validate());
+    }
+
+    @Test
+    void readTruncatedJsonStream() throws IOException {
+        Path path = writeStream(Mappers.jsonKebabObjectMapper(), "changes.jsonl");
+        String stream = Files.readString(path);
+        Files.writeString(path, stream.substring(0, stream.indexOf("role-b") + 3));
+        assertThrows(RbacDataError.class, () -> new ChangesFileReader(path.toFile()).validate());
+    }
+
+    @Test
+    void readTruncatedSummary() throws IOException {
+        Path path = writeSummary(Mappers.yamlKebabObjectMapper(), "changes.yml");
+        String summary = Files.readString(path);
+        Files.writeString(path, summary.substring(0, summary.indexOf("total-changes")));
+        assertThrows(RbacDataError.class, () -> new ChangesFileReader(path.toFile()).validate());
+    }
+
+    @Test
+    void readEmptyFile() throws IOException {
+        Path path = tempDir.resolve("changes.yml");
+        Files.writeString(path, "");
+        assertThrows(RbacDataError.class, () -> new ChangesFileReader(path.toFile()).validate());
+    }
+}
@@ -0,0 +1,73 @@
+package us.zoom.data.dfence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChangesStreamWriterTest {
+
+    private final List<CompiledChanges> changes = List.of(
+            new CompiledChanges("role-a", "ROLE_A", List.of(), List.of("create role ROLE_A;"), List.of()),
+            new CompiledChanges(
+                    "role-b",
+                    "ROLE_B",
+                    List.of(),
+                    List.of(),
+                    List.of(List.of("grant usage on database DB to role ROLE_B;"))));
+
+    private String write(ObjectMapper objectMapper) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ChangesStreamWriter writer = new ChangesStreamWriter(objectMapper, outputStream, 3)) {
+            changes.forEach(writer::write);
+            writer.finish();
+        }
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    private List<JsonNode> read(ObjectMapper objectMapper, String output) throws IOException {
+        try (MappingIterator<JsonNode> iterator = objectMapper.readerFor(JsonNode.class).readValues(output)) {
+            return iterator.readAll();
+        }
+    }
+
+    @Test
+    void writeJsonLines() throws IOException {
+        ObjectMapper objectMapper = Mappers.jsonKebabObjectMapper();
+        String output = write(objectMapper);
+        List<String> lines = output.lines().toList();
+        assertEquals(3, lines.size());
+        assertEquals(changes.get(0), objectMapper.readValue(lines.get(0), CompiledChanges.class));
+        assertEquals(changes.get(1), objectMapper.readValue(lines.get(1), CompiledChanges.class));
+        assertEquals(new ChangesTrailer(3, 2), objectMapper.readValue(lines.get(2), ChangesTrailer.class));
+    }
+
+    @Test
+    void writeYamlDocuments() throws IOException {
+        ObjectMapper objectMapper = Mappers.yamlKebabObjectMapper();
+        List<JsonNode> documents = read(objectMapper, write(objectMapper));
+        assertEquals(3, documents.size());
+        assertEquals("ROLE_A", documents.get(0).get("role-name").asText());
+        assertEquals("ROLE_B", documents.get(1).get("role-name").asText());
+        assertEquals(new ChangesTrailer(3, 2), objectMapper.treeToValue(documents.get(2), ChangesTrailer.class));
+    }
+
+    @Test
+    void noTrailerWithoutFinish() throws IOException {
+        ObjectMapper objectMapper = Mappers.jsonKebabObjectMapper();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ChangesStreamWriter writer = new ChangesStreamWriter(objectMapper, outputStream, 3)) {
+            writer.write(changes.get(0));
+        }
+        List<String> lines = outputStream.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(1, lines.size());
+        assertEquals("ROLE_A", objectMapper.readTree(lines.get(0)).get("role-name").asText());
+    }
+}
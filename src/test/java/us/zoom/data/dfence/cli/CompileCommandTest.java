@@ -3,9 +3,12 @@ package us.zoom.data.dfence.cli;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import us.zoom.data.dfence.ChangesSummary;
 import us.zoom.data.dfence.EnvironmentService;
+import us.zoom.data.dfence.exception.RbacDataError;
 import us.zoom.data.dfence.playbook.PlaybookService;
 import us.zoom.data.dfence.playbook.PlaybookServiceBuilder;
 import us.zoom.data.dfence.playbook.model.PlaybookModel;
@@ -15,11 +18,19 @@ import us.zoom.data.dfence.providers.snowflake.*;
 import us.zoom.data.dfence.providers.snowflake.informationschema.SnowflakeObjectsService;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 class CompileCommandTest {
@@ -107,4 +118,34 @@ class CompileCommandTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void accountOutputFile() {
+        assertEquals(
+                new File("out/changes.prd.yml").getAbsoluteFile(),
+                CompileCommand.accountOutputFile(new File("out/changes.yml"), "prd"));
+        assertEquals(
+                new File("changes.prd").getAbsoluteFile(),
+                CompileCommand.accountOutputFile(new File("changes"), "prd"));
+    }
+
+    @Test
+    void compileAccountsDeletesTheOutputFileOfAFailedProfile(@TempDir Path tempDir) throws IOException {
+        Path devFile = tempDir.resolve("changes.dev.yml");
+        Path prdFile = tempDir.resolve("changes.prd.yml");
+        Files.writeString(devFile, "stale");
+        Files.writeString(prdFile, "stale");
+        PlaybookService devService = mock(PlaybookService.class);
+        when(devService.compileChanges(any())).thenReturn(new ChangesSummary(0, List.of()));
+        PlaybookService prdService = mock(PlaybookService.class);
+        when(prdService.compileChanges(any())).thenThrow(new RbacDataError("Unable to connect."));
+        compileCommand.setOutputFormat(OutputFormat.YAML);
+        compileCommand.setOutputFile(tempDir.resolve("changes.yml").toFile());
+
+        assertThrows(
+                RbacDataError.class,
+                () -> compileCommand.compileAccounts(Map.of("dev", devService, "prd", prdService)));
+
+        assertNotEquals("stale", Files.readString(devFile));
+        assertFalse(Files.exists(prdFile));
+    }
+}
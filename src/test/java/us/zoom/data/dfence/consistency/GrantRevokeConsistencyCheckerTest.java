@@ -11,12 +11,15 @@ import us.zoom.data.dfence.providers.snowflake.grant.builder.options.SnowflakeGr
 import us.zoom.data.dfence.providers.snowflake.grant.desired.create.DesiredGrantsCompiler;
 import us.zoom.data.dfence.providers.snowflake.informationschema.SnowflakeObjectsService;
 import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
+import us.zoom.data.dfence.providers.snowflake.revoke.evaluator.GrantRevocationEvaluator;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -144,5 +147,69 @@ class GrantRevokeConsistencyCheckerTest {
         error.getMessage().contains("Grant-revoke consistency check failed for role ROLE1"),
         () -> "Expected wrapper error message. Actual: " + error.getMessage());
   }
-}
 
+  @Test
+  @DisplayName("verifiedEvaluator should return an evaluator that revokes grants outside the playbook")
+  void verifiedEvaluator_returnsEvaluatorForRevokes() {
+    PlaybookPrivilegeGrant playbookGrant =
+        new PlaybookPrivilegeGrant(
+            "table", "MY_TABLE", "MY_SCHEMA", "MY_DB", List.of("SELECT"), false, false, true);
+    SnowflakeGrantModel desiredGrantModel = tableGrant("MY_TABLE");
+
+    GrantRevocationEvaluator evaluator =
+        GrantRevokeConsistencyChecker.verifiedEvaluator(
+            List.of(playbookGrant),
+            List.of(
+                new SnowflakePermissionGrantBuilder(
+                    desiredGrantModel, new SnowflakeGrantBuilderOptions())),
+            "ROLE1");
+
+    assertFalse(evaluator.needsRevoke(desiredGrantModel));
+    assertTrue(evaluator.needsRevoke(tableGrant("OTHER_TABLE")));
+  }
+
+  @Test
+  @DisplayName("check should throw when one of many desired grants would be revoked")
+  void check_throwsWhenOneOfManyDesiredGrantsWouldBeRevoked() {
+    List<PlaybookPrivilegeGrant> playbookGrants = new ArrayList<>();
+    List<SnowflakeGrantBuilder> desiredGrantBuilders = new ArrayList<>();
+    for (int i = 0; i < GrantRevokeConsistencyChecker.PARALLEL_THRESHOLD; i++) {
+      playbookGrants.add(
+          new PlaybookPrivilegeGrant(
+              "table", "TABLE_" + i, "MY_SCHEMA", "MY_DB", List.of("SELECT"), false, false, true));
+      desiredGrantBuilders.add(
+          new SnowflakePermissionGrantBuilder(
+              tableGrant("TABLE_" + i), new SnowflakeGrantBuilderOptions()));
+    }
+    assertDoesNotThrow(
+        () ->
+            GrantRevokeConsistencyChecker.verifiedEvaluator(
+                playbookGrants, desiredGrantBuilders, "ROLE1"));
+
+    desiredGrantBuilders.add(
+        new SnowflakePermissionGrantBuilder(
+            tableGrant("OTHER_TABLE"), new SnowflakeGrantBuilderOptions()));
+
+    RbacDataError error =
+        assertThrows(
+            RbacDataError.class,
+            () ->
+                GrantRevokeConsistencyChecker.verifiedEvaluator(
+                    playbookGrants, desiredGrantBuilders, "ROLE1"));
+    assertTrue(
+        error.getCause().getMessage().contains("OTHER_TABLE"),
+        () -> "Expected the inconsistent grant in the cause. Actual: " + error.getCause().getMessage());
+  }
+
+  private static SnowflakeGrantModel tableGrant(String tableName) {
+    return new SnowflakeGrantModel(
+        "SELECT",
+        "TABLE",
+        "\"MY_DB\".\"MY_SCHEMA\".\"" + tableName + "\"",
+        "ROLE",
+        "ROLE1",
+        false,
+        false,
+        false);
+  }
+}
@@ -0,0 +1,67 @@
+package us.zoom.data.dfence.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void timer() {
+        Timer timer = Metrics.timer("test.timer", "stage", "timer");
+        assertSame(timer, Metrics.timer("test.timer", "stage", "timer"));
+        timer.reset();
+        timer.record(1_000_000_000L);
+        timer.record(3_000_000_000L);
+        assertEquals("done", timer.record(() -> "done"));
+        assertEquals(3, timer.count());
+        assertTrue(timer.totalNanos() >= 4_000_000_000L);
+        assertEquals(3_000_000_000L, timer.maxNanos());
+    }
+
+    @Test
+    void snapshot() {
+        Counter counter = Metrics.counter("test.snapshot", "result", "hit");
+        counter.reset();
+        counter.increment(5);
+        Metrics.gauge("test.snapshot.gauge", 0.5);
+        MetricsSnapshot snapshot = Metrics.snapshot();
+        assertTrue(snapshot.counters().contains(
+                new MetricsSnapshot.CounterValue("test.snapshot", Map.of("result", "hit"), 5)));
+        assertTrue(snapshot.gauges().contains(new MetricsSnapshot.GaugeValue("test.snapshot.gauge", Map.of(), 0.5)));
+    }
+
+    @Test
+    void invalidTags() {
+        assertThrows(IllegalArgumentException.class, () -> Metrics.counter("test.invalid", "key"));
+    }
+
+    @Test
+    void writePrometheus() throws IOException {
+        Counter counter = Metrics.counter("test.prometheus", "role", "quoted\"role");
+        counter.reset();
+        counter.increment();
+        Path path = tempDir.resolve("metrics.prom");
+        MetricsWriter.write(Metrics.snapshot(), path);
+        assertTrue(Files.readString(path).contains("dfence_test_prometheus_total{role=\"quoted\\\"role\"} 1\n"));
+    }
+
+    @Test
+    void writeJson() throws IOException {
+        Metrics.timer("test.json").record(2_000_000_000L);
+        Path path = tempDir.resolve("metrics.json");
+        MetricsWriter.write(Metrics.snapshot(), path);
+        String json = Files.readString(path);
+        assertTrue(json.contains("\"name\" : \"test.json\""));
+        assertTrue(json.contains("\"total-seconds\""));
+    }
+}
@@ -3,9 +3,11 @@ package us.zoom.data.dfence.playbook;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import us.zoom.data.dfence.EnvironmentService;
+import us.zoom.data.dfence.exception.RbacDataError;
 import us.zoom.data.dfence.playbook.model.PlaybookModel;
 import us.zoom.data.dfence.playbook.model.PlaybookPrivilegeGrant;
 import us.zoom.data.dfence.playbook.model.PlaybookRoleModel;
@@ -13,11 +15,18 @@ import us.zoom.data.dfence.providers.snowflake.*;
 import us.zoom.data.dfence.providers.snowflake.informationschema.SnowflakeObjectsService;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
 class PlaybookServiceBuilderTest {
@@ -30,6 +39,9 @@ class PlaybookServiceBuilderTest {
 
     File variablesFile;
 
+    @TempDir
+    Path tempDir;
+
     @Mock
     EnvironmentService environmentService;
     AutoCloseable mocks;
@@ -152,4 +164,48 @@ class PlaybookServiceBuilderTest {
         assertEquals(playbookServiceExpected.getProvider(), playbookService.getProvider());
     }
 
-}
\ No newline at end of file
+    @Test
+    void playbookFilesAreOrderedByPath() throws IOException {
+        Files.createDirectories(tempDir.resolve("a"));
+        Files.writeString(tempDir.resolve("b.yml"), "b");
+        Files.writeString(tempDir.resolve("a/c.yaml"), "c");
+        Files.writeString(tempDir.resolve("a.yml"), "a");
+        Files.writeString(tempDir.resolve("ignored.txt"), "ignored");
+        PlaybookServiceBuilder playbookServiceBuilder = new PlaybookServiceBuilder()
+                .setPlaybookYamlStrings(tempDir.toFile());
+        assertEquals(List.of("a", "c", "b"), playbookServiceBuilder.getPlaybookYamlStrings());
+    }
+
+    @Test
+    void buildNamesInvalidPlaybookFile() throws IOException {
+        Files.copy(rolesFile.toPath(), tempDir.resolve("roles.yml"));
+        Path invalidFile = tempDir.resolve("invalid.yml");
+        Files.writeString(invalidFile, "roles: [");
+        PlaybookServiceBuilder playbookServiceBuilder = new PlaybookServiceBuilder()
+                .setEnvironmentService(this.environmentService)
+                .setPlaybookYamlStrings(tempDir.toFile())
+                .setProfilesYamlString(profilesFile)
+                .putAllVariablesFile(variablesFile)
+                .putAllVariablesFromEnvironment();
+        RbacDataError error = assertThrows(RbacDataError.class, playbookServiceBuilder::build);
+        assertTrue(error.getMessage().contains(invalidFile.toString()), error.getMessage());
+    }
+
+    @Test
+    void buildAllSharesPlaybook() {
+        File twoAccountsProfilesFile = new File(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("test-data/project/profiles-two-accounts.yml")).getFile());
+        Map<String, PlaybookService> playbookServices = new PlaybookServiceBuilder()
+                .setEnvironmentService(this.environmentService)
+                .setPlaybookYamlStrings(this.rolesFile)
+                .setProfilesYamlString(twoAccountsProfilesFile)
+                .putAllVariablesFile(variablesFile)
+                .putAllVariablesFromEnvironment()
+                .buildAll(List.of("prd", "dev"));
+        assertEquals(List.of("prd", "dev"), List.copyOf(playbookServices.keySet()));
+        PlaybookService prd = playbookServices.get("prd");
+        PlaybookService dev = playbookServices.get("dev");
+        assertSame(prd.getPlaybookModel(), dev.getPlaybookModel());
+        assertNotEquals(prd.getProvider(), dev.getProvider());
+    }
+}
@@ -0,0 +1,112 @@
+package us.zoom.data.dfence.playbook;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import us.zoom.data.dfence.ChangesFileReader;
+import us.zoom.data.dfence.ChangesStreamWriter;
+import us.zoom.data.dfence.ChangesSummary;
+import us.zoom.data.dfence.CompiledChanges;
+import us.zoom.data.dfence.Mappers;
+import us.zoom.data.dfence.Provider;
+import us.zoom.data.dfence.exception.RbacDataError;
+import us.zoom.data.dfence.playbook.model.PlaybookModel;
+import us.zoom.data.dfence.playbook.model.PlaybookRoleModel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PlaybookServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void applyChangesFileCreatesRolesBeforeGrants() throws IOException {
+        CompiledChanges grantsOnly = new CompiledChanges(
+                "role-a",
+                "ROLE_A",
+                List.of(),
+                List.of(),
+                List.of(List.of("grant role ROLE_B to role ROLE_A;")));
+        CompiledChanges createdRole = new CompiledChanges(
+                "role-b",
+                "ROLE_B",
+                List.of(),
+                List.of("create role ROLE_B;"),
+                List.of());
+        Path path = tempDir.resolve("changes.yml");
+        Mappers.yamlKebabObjectMapper().writeValue(path.toFile(), new ChangesSummary(2, List.of(grantsOnly, createdRole)));
+        Provider provider = Mockito.mock(Provider.class);
+        PlaybookService playbookService = new PlaybookService(provider, new PlaybookModel(Map.of()));
+
+        assertEquals(2, playbookService.applyChanges(new ChangesFileReader(path.toFile())));
+
+        InOrder inOrder = inOrder(provider);
+        inOrder.verify(provider).applyRolesChanges(List.of(createdRole));
+        inOrder.verify(provider).applyPrivilegeChanges(List.of(grantsOnly, createdRole));
+    }
+
+    @Test
+    void applyChangesFileAppliesNothingFromAnIncompleteStream() throws IOException {
+        CompiledChanges createdRole = new CompiledChanges(
+                "role-b",
+                "ROLE_B",
+                List.of(),
+                List.of("create role ROLE_B;"),
+                List.of());
+        Path path = tempDir.resolve("changes.yml");
+        try (OutputStream outputStream = Files.newOutputStream(path);
+                ChangesStreamWriter writer = new ChangesStreamWriter(Mappers.yamlKebabObjectMapper(), outputStream, 2)) {
+            writer.write(createdRole);
+        }
+        Provider provider = Mockito.mock(Provider.class);
+        PlaybookService playbookService = new PlaybookService(provider, new PlaybookModel(Map.of()));
+
+        assertThrows(RbacDataError.class, () -> playbookService.applyChanges(new ChangesFileReader(path.toFile())));
+        verifyNoInteractions(provider);
+    }
+
+    @Test
+    void compileChangedRolesRecompilesRolesUntilInSync() {
+        Path fingerprintsFile = tempDir.resolve("changes.yml.fingerprints.json");
+        PlaybookModel playbookModel = new PlaybookModel(Map.of(
+                "role-a", new PlaybookRoleModel("ROLE_A", List.of()),
+                "role-b", new PlaybookRoleModel("ROLE_B", List.of())));
+        CompiledChanges roleAChanges = new CompiledChanges("role-a", "ROLE_A", List.of(), List.of("create role ROLE_A;"), List.of());
+        Provider provider = Mockito.mock(Provider.class);
+        when(provider.compileChanges(eq(playbookModel), anyBoolean(), eq(Set.of("role-a", "role-b"))))
+                .thenReturn(List.of(roleAChanges));
+        when(provider.compileChanges(eq(playbookModel), anyBoolean(), eq(Set.of("role-a"))))
+                .thenReturn(List.of());
+        PlaybookService playbookService = new PlaybookService(provider, playbookModel);
+
+        ChangesSummary first = playbookService.compileChangedRoles(false, fingerprintsFile);
+        assertEquals(new ChangesSummary(2, List.of(roleAChanges)), first);
+
+        ChangesSummary second = playbookService.compileChangedRoles(false, fingerprintsFile);
+        assertEquals(new ChangesSummary(1, List.of()), second);
+        verify(provider).compileChanges(eq(playbookModel), anyBoolean(), eq(Set.of("role-a")));
+
+        ChangesSummary third = playbookService.compileChangedRoles(false, fingerprintsFile);
+        assertEquals(new ChangesSummary(0, List.of()), third);
+        verify(provider, never()).compileChanges(any(PlaybookModel.class), anyBoolean(), eq(Set.of()));
+    }
+}
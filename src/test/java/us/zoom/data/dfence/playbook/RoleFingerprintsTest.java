@@ -0,0 +1,114 @@
+package us.zoom.data.dfence.playbook;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import us.zoom.data.dfence.playbook.model.PlaybookModel;
+import us.zoom.data.dfence.playbook.model.PlaybookPrivilegeGrant;
+import us.zoom.data.dfence.playbook.model.PlaybookRoleModel;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RoleFingerprintsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static PlaybookPrivilegeGrant grant(String databaseName, String privilege) {
+        return new PlaybookPrivilegeGrant("schema", "*", null, databaseName, List.of(privilege), true, true, true);
+    }
+
+    private static PlaybookModel playbook(PlaybookRoleModel... roles) {
+        Map<String, PlaybookRoleModel> roleModels = new TreeMap<>();
+        for (PlaybookRoleModel role : roles) {
+            roleModels.put(role.name().toLowerCase().replace('_', '-'), role);
+        }
+        return new PlaybookModel(roleModels);
+    }
+
+    private final PlaybookRoleModel roleA = new PlaybookRoleModel("ROLE_A", List.of(grant("db_a", "usage")));
+    private final PlaybookRoleModel roleB = new PlaybookRoleModel("ROLE_B", List.of(grant("db_b", "usage")));
+
+    @Test
+    void unchangedRolesAreNotCompiled() {
+        PlaybookModel playbookModel = playbook(roleA, roleB);
+        Map<String, String> versions = Map.of("DB_A", "v1", "DB_B", "v1");
+        assertEquals(
+                Set.of(),
+                RoleFingerprints.changedRoleIds(
+                        RoleFingerprints.fingerprint(playbookModel, versions),
+                        RoleFingerprints.fingerprint(playbookModel, versions)));
+    }
+
+    @Test
+    void changedRoleIsCompiled() {
+        Map<String, String> versions = Map.of("DB_A", "v1", "DB_B", "v1");
+        PlaybookRoleModel changedRoleB = new PlaybookRoleModel("ROLE_B", List.of(grant("db_b", "monitor")));
+        assertEquals(
+                Set.of("role-b"),
+                RoleFingerprints.changedRoleIds(
+                        RoleFingerprints.fingerprint(playbook(roleA, roleB), versions),
+                        RoleFingerprints.fingerprint(playbook(roleA, changedRoleB), versions)));
+    }
+
+    @Test
+    void roleWithChangedDatabaseIsCompiled() {
+        PlaybookModel playbookModel = playbook(roleA, roleB);
+        assertEquals(
+                Set.of("role-a"),
+                RoleFingerprints.changedRoleIds(
+                        RoleFingerprints.fingerprint(playbookModel, Map.of("DB_A", "v1", "DB_B", "v1")),
+                        RoleFingerprints.fingerprint(playbookModel, Map.of("DB_A", "v2", "DB_B", "v1"))));
+    }
+
+    @Test
+    void newRoleCompilesAllRoles() {
+        Map<String, String> versions = Map.of("DB_A", "v1", "DB_B", "v1");
+        PlaybookRoleModel roleC = new PlaybookRoleModel("ROLE_C", List.of());
+        assertEquals(
+                Set.of("role-a", "role-b", "role-c"),
+                RoleFingerprints.changedRoleIds(
+                        RoleFingerprints.fingerprint(playbook(roleA, roleB), versions),
+                        RoleFingerprints.fingerprint(playbook(roleA, roleB, roleC), versions)));
+    }
+
+    @Test
+    void roleFingerprintedLongerAgoThanTheMaxAgeIsCompiled() {
+        PlaybookModel playbookModel = playbook(roleA, roleB);
+        Map<String, String> versions = Map.of("DB_A", "v1", "DB_B", "v1");
+        Instant compiledAt = Instant.parse("2024-01-01T00:00:00Z");
+        Map<String, RoleFingerprints.RoleFingerprint> previous = RoleFingerprints.fingerprint(playbookModel, versions, compiledAt);
+        assertEquals(
+                Set.of(),
+                RoleFingerprints.changedRoleIds(
+                        previous,
+                        RoleFingerprints.fingerprint(playbookModel, versions, compiledAt.plus(Duration.ofMinutes(59))),
+                        Duration.ofHours(1)));
+        assertEquals(
+                Set.of("role-a", "role-b"),
+                RoleFingerprints.changedRoleIds(
+                        previous,
+                        RoleFingerprints.fingerprint(playbookModel, versions, compiledAt.plus(Duration.ofHours(1))),
+                        Duration.ofHours(1)));
+    }
+
+    @Test
+    void saveAndLoad() throws Exception {
+        Path path = tempDir.resolve("changes.yml.fingerprints.json");
+        Map<String, RoleFingerprints.RoleFingerprint> fingerprints = RoleFingerprints.fingerprint(
+                playbook(roleA, roleB),
+                Map.of("DB_A", "v1"));
+        RoleFingerprints.save(path, fingerprints);
+        assertEquals(fingerprints, RoleFingerprints.load(path));
+        Files.writeString(path, "not fingerprints");
+        assertEquals(Map.of(), RoleFingerprints.load(path));
+    }
+}
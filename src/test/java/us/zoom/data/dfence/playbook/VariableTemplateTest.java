@@ -0,0 +1,48 @@
+package us.zoom.data.dfence.playbook;
+
+import org.junit.jupiter.api.Test;
+import us.zoom.data.dfence.exception.VariableNotFoundException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VariableTemplateTest {
+
+    @Test
+    void renderAgainstSeveralVariableSets() {
+        VariableTemplate template = VariableTemplate.compile("name: ${var.env}_role\nowner: ${var.owner-role}");
+        assertEquals(List.of("env", "owner-role"), template.variableNames());
+        assertEquals("name: dev_role\nowner: sysadmin", template.render(Map.of("env", "dev", "owner-role", "sysadmin")));
+        assertEquals("name: prd_role\nowner: admin", template.render(Map.of("env", "prd", "owner-role", "admin")));
+    }
+
+    @Test
+    void valuesAreLiteral() {
+        VariableTemplate template = VariableTemplate.compile("password: ${var.password}");
+        assertEquals("password: a$1b\\c", template.render(Map.of("password", "a$1b\\c")));
+    }
+
+    @Test
+    void invalidReferencesAreLiteral() {
+        String value = "${var.UPPER} ${var.} ${var.open ${var.ok} ${var.ok";
+        assertEquals("${var.UPPER} ${var.} ${var.open x ${var.ok", VariableTemplate.compile(value).render(Map.of("ok", "x")));
+    }
+
+    @Test
+    void noVariables() {
+        assertEquals("plain", VariableTemplate.compile("plain").render(Map.of()));
+        assertEquals("", VariableTemplate.compile("").render(Map.of()));
+    }
+
+    @Test
+    void missingVariable() {
+        VariableTemplate template = VariableTemplate.compile("${var.present} ${var.missing}");
+        VariableNotFoundException error = assertThrows(
+                VariableNotFoundException.class,
+                () -> template.render(Map.of("present", "x")));
+        assertEquals("variable missing not found", error.getMessage());
+    }
+}
@@ -1,8 +1,11 @@
 package us.zoom.data.dfence.providers.snowflake;
 
+import net.snowflake.client.jdbc.SnowflakeStatement;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -17,10 +20,13 @@ import us.zoom.data.dfence.test.fixtures.resultset.MockResultSet.I;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class SnowflakeGrantsServiceTest {
@@ -272,4 +278,260 @@ class SnowflakeGrantsServiceTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @CsvSource(
+            value = {
+                    "ROLE;;;MOCK_ROLE;\"MOCK_ROLE\"",
+                    "DATABASE;;;mock_db;\"mock_db\"",
+                    "SCHEMA;MOCK_DB;;MOCK_SCHEMA;\"MOCK_DB\".\"MOCK_SCHEMA\"",
+                    "TABLE;MOCK_DB;MOCK_SCHEMA;MOCK_TABLE;\"MOCK_DB\".\"MOCK_SCHEMA\".\"MOCK_TABLE\"",
+                    "PROCEDURE;MOCK_DB;MOCK_SCHEMA;MOCK_PROC(VARCHAR, NUMBER);\"MOCK_DB\".\"MOCK_SCHEMA\".\"MOCK_PROC\"(VARCHAR, NUMBER)",
+                    "PROCEDURE;MOCK_DB;MOCK_SCHEMA;MOCK_PROC(A VARCHAR):VARCHAR;\"MOCK_DB\".\"MOCK_SCHEMA\".\"MOCK_PROC(A VARCHAR):VARCHAR\""},
+            delimiter = ';')
+    void accountUsageObjectName(String grantedOn, String catalog, String schema, String name, String expected) {
+        assertEquals(expected, SnowflakeGrantsService.accountUsageObjectName(grantedOn, catalog, schema, name));
+    }
+
+    @Test
+    void getGrantsFromSnapshot() throws SQLException {
+        SnowflakeGrantsService snapshotGrantsService = new SnowflakeGrantsService(snowflakeConnectionService, true, 120);
+        Statement grantsToRolesStatement = Mockito.mock(Statement.class);
+        Statement futureGrantsStatement = Mockito.mock(Statement.class);
+        SnowflakeStatement futureGrantsSnowflakeStatement = Mockito.mock(SnowflakeStatement.class);
+        when(snowflakeConnection.createStatement()).thenReturn(grantsToRolesStatement, futureGrantsStatement);
+        when(futureGrantsStatement.unwrap(SnowflakeStatement.class)).thenReturn(futureGrantsSnowflakeStatement);
+        List grantsToRolesColumnNames = List.of(
+                "privilege",
+                "granted_on",
+                "table_catalog",
+                "table_schema",
+                "name",
+                "granted_to",
+                "grantee_name",
+                "grant_option",
+                "deleted",
+                "recently_changed",
+                "view_behind");
+        when(grantsToRolesStatement.getResultSet()).thenReturn(new MockResultSet(
+                List.of(
+                        List.of(
+                                new I("SELECT"),
+                                new I("TABLE"),
+                                new I("MOCK_DB"),
+                                new I("MOCK_SCHEMA"),
+                                new I("MOCK_TABLE"),
+                                new I("ROLE"),
+                                new I("MOCK_ROLE"),
+                                new I(false),
+                                new I(false),
+                                new I(false),
+                                new I(false)),
+                        List.of(
+                                new I("SELECT"),
+                                new I("TABLE"),
+                                new I("MOCK_DB"),
+                                new I("MOCK_SCHEMA"),
+                                new I("OTHER_TABLE"),
+                                new I("ROLE"),
+                                new I("CHANGED_ROLE"),
+                                new I(false),
+                                new I(false),
+                                new I(true),
+                                new I(false)),
+                        List.of(
+                                new I("SELECT"),
+                                new I("TABLE"),
+                                new I("MOCK_DB"),
+                                new I("MOCK_SCHEMA"),
+                                new I("MOCK_TABLE"),
+                                new I("ROLE"),
+                                new I("UNMANAGED_ROLE"),
+                                new I(false),
+                                new I(false),
+                                new I(false),
+                                new I(false))),
+                grantsToRolesColumnNames));
+        List futureColumnNames = List.of(
+                "privilege",
+                "grant_on",
+                "name",
+                "grant_to",
+                "grantee_name",
+                "grant_option");
+        when(futureGrantsStatement.getResultSet()).thenReturn(new MockResultSet(
+                List.of(List.of(
+                        new I("SELECT"),
+                        new I("TABLE"),
+                        new I("MOCK_DB.MOCK_SCHEMA.<TABLE>"),
+                        new I("ROLE"),
+                        new I("MOCK_ROLE"),
+                        new I(false))),
+                futureColumnNames));
+        when(futureGrantsStatement.getMoreResults()).thenReturn(false);
+
+        snapshotGrantsService.loadGrantSnapshot(List.of("mock_role", "changed_role"));
+
+        verify(futureGrantsSnowflakeStatement).setParameter("MULTI_STATEMENT_COUNT", 1);
+        verify(futureGrantsStatement).execute("show future grants to role \"MOCK_ROLE\";");
+        Map<String, SnowflakeGrantBuilder> actual = snapshotGrantsService.getGrants("mock_role", false);
+        SnowflakeGrantBuilder currentGrant = SnowflakeGrantBuilder.fromGrant(
+                new SnowflakeGrantModel(
+                        "SELECT",
+                        "TABLE",
+                        "MOCK_DB.MOCK_SCHEMA.MOCK_TABLE",
+                        "ROLE",
+                        "MOCK_ROLE",
+                        false,
+                        false,
+                        false), false);
+        SnowflakeGrantBuilder futureGrant = SnowflakeGrantBuilder.fromGrant(
+                new SnowflakeGrantModel(
+                        "SELECT",
+                        "TABLE",
+                        "MOCK_DB.MOCK_SCHEMA.<TABLE>",
+                        "ROLE",
+                        "MOCK_ROLE",
+                        false,
+                        true,
+                        false), false);
+        assertEquals(Map.of(currentGrant.getKey(), currentGrant, futureGrant.getKey(), futureGrant), actual);
+        // Only the snapshot queries ran. The role was not read with show grants.
+        verify(snowflakeConnection, times(2)).createStatement();
+    }
+
+    @Test
+    void getGrantsFromSnapshotKeepsRawRoleNamesApart() throws SQLException {
+        SnowflakeGrantsService snapshotGrantsService = new SnowflakeGrantsService(snowflakeConnectionService, true, 120);
+        Statement grantsToRolesStatement = Mockito.mock(Statement.class);
+        Statement futureGrantsStatement = Mockito.mock(Statement.class);
+        SnowflakeStatement futureGrantsSnowflakeStatement = Mockito.mock(SnowflakeStatement.class);
+        when(snowflakeConnection.createStatement()).thenReturn(grantsToRolesStatement, futureGrantsStatement);
+        when(futureGrantsStatement.unwrap(SnowflakeStatement.class)).thenReturn(futureGrantsSnowflakeStatement);
+        when(grantsToRolesStatement.getResultSet()).thenReturn(new MockResultSet(
+                List.of(
+                        grantsToRolesRow("MOCK_TABLE", "ANALYST"),
+                        grantsToRolesRow("OTHER_TABLE", "analyst"),
+                        grantsToRolesRow("SCIM_TABLE", "my role")),
+                List.of(
+                        "privilege",
+                        "granted_on",
+                        "table_catalog",
+                        "table_schema",
+                        "name",
+                        "granted_to",
+                        "grantee_name",
+                        "grant_option",
+                        "deleted",
+                        "recently_changed",
+                        "view_behind")));
+        when(futureGrantsStatement.getResultSet()).thenReturn(new MockResultSet(
+                List.of(),
+                List.of("privilege", "grant_on", "name", "grant_to", "grantee_name", "grant_option")));
+        when(futureGrantsStatement.getMoreResults()).thenReturn(false);
+
+        snapshotGrantsService.loadGrantSnapshot(List.of("analyst"));
+
+        verify(futureGrantsStatement).execute("show future grants to role \"ANALYST\";");
+        SnowflakeGrantBuilder currentGrant = SnowflakeGrantBuilder.fromGrant(
+                new SnowflakeGrantModel(
+                        "SELECT",
+                        "TABLE",
+                        "MOCK_DB.MOCK_SCHEMA.MOCK_TABLE",
+                        "ROLE",
+                        "ANALYST",
+                        false,
+                        false,
+                        false), false);
+        assertEquals(
+                Map.of(currentGrant.getKey(), currentGrant),
+                snapshotGrantsService.getGrants("ANALYST", false));
+    }
+
+    private static List<I> grantsToRolesRow(String tableName, String granteeName) {
+        return List.of(
+                new I("SELECT"),
+                new I("TABLE"),
+                new I("MOCK_DB"),
+                new I("MOCK_SCHEMA"),
+                new I(tableName),
+                new I("ROLE"),
+                new I(granteeName),
+                new I(false),
+                new I(false),
+                new I(false),
+                new I(false));
+    }
+
+    @Test
+    void noSnapshotWhenTheViewIsBehind() throws SQLException {
+        SnowflakeGrantsService snapshotGrantsService = new SnowflakeGrantsService(snowflakeConnectionService, true, 120);
+        Statement grantsToRolesStatement = Mockito.mock(Statement.class);
+        Statement showGrantsStatement = Mockito.mock(Statement.class);
+        when(snowflakeConnection.createStatement()).thenReturn(grantsToRolesStatement, showGrantsStatement);
+        List<I> behindRow = new ArrayList<>(grantsToRolesRow("MOCK_TABLE", "MOCK_ROLE"));
+        behindRow.set(behindRow.size() - 1, new I(true));
+        when(grantsToRolesStatement.getResultSet()).thenReturn(new MockResultSet(
+                List.of(behindRow),
+                List.of(
+                        "privilege",
+                        "granted_on",
+                        "table_catalog",
+                        "table_schema",
+                        "name",
+                        "granted_to",
+                        "grantee_name",
+                        "grant_option",
+                        "deleted",
+                        "recently_changed",
+                        "view_behind")));
+        when(showGrantsStatement.getResultSet()).thenReturn(new MockResultSet(
+                List.of(),
+                List.of("privilege", "granted_on", "name", "granted_to", "grantee_name", "grant_option")));
+
+        snapshotGrantsService.loadGrantSnapshot(List.of("mock_role"));
+        snapshotGrantsService.getGrants("mock_role", false);
+
+        // No future grants were read for a snapshot and the role was read with show grants.
+        verify(showGrantsStatement).execute("show grants to role mock_role;");
+    }
+
+    @Test
+    void snapshotIsNotUsedOnceCleared() throws SQLException {
+        SnowflakeGrantsService snapshotGrantsService = new SnowflakeGrantsService(snowflakeConnectionService, true, 120);
+        Statement grantsToRolesStatement = Mockito.mock(Statement.class);
+        Statement futureGrantsStatement = Mockito.mock(Statement.class);
+        Statement showGrantsStatement = Mockito.mock(Statement.class);
+        SnowflakeStatement futureGrantsSnowflakeStatement = Mockito.mock(SnowflakeStatement.class);
+        when(snowflakeConnection.createStatement())
+                .thenReturn(grantsToRolesStatement, futureGrantsStatement, showGrantsStatement);
+        when(futureGrantsStatement.unwrap(SnowflakeStatement.class)).thenReturn(futureGrantsSnowflakeStatement);
+        when(grantsToRolesStatement.getResultSet()).thenReturn(new MockResultSet(
+                List.of(grantsToRolesRow("MOCK_TABLE", "MOCK_ROLE")),
+                List.of(
+                        "privilege",
+                        "granted_on",
+                        "table_catalog",
+                        "table_schema",
+                        "name",
+                        "granted_to",
+                        "grantee_name",
+                        "grant_option",
+                        "deleted",
+                        "recently_changed",
+                        "view_behind")));
+        when(futureGrantsStatement.getResultSet()).thenReturn(new MockResultSet(
+                List.of(),
+                List.of("privilege", "grant_on", "name", "grant_to", "grantee_name", "grant_option")));
+        when(futureGrantsStatement.getMoreResults()).thenReturn(false);
+        when(showGrantsStatement.getResultSet()).thenReturn(new MockResultSet(
+                List.of(),
+                List.of("privilege", "granted_on", "name", "granted_to", "grantee_name", "grant_option")));
+
+        snapshotGrantsService.loadGrantSnapshot(List.of("mock_role"));
+        snapshotGrantsService.clearGrantSnapshot();
+        snapshotGrantsService.getGrants("mock_role", false);
+
+        verify(showGrantsStatement).execute("show grants to role mock_role;");
+    }
+}
@@ -18,6 +18,9 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 class SnowflakeObjectExistsFilterTest {
@@ -383,4 +386,26 @@ class SnowflakeObjectExistsFilterTest {
                 playbookModel);
         assertEquals(grantBuilderDiffExpected, grantBuilderDiffActual);
     }
-}
\ No newline at end of file
+
+    @Test
+    void existenceIsCheckedOncePerContainer() {
+        when(snowflakeObjectsService.objectExists("MOCK_DB.MOCK_SCHEMA", SnowflakeObjectType.SCHEMA)).thenReturn(true);
+        GrantBuilderDiff grantBuilderDiffIn = new GrantBuilderDiff(
+                List.of(
+                        SnowflakeGrantBuilder.fromGrant(new SnowflakeGrantModel(
+                                "SELECT", "TABLE", "MOCK_DB.MOCK_SCHEMA.<TABLE>", "ROLE", "MOCK_ROLE", false, true, false)),
+                        SnowflakeGrantBuilder.fromGrant(new SnowflakeGrantModel(
+                                "INSERT", "TABLE", "MOCK_DB.MOCK_SCHEMA.<TABLE>", "ROLE", "MOCK_ROLE", false, true, false)),
+                        SnowflakeGrantBuilder.fromGrant(new SnowflakeGrantModel(
+                                "USAGE", "ROLE", "PLAYBOOK_ROLE", "ROLE", "MOCK_ROLE", false, false, false))),
+                List.of(SnowflakeGrantBuilder.fromGrant(new SnowflakeGrantModel(
+                        "SELECT", "VIEW", "MOCK_DB.MOCK_SCHEMA.<VIEW>", "ROLE", "MOCK_ROLE", false, true, false))));
+        SnowflakeObjectExistsFilter filter = new SnowflakeObjectExistsFilter(
+                snowflakeObjectsService,
+                new PlaybookModel(Map.of("playbook-role", new PlaybookRoleModel("playbook_role", List.of()))));
+
+        assertEquals(grantBuilderDiffIn, filter.filterDiff(grantBuilderDiffIn));
+        verify(snowflakeObjectsService, times(1)).objectExists("MOCK_DB.MOCK_SCHEMA", SnowflakeObjectType.SCHEMA);
+        verifyNoMoreInteractions(snowflakeObjectsService);
+    }
+}
@@ -458,4 +458,79 @@ class SnowflakeOwnedObjectFilterTest {
                 playbookModel);
         assertEquals(grantBuilderDiffExpected, grantBuilderDiffActual);
     }
-}
\ No newline at end of file
+
+    @Test
+    void indexMatchesFilters() {
+        PlaybookModel playbookModel = new PlaybookModel(Map.of(
+                "role-a",
+                new PlaybookRoleModel("ROLE_A", List.of(
+                        new PlaybookPrivilegeGrant("table", "owned_table", "schema_1", "db_1", List.of("ownership"), false, false),
+                        new PlaybookPrivilegeGrant("view", "*", "schema_2", "db_1", List.of("ownership"), false, false),
+                        new PlaybookPrivilegeGrant("schema", null, "schema_3", "db_1", List.of("ownership"), false, false))),
+                "role-b",
+                new PlaybookRoleModel("ROLE_B", List.of(
+                        new PlaybookPrivilegeGrant("table", "*", "*", "db_2", List.of("ownership"), false, false),
+                        new PlaybookPrivilegeGrant("database", null, null, "db_3", List.of("ownership"), false, false),
+                        new PlaybookPrivilegeGrant("schema", null, "*", "db_4", List.of("ownership"), false, false),
+                        new PlaybookPrivilegeGrant("table", "owned_table", "schema_1", "db_1", List.of("select"), false, false)))));
+        List<SnowflakeGrantModel> grants = List.of(
+                ownershipGrant("TABLE", "DB_1.SCHEMA_1.OWNED_TABLE", "ROLE_B"),
+                ownershipGrant("TABLE", "DB_1.SCHEMA_1.OWNED_TABLE", "ROLE_A"),
+                ownershipGrant("TABLE", "DB_1.SCHEMA_1.OTHER_TABLE", "ROLE_B"),
+                ownershipGrant("VIEW", "DB_1.SCHEMA_2.ANY_VIEW", "ROLE_B"),
+                ownershipGrant("VIEW", "DB_1.SCHEMA_1.ANY_VIEW", "ROLE_B"),
+                ownershipGrant("TABLE", "DB_2.ANY_SCHEMA.ANY_TABLE", "ROLE_A"),
+                ownershipGrant("TABLE", "DB_2.ANY_SCHEMA.ANY_TABLE", "ROLE_B"),
+                ownershipGrant("SCHEMA", "DB_1.SCHEMA_3", "ROLE_B"),
+                ownershipGrant("SCHEMA", "DB_1.SCHEMA_4", "ROLE_B"),
+                ownershipGrant("SCHEMA", "DB_4.ANY_SCHEMA", "ROLE_A"),
+                ownershipGrant("DATABASE", "DB_3", "ROLE_A"),
+                ownershipGrant("DATABASE", "DB_1", "ROLE_A"),
+                ownershipGrant("FUNCTION", "DB_1.SCHEMA_1.ANY_FUNCTION(VARCHAR)", "ROLE_B"),
+                new SnowflakeGrantModel("SELECT", "TABLE", "DB_1.SCHEMA_1.OWNED_TABLE", "ROLE", "ROLE_B", false, false, false));
+        List<SnowflakeOwnedObjectFilter> filters = SnowflakeOwnedObjectFilter.filtersFromPlaybookModel(playbookModel);
+        SnowflakeOwnedObjectIndex index = SnowflakeOwnedObjectIndex.of(playbookModel);
+        grants.forEach(grant -> assertEquals(
+                filters.stream().anyMatch(f -> !f.keep(grant)),
+                index.ownedByOtherRole(grant),
+                grant.toString()));
+        assertEquals(
+                List.of(true, false, false, true, false, true, false, true, false, true, true, false, false, false),
+                grants.stream().map(index::ownedByOtherRole).toList());
+    }
+
+    @Test
+    void indexMatchesFiltersOnQuotedUpperCaseNames() {
+        PlaybookModel playbookModel = new PlaybookModel(Map.of(
+                "role-a",
+                new PlaybookRoleModel("\"A\"", List.of(
+                        new PlaybookPrivilegeGrant("table", "\"T\"", "\"S\"", "\"D\"", List.of("ownership"), false, false),
+                        new PlaybookPrivilegeGrant("schema", null, "\"S\"", "\"E\"", List.of("ownership"), false, false))),
+                "role-b",
+                new PlaybookRoleModel("B", List.of(
+                        new PlaybookPrivilegeGrant("database", null, null, "F", List.of("ownership"), false, false)))));
+        List<SnowflakeGrantModel> grants = List.of(
+                ownershipGrant("TABLE", "D.S.T", "B"),
+                ownershipGrant("TABLE", "\"D\".\"S\".\"T\"", "B"),
+                ownershipGrant("TABLE", "D.S.T", "A"),
+                ownershipGrant("TABLE", "D.S.T", "\"A\""),
+                ownershipGrant("TABLE", "D.S.\"t\"", "B"),
+                ownershipGrant("SCHEMA", "E.S", "B"),
+                ownershipGrant("SCHEMA", "E.S", "A"),
+                ownershipGrant("DATABASE", "\"F\"", "A"),
+                ownershipGrant("DATABASE", "\"F\"", "\"B\""));
+        List<SnowflakeOwnedObjectFilter> filters = SnowflakeOwnedObjectFilter.filtersFromPlaybookModel(playbookModel);
+        SnowflakeOwnedObjectIndex index = SnowflakeOwnedObjectIndex.of(playbookModel);
+        grants.forEach(grant -> assertEquals(
+                filters.stream().anyMatch(f -> !f.keep(grant)),
+                index.ownedByOtherRole(grant),
+                grant.toString()));
+        assertEquals(
+                List.of(true, true, false, false, false, true, false, true, false),
+                grants.stream().map(index::ownedByOtherRole).toList());
+    }
+
+    private static SnowflakeGrantModel ownershipGrant(String grantedOn, String name, String granteeName) {
+        return new SnowflakeGrantModel("OWNERSHIP", grantedOn, name, "ROLE", granteeName, false, false, false);
+    }
+}
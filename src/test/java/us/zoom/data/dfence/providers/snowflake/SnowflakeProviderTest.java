@@ -17,11 +17,14 @@ import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeObjectType
 import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakePermissionGrantBuilder;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.options.SnowflakeGrantBuilderOptions;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.options.UnsupportedRevokeBehavior;
+import us.zoom.data.dfence.providers.snowflake.grant.store.SnowflakeGrantStore;
 import us.zoom.data.dfence.providers.snowflake.informationschema.SnowflakeObjectsService;
 import us.zoom.data.dfence.providers.snowflake.models.PartitionedGrantStatements;
 import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
@@ -233,9 +236,9 @@ class SnowflakeProviderTest {
     @ParameterizedTest
     @MethodSource("compileRoleChangesTestParamsStream")
     void compileChanges(CompileRoleChangesTestParams params) {
-        when(snowflakeGrantsService.getGrants(
+        when(snowflakeGrantsService.getGrantStore(
                 params.playbookRoleModel.name(),
-                false)).thenReturn(params.mockGetGrantsResult);
+                false)).thenReturn(SnowflakeGrantStore.ofBuilders(params.mockGetGrantsResult.values()));
         when(snowflakeObjectsService.getContainerObjectQualNames(
                 eq(SnowflakeObjectType.ACCOUNT),
                 eq(SnowflakeObjectType.ROLE),
@@ -285,12 +288,10 @@ class SnowflakeProviderTest {
                 false,
                 false,
                 false));
-        when(snowflakeGrantsService.getGrants("role_a", false)).thenReturn(Map.of(
-                extraOwnerGrantSilence.getKey(),
+        when(snowflakeGrantsService.getGrantStore("role_a", false)).thenReturn(SnowflakeGrantStore.ofBuilders(List.of(
                 extraOwnerGrantSilence,
-                extraOwnerGrantRevoke.getKey(),
-                extraOwnerGrantRevoke));
-        when(snowflakeGrantsService.getGrants("role_b", false)).thenReturn(Map.of());
+                extraOwnerGrantRevoke)));
+        when(snowflakeGrantsService.getGrantStore("role_b", false)).thenReturn(new SnowflakeGrantStore(false));
         when(snowflakeObjectsService.getContainerObjectQualNames(
                 eq(SnowflakeObjectType.ACCOUNT),
                 eq(SnowflakeObjectType.ROLE),
@@ -348,12 +349,10 @@ class SnowflakeProviderTest {
                 false,
                 false,
                 false));
-        when(snowflakeGrantsService.getGrants("role_a", false)).thenReturn(Map.of(
-                extraOwnerGrantSilence.getKey(),
+        when(snowflakeGrantsService.getGrantStore("role_a", false)).thenReturn(SnowflakeGrantStore.ofBuilders(List.of(
                 extraOwnerGrantSilence,
-                extraOwnerGrantRevoke.getKey(),
-                extraOwnerGrantRevoke));
-        when(snowflakeGrantsService.getGrants("role_b", false)).thenReturn(Map.of());
+                extraOwnerGrantRevoke)));
+        when(snowflakeGrantsService.getGrantStore("role_b", false)).thenReturn(new SnowflakeGrantStore(false));
         when(snowflakeObjectsService.getContainerObjectQualNames(
                 eq(SnowflakeObjectType.ACCOUNT),
                 eq(SnowflakeObjectType.ROLE),
@@ -419,6 +418,31 @@ class SnowflakeProviderTest {
                 .forEach(x -> verify(snowflakeStatementsService, times(1)).applyStatements(x));
     }
 
+    @Test
+    void applyPrivilegeChangesToRoleUsesIoExecutor() {
+        ExecutorService ioExecutor = Executors.newFixedThreadPool(
+                2,
+                runnable -> new Thread(runnable, "mock-io-thread"));
+        try {
+            SnowflakeProvider ioProvider = new SnowflakeProvider(
+                    snowflakeStatementsService,
+                    snowflakeGrantsService,
+                    snowflakeObjectsService,
+                    ForkJoinPool.commonPool(),
+                    ioExecutor);
+            Set<String> threadNames = Collections.synchronizedSet(new HashSet<>());
+            doAnswer(invocation -> {
+                threadNames.add(Thread.currentThread().getName());
+                return null;
+            }).when(snowflakeStatementsService).applyStatements(anyList());
+            CompiledChanges compiledChanges = compileRoleChangesTestParamsStream().findFirst().get().expected;
+            ioProvider.applyPrivilegeChangesToRole(compiledChanges);
+            assertEquals(Set.of("mock-io-thread"), threadNames);
+        } finally {
+            ioExecutor.shutdownNow();
+        }
+    }
+
     @Test
     void compileChangesSeparatesOwnershipAndRegularGrants() {
         when(snowflakeObjectsService.objectExists(
@@ -434,7 +458,7 @@ class SnowflakeProviderTest {
                                 List.of("OWNERSHIP", "SELECT", "UPDATE"),
                                 true,
                                 true)))));
-        when(snowflakeGrantsService.getGrants("role_a", false)).thenReturn(Map.of());
+        when(snowflakeGrantsService.getGrantStore("role_a", false)).thenReturn(new SnowflakeGrantStore(false));
         when(snowflakeObjectsService.getContainerObjectQualNames(
                 eq(SnowflakeObjectType.ACCOUNT),
                 eq(SnowflakeObjectType.ROLE),
@@ -518,7 +542,7 @@ class SnowflakeProviderTest {
         when(snowflakeObjectsService.objectExists(
                 "MOCK_DB_NAME.MOCK_SCHEMA_NAME.MOCK_TABLE_NAME",
                 SnowflakeObjectType.TABLE)).thenReturn(true);
-        when(snowflakeGrantsService.getGrants("role_a", false)).thenReturn(Map.of());
+        when(snowflakeGrantsService.getGrantStore("role_a", false)).thenReturn(new SnowflakeGrantStore(false));
         when(snowflakeObjectsService.getContainerObjectQualNames(
                 eq(SnowflakeObjectType.ACCOUNT),
                 eq(SnowflakeObjectType.ROLE),
@@ -552,7 +576,7 @@ class SnowflakeProviderTest {
         when(snowflakeObjectsService.objectExists(
                 "MOCK_DB_NAME.MOCK_SCHEMA_NAME.MOCK_TABLE_NAME",
                 SnowflakeObjectType.TABLE)).thenReturn(true);
-        when(snowflakeGrantsService.getGrants("role_a", false)).thenReturn(Map.of());
+        when(snowflakeGrantsService.getGrantStore("role_a", false)).thenReturn(new SnowflakeGrantStore(false));
         when(snowflakeObjectsService.getContainerObjectQualNames(
                 eq(SnowflakeObjectType.ACCOUNT),
                 eq(SnowflakeObjectType.ROLE),
@@ -591,9 +615,9 @@ class SnowflakeProviderTest {
     @ParameterizedTest
     @MethodSource("compileRoleChangesTestParamsStream")
     void compileRoleChanges(CompileRoleChangesTestParams params) {
-        when(snowflakeGrantsService.getGrants(
+        when(snowflakeGrantsService.getGrantStore(
                 params.playbookRoleModel.name(),
-                false)).thenReturn(params.mockGetGrantsResult);
+                false)).thenReturn(SnowflakeGrantStore.ofBuilders(params.mockGetGrantsResult.values()));
         when(snowflakeObjectsService.objectExists(anyString(), eq(SnowflakeObjectType.ACCOUNT))).thenReturn(true);
         when(snowflakeObjectsService.objectExists(
                 "OTHER_DB.OTHER_SCHEMA",
@@ -0,0 +1,87 @@
+package us.zoom.data.dfence.providers.snowflake;
+
+import net.snowflake.client.jdbc.SnowflakeStatement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import us.zoom.data.dfence.exception.DatabaseError;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SnowflakeStatementsServiceTest {
+
+    private SnowflakeConnectionService snowflakeConnectionService;
+    private Statement statement;
+    private SnowflakeStatement snowflakeStatement;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        snowflakeConnectionService = Mockito.mock(SnowflakeConnectionService.class);
+        Connection connection = Mockito.mock(Connection.class);
+        statement = Mockito.mock(Statement.class);
+        snowflakeStatement = Mockito.mock(SnowflakeStatement.class);
+        when(snowflakeConnectionService.connection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.unwrap(SnowflakeStatement.class)).thenReturn(snowflakeStatement);
+    }
+
+    @Test
+    void batchStatementGroups() {
+        List<List<String>> groups = List.of(
+                List.of("a;"),
+                List.of("b;", "c;"),
+                List.of(),
+                List.of("d;", "e;", "f;", "g;"),
+                List.of("h;"));
+        assertEquals(
+                List.of(
+                        List.of(List.of("a;"), List.of("b;", "c;")),
+                        List.of(List.of("d;", "e;", "f;", "g;")),
+                        List.of(List.of("h;"))),
+                SnowflakeStatementsService.batchStatementGroups(groups, 3));
+    }
+
+    @Test
+    void applyStatementsClosesStatements() throws SQLException {
+        new SnowflakeStatementsService(snowflakeConnectionService).applyStatements(List.of("a;", "b;"));
+        verify(statement, times(2)).execute(anyString());
+        verify(statement, times(2)).close();
+    }
+
+    @Test
+    void applyStatementBatch() throws SQLException {
+        new SnowflakeStatementsService(snowflakeConnectionService, 10)
+                .applyStatementBatch(List.of(List.of("grant a"), List.of("grant b;", "grant c;")));
+        verify(snowflakeStatement).setParameter("MULTI_STATEMENT_COUNT", 3);
+        verify(statement).execute("grant a;\ngrant b;\ngrant c;");
+        verify(statement, times(1)).execute(anyString());
+    }
+
+    @Test
+    void applyStatementBatchReportsFailingStatement() throws SQLException {
+        when(statement.execute("grant a;\ngrant b;")).thenThrow(new SQLException("batch failed"));
+        when(statement.execute("grant b;")).thenThrow(new SQLException("statement failed"));
+        SnowflakeStatementsService snowflakeStatementsService = new SnowflakeStatementsService(
+                snowflakeConnectionService,
+                10);
+        DatabaseError error = assertThrows(
+                DatabaseError.class,
+                () -> snowflakeStatementsService.applyStatementBatch(List.of(List.of("grant a;"), List.of("grant b;"))));
+        assertEquals("Unable to execute statement grant b;", error.getMessage());
+        verify(statement).execute("grant a;");
+    }
+
+    @Test
+    void invalidBatchSize() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new SnowflakeStatementsService(snowflakeConnectionService, 0));
+    }
+}
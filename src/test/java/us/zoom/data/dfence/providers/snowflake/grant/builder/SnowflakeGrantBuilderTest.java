@@ -11,6 +11,9 @@ import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
 import us.zoom.data.dfence.test.fixtures.GrantTestDataLoader;
 
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -168,6 +171,53 @@ class SnowflakeGrantBuilderTest {
                 "PlaybookPrivilegeGrant mismatch for: " + testData.name());
     }
 
+    /**
+     * Tests that the dispatch table picks the same builder as trying every builder in order, for every object type,
+     * every privilege that any builder knows and every combination of future and all.
+     */
+    @Test
+    void dispatchedBuilderMatchesFirstValidBuilder() {
+        SnowflakeGrantModel probeGrant = new SnowflakeGrantModel("", "", "", "", "", false, false, false);
+        SnowflakeGrantBuilderOptions options = new SnowflakeGrantBuilderOptions();
+        Set<String> privileges = Stream.of(
+                        new SnowflakeRoleGrantBuilder(probeGrant, options),
+                        new SnowflakePermissionGrantBuilder(probeGrant, options),
+                        new SnowflakeOwnershipGrantBuilder(probeGrant, options),
+                        new SnowflakeAccountPermissionGrantBuilder(probeGrant, options),
+                        new SnowflakeMLPermissionGrantBuilder(probeGrant, options),
+                        new SnowflakeCorePermissionGrantBuilder(probeGrant, options),
+                        new SnowflakeDatabaseRoleGrantBuilder(probeGrant, options),
+                        new SnowflakeUnsupportedOwnershipManagementGrantBuilder(probeGrant, options))
+                .flatMap(builder -> builder.getValidCombinations().stream())
+                .flatMap(definition -> definition.privileges().stream())
+                .collect(Collectors.toCollection(TreeSet::new));
+        privileges.add("INVALID PRIVILEGE");
+        int matched = 0;
+        for (SnowflakeObjectType objectType : SnowflakeObjectType.values()) {
+            for (String privilege : privileges) {
+                for (boolean future : List.of(false, true)) {
+                    for (boolean all : List.of(false, true)) {
+                        SnowflakeGrantModel grant = new SnowflakeGrantModel(
+                                privilege, objectType.name(), "", "ROLE", "MOCK_ROLE", false, future, all);
+                        SnowflakeGrantBuilder expected = SnowflakeGrantBuilder.firstValidBuilder(grant, options);
+                        SnowflakeGrantBuilder actual = SnowflakeGrantBuilder.dispatchedBuilder(grant, options);
+                        String description = String.format(
+                                "%s on %s future=%s all=%s", privilege, objectType, future, all);
+                        if (expected == null) {
+                            assertNull(actual, description);
+                        } else {
+                            assertNotNull(actual, description);
+                            assertEquals(expected.getClass(), actual.getClass(), description);
+                            assertTrue(actual.isValid(), description);
+                            matched++;
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(matched > 0);
+    }
+
     static Stream<GrantTestDataLoader.GrantRevokeStatementsTestData> grantRevokeStatementsTestData() {
         return GrantTestDataLoader.loadGrantRevokeStatements();
     }
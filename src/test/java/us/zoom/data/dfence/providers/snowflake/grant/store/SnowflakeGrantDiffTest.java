@@ -0,0 +1,66 @@
+package us.zoom.data.dfence.providers.snowflake.grant.store;
+
+import org.junit.jupiter.api.Test;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
+import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class SnowflakeGrantDiffTest {
+
+    private static SnowflakeGrantModel grant(String privilege, String grantedOn, String name) {
+        return new SnowflakeGrantModel(privilege, grantedOn, name, "ROLE", "MOCK_ROLE", false, false, false);
+    }
+
+    private static SnowflakeGrantBuilder builder(String privilege, String grantedOn, String name) {
+        return SnowflakeGrantBuilder.fromGrant(grant(privilege, grantedOn, name));
+    }
+
+    @Test
+    void addsMissingGrantsAndFindsGrantsThatAreNotDesired() {
+        SnowflakeGrantStore current = SnowflakeGrantStore.of(
+                List.of(
+                        grant("SELECT", "TABLE", "DB.SCH.KEEP"),
+                        grant("SELECT", "TABLE", "DB.SCH.REMOVE"),
+                        grant("SELECT", "MATERIALIZED_VIEW", "DB.SCH.VW")),
+                false);
+        List<SnowflakeGrantBuilder> desired = List.of(
+                builder("SELECT", "TABLE", "DB.SCH.KEEP"),
+                builder("SELECT", "VIEW", "DB.SCH.VW"),
+                builder("SELECT", "TABLE", "DB.SCH.B_ADD"),
+                builder("INSERT", "TABLE", "DB.SCH.A_ADD"),
+                builder("INSERT", "TABLE", "db.sch.a_add"));
+
+        SnowflakeGrantDiff diff = SnowflakeGrantDiff.of(current, desired);
+
+        assertEquals(
+                List.of(
+                        builder("INSERT", "TABLE", "DB.SCH.A_ADD").getKey(),
+                        builder("SELECT", "TABLE", "DB.SCH.B_ADD").getKey()),
+                diff.added().stream().map(SnowflakeGrantBuilder::getKey).toList());
+        assertEquals(1, diff.removedCount());
+        assertEquals(
+                Set.of(grant("SELECT", "TABLE", "DB.SCH.REMOVE")),
+                diff.removedRows().mapToObj(current::grant).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void fingerprintFollowsTheKey() {
+        assertEquals(
+                GrantFingerprint.of(grant("SELECT", "VIEW", "DB.SCH.VW")),
+                GrantFingerprint.of(new SnowflakeGrantModel(
+                        "select", "MATERIALIZED_VIEW", "db.sch.vw", "ROLE", "mock_role", true, false, false)));
+        assertNotEquals(
+                GrantFingerprint.of(grant("SELECT", "TABLE", "DB.SCH.TBL")),
+                GrantFingerprint.of(grant("SELECT", "TABLE", "DB.SCH.TB")));
+        assertNotEquals(
+                GrantFingerprint.of(grant("SELECT", "TABLE", "DB.SCH.<TABLE>")),
+                GrantFingerprint.of(new SnowflakeGrantModel(
+                        "SELECT", "TABLE", "DB.SCH.<TABLE>", "ROLE", "MOCK_ROLE", false, true, false)));
+    }
+}
@@ -0,0 +1,117 @@
+package us.zoom.data.dfence.providers.snowflake.grant.store;
+
+import org.junit.jupiter.api.Test;
+import us.zoom.data.dfence.exception.NoGrantBuilderError;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
+import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeObjectType;
+import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeGrantStoreTest {
+
+    private static SnowflakeGrantModel grant(String privilege, String grantedOn, String name, Boolean future) {
+        return new SnowflakeGrantModel(privilege, grantedOn, name, "ROLE", "MOCK_ROLE", false, future, false);
+    }
+
+    /*
+    The grants are kept by the same key as a map of grant builders, with the last grant for a key winning.
+     */
+    @Test
+    void keepsTheSameGrantsAsAMapOfBuilders() {
+        List<SnowflakeGrantModel> grants = List.of(
+                grant("SELECT", "TABLE", "DB.SCH.TBL", false),
+                grant("select", "TABLE", "db.sch.tbl", false),
+                new SnowflakeGrantModel("SELECT", "TABLE", "DB.SCH.TBL", "ROLE", "MOCK_ROLE", true, false, false),
+                grant("SELECT", "VIEW", "DB.SCH.VW", false),
+                grant("SELECT", "MATERIALIZED_VIEW", "DB.SCH.VW", false),
+                grant("SELECT", "TABLE", "DB.SCH.\"Mixed Table\"", false),
+                grant("SELECT", "TABLE", "DB.SCH.<TABLE>", true),
+                grant("USAGE", "DATABASE", "DB", false),
+                grant("CREATE DATABASE", "ACCOUNT", "ACCOUNT_ONE", false),
+                grant("CREATE DATABASE", "ACCOUNT", "ACCOUNT_TWO", false),
+                grant("SELECT", "UNKNOWN_TYPE", "DB.SCH.TBL", false),
+                grant("OWNERSHIP", "MODEL", "DB.SCH.MDL", false));
+        Map<String, SnowflakeGrantBuilder> grantBuilders = new HashMap<>();
+        grants.stream()
+                .map(x -> SnowflakeGrantBuilder.fromGrant(x, true))
+                .filter(Objects::nonNull)
+                .forEach(x -> grantBuilders.put(x.getKey(), x));
+
+        SnowflakeGrantStore store = SnowflakeGrantStore.of(grants, true);
+
+        assertEquals(grantBuilders.size(), store.size());
+        grantBuilders.values().forEach(grantBuilder -> assertTrue(store.contains(grantBuilder)));
+        Map<String, SnowflakeGrantBuilder> storeBuilders = store.builders()
+                .collect(Collectors.toMap(SnowflakeGrantBuilder::getKey, x -> x));
+        assertEquals(grantBuilders.keySet(), storeBuilders.keySet());
+        grantBuilders.forEach((key, grantBuilder) -> {
+            assertEquals(grantBuilder.getClass(), storeBuilders.get(key).getClass());
+            assertEquals(grantBuilder.getGrant(), storeBuilders.get(key).getGrant());
+        });
+    }
+
+    @Test
+    void containsOnlyGrantsWithTheSameKey() {
+        SnowflakeGrantStore store = SnowflakeGrantStore.of(
+                List.of(grant("SELECT", "TABLE", "DB.SCH.TBL", false)),
+                false);
+
+        assertTrue(store.contains(SnowflakeGrantBuilder.fromGrant(grant("SELECT", "EXTERNAL_TABLE", "DB.SCH.TBL", false))));
+        assertFalse(store.contains(SnowflakeGrantBuilder.fromGrant(grant("INSERT", "TABLE", "DB.SCH.TBL", false))));
+        assertFalse(store.contains(SnowflakeGrantBuilder.fromGrant(grant("SELECT", "TABLE", "DB.SCH.OTHER", false))));
+        assertFalse(store.contains(SnowflakeGrantBuilder.fromGrant(grant("SELECT", "TABLE", "DB.SCH.<TABLE>", true))));
+        assertFalse(store.contains(SnowflakeGrantBuilder.fromGrant(new SnowflakeGrantModel(
+                "SELECT", "TABLE", "DB.SCH.TBL", "ROLE", "OTHER_ROLE", false, false, false))));
+    }
+
+    /*
+    Grants with different keys are kept apart even when their fingerprints are the same.
+     */
+    @Test
+    void collidingFingerprintsAreNotTheSameGrant() {
+        GrantFingerprint fingerprint = new GrantFingerprint(1L, 2L);
+        SnowflakeGrantModel table = grant("SELECT", "TABLE", "DB.SCH.TBL", false);
+        SnowflakeGrantModel other = grant("SELECT", "TABLE", "DB.SCH.OTHER", false);
+        SnowflakeGrantStore store = new SnowflakeGrantStore(false);
+        store.add(table, SnowflakeObjectType.TABLE, fingerprint);
+        assertEquals(-1, store.find(fingerprint, other));
+        store.add(other, SnowflakeObjectType.TABLE, fingerprint);
+        assertEquals(2, store.size());
+        assertEquals(table, store.grant(store.find(fingerprint, table)));
+        assertEquals(other, store.grant(store.find(fingerprint, other)));
+    }
+
+    @Test
+    void growsPastTheInitialCapacity() {
+        List<SnowflakeGrantModel> grants = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            grants.add(grant(i % 2 == 0 ? "SELECT" : "INSERT", "TABLE", "DB.SCH.TBL_" + i / 2, false));
+        }
+
+        SnowflakeGrantStore store = SnowflakeGrantStore.of(grants, false);
+
+        assertEquals(5000, store.size());
+        grants.forEach(grant -> assertTrue(store.contains(SnowflakeGrantBuilder.fromGrant(grant))));
+        assertEquals(Set.copyOf(grants), store.grants().collect(Collectors.toSet()));
+    }
+
+    @Test
+    void unknownGrantTypesRaiseUnlessSkipped() {
+        List<SnowflakeGrantModel> grants = List.of(grant("SELECT", "UNKNOWN_TYPE", "DB.SCH.TBL", false));
+
+        assertThrows(NoGrantBuilderError.class, () -> SnowflakeGrantStore.of(grants, false));
+        assertEquals(0, SnowflakeGrantStore.of(grants, true).size());
+    }
+}
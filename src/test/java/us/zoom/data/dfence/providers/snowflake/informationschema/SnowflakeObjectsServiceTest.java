@@ -11,8 +11,11 @@ import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeObjectType
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -155,4 +158,82 @@ class SnowflakeObjectsServiceTest {
         );
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void prefetchInventory() {
+        SnowflakeStageObjectsService snowflakeStageObjectsService = mock(SnowflakeStageObjectsService.class);
+        SnowflakeProcedureObjectService snowflakeProcedureObjectService = mock(SnowflakeProcedureObjectService.class);
+        SnowflakeFunctionObjectService snowflakeFunctionObjectService = mock(SnowflakeFunctionObjectService.class);
+        SnowflakeObjectsService prefetchObjectsService = new SnowflakeObjectsService(
+                snowflakeDefaultObjectService,
+                snowflakeTableObjectService,
+                snowflakeStageObjectsService,
+                snowflakeProcedureObjectService,
+                snowflakeFunctionObjectService,
+                mock(SnowflakeVolumeService.class),
+                true,
+                null);
+        when(snowflakeDefaultObjectService.getContainerObjectQualNamesDefault(
+                SnowflakeObjectType.ACCOUNT,
+                SnowflakeObjectType.DATABASE,
+                "")).thenReturn(List.of("MOCK_DB"));
+        when(snowflakeDefaultObjectService.getContainerObjectQualNamesDefault(
+                SnowflakeObjectType.DATABASE,
+                SnowflakeObjectType.SCHEMA,
+                "MOCK_DB")).thenReturn(List.of("MOCK_DB.MOCK_SCHEMA", "MOCK_DB.EMPTY_SCHEMA"));
+        when(snowflakeTableObjectService.getDatabaseTablesByType("MOCK_DB")).thenReturn(Map.of(
+                SnowflakeObjectType.TABLE, List.of("MOCK_DB.MOCK_SCHEMA.MOCK_TABLE"),
+                SnowflakeObjectType.VIEW, List.of()));
+        when(snowflakeProcedureObjectService.getContainerProcedures("MOCK_DB", SnowflakeObjectType.DATABASE))
+                .thenReturn(List.of("MOCK_DB.MOCK_SCHEMA.MOCK_PROC(VARCHAR)"));
+        when(snowflakeFunctionObjectService.getContainerProcedures("MOCK_DB", SnowflakeObjectType.DATABASE))
+                .thenReturn(List.of());
+        when(snowflakeStageObjectsService.getContainerExternalStages("MOCK_DB", SnowflakeObjectType.DATABASE))
+                .thenReturn(List.of());
+
+        prefetchObjectsService.prefetchInventory(List.of("mock_db", "MOCK_DB", "*"), ForkJoinPool.commonPool());
+
+        assertTrue(prefetchObjectsService.objectExists("MOCK_DB.MOCK_SCHEMA.MOCK_TABLE", SnowflakeObjectType.TABLE));
+        assertTrue(prefetchObjectsService.objectExists(
+                "MOCK_DB.MOCK_SCHEMA.MOCK_PROC(VARCHAR)",
+                SnowflakeObjectType.PROCEDURE));
+        assertFalse(prefetchObjectsService.objectExists("MOCK_DB.EMPTY_SCHEMA.MOCK_TABLE", SnowflakeObjectType.TABLE));
+        assertFalse(prefetchObjectsService.objectExists("MOCK_DB.MOCK_SCHEMA.MOCK_VIEW", SnowflakeObjectType.VIEW));
+        // Every lookup was answered by the database wide queries.
+        verify(snowflakeTableObjectService, times(1)).getDatabaseTablesByType("MOCK_DB");
+        verify(snowflakeTableObjectService, never()).getContainerTables(any(), any(), any());
+        verify(snowflakeProcedureObjectService, times(1)).getContainerProcedures(any(), any());
+    }
+
+    @Test
+    void prefetchInventoryListsDatabasesOnce() {
+        SnowflakeObjectsService prefetchObjectsService = new SnowflakeObjectsService(
+                snowflakeDefaultObjectService,
+                snowflakeTableObjectService,
+                mock(SnowflakeStageObjectsService.class),
+                mock(SnowflakeProcedureObjectService.class),
+                mock(SnowflakeFunctionObjectService.class),
+                mock(SnowflakeVolumeService.class),
+                true,
+                null);
+        when(snowflakeDefaultObjectService.getContainerObjectQualNamesDefault(
+                SnowflakeObjectType.ACCOUNT,
+                SnowflakeObjectType.DATABASE,
+                "")).thenReturn(List.of("DB_1", "DB_2", "DB_3"));
+
+        prefetchObjectsService.prefetchInventory(List.of("DB_1", "DB_2", "DB_3", "MISSING_DB"), ForkJoinPool.commonPool());
+
+        verify(snowflakeDefaultObjectService, times(1)).getContainerObjectQualNamesDefault(
+                SnowflakeObjectType.ACCOUNT,
+                SnowflakeObjectType.DATABASE,
+                "");
+        verify(snowflakeTableObjectService, times(3)).getDatabaseTablesByType(any());
+        verify(snowflakeTableObjectService, never()).getDatabaseTablesByType("MISSING_DB");
+    }
+
+    @Test
+    void prefetchInventoryDisabled() {
+        snowflakeObjectsService.prefetchInventory(List.of("MOCK_DB"), ForkJoinPool.commonPool());
+        verifyNoInteractions(snowflakeTableObjectService, snowflakeDefaultObjectService);
+    }
+}
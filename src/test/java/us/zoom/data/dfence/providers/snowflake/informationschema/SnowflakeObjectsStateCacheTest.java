@@ -0,0 +1,171 @@
+package us.zoom.data.dfence.providers.snowflake.informationschema;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import us.zoom.data.dfence.providers.snowflake.SnowflakeConnectionService;
+import us.zoom.data.dfence.providers.snowflake.SnowflakeRoleType;
+import us.zoom.data.dfence.test.fixtures.resultset.MockResultSet;
+import us.zoom.data.dfence.test.fixtures.resultset.MockResultSet.I;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class SnowflakeObjectsStateCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SnowflakeConnectionService connectionServiceWithLastAltered(String lastAltered) throws SQLException {
+        return connectionServiceWithSchemas(List.of(List.of(new I("MOCK_DB"), new I("MOCK_SCHEMA"), new I(lastAltered))));
+    }
+
+    private SnowflakeConnectionService connectionServiceWithSchemas(List<List<I>> schemas) throws SQLException {
+        SnowflakeConnectionService snowflakeConnectionService = Mockito.mock(SnowflakeConnectionService.class);
+        Connection connection = Mockito.mock(Connection.class);
+        Statement statement = Mockito.mock(Statement.class);
+        when(snowflakeConnectionService.connection(SnowflakeRoleType.SYSADMIN)).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.getResultSet()).thenReturn(new MockResultSet(
+                schemas,
+                List.of("CATALOG_NAME", "SCHEMA_NAME", "LAST_ALTERED")));
+        return snowflakeConnectionService;
+    }
+
+    private List<String> getSchemaObjects(SnowflakeObjectsStateCache stateCache, AtomicInteger loads) {
+        return stateCache.getSchemaObjects("SCHEMA::TABLE::MOCK_DB.MOCK_SCHEMA", "MOCK_DB.MOCK_SCHEMA", () -> {
+            loads.incrementAndGet();
+            return List.of("MOCK_DB.MOCK_SCHEMA.MOCK_TABLE");
+        });
+    }
+
+    @Test
+    void getSchemaObjectsReusesUnchangedSchemas() throws SQLException {
+        Path path = tempDir.resolve("state.json.gz");
+        AtomicInteger loads = new AtomicInteger();
+
+        SnowflakeObjectsStateCache firstRun = new SnowflakeObjectsStateCache(
+                path,
+                connectionServiceWithLastAltered("2024-01-01 00:00:00.000"));
+        firstRun.refresh();
+        assertEquals(List.of("MOCK_DB.MOCK_SCHEMA.MOCK_TABLE"), getSchemaObjects(firstRun, loads));
+        firstRun.save();
+        assertTrue(Files.exists(path));
+        assertEquals(1, loads.get());
+
+        SnowflakeObjectsStateCache unchangedRun = new SnowflakeObjectsStateCache(
+                path,
+                connectionServiceWithLastAltered("2024-01-01 00:00:00.000"));
+        unchangedRun.refresh();
+        assertEquals(List.of("MOCK_DB.MOCK_SCHEMA.MOCK_TABLE"), getSchemaObjects(unchangedRun, loads));
+        assertEquals(1, loads.get());
+
+        SnowflakeObjectsStateCache changedRun = new SnowflakeObjectsStateCache(
+                path,
+                connectionServiceWithLastAltered("2024-01-02 00:00:00.000"));
+        changedRun.refresh();
+        assertEquals(List.of("MOCK_DB.MOCK_SCHEMA.MOCK_TABLE"), getSchemaObjects(changedRun, loads));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void refreshIgnoresUnreadableFile() throws Exception {
+        Path path = tempDir.resolve("state.json.gz");
+        Files.writeString(path, "not a cache file");
+        AtomicInteger loads = new AtomicInteger();
+        SnowflakeObjectsStateCache stateCache = new SnowflakeObjectsStateCache(
+                path,
+                connectionServiceWithLastAltered("2024-01-01 00:00:00.000"));
+        stateCache.refresh();
+        getSchemaObjects(stateCache, loads);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getSchemaObjectsReloadsEntriesOlderThanTheMaxAge() throws SQLException {
+        Path path = tempDir.resolve("state.json.gz");
+        AtomicInteger loads = new AtomicInteger();
+        Instant loadedAt = Instant.parse("2024-01-01T00:00:00Z");
+
+        SnowflakeObjectsStateCache firstRun = new SnowflakeObjectsStateCache(
+                path,
+                connectionServiceWithLastAltered("2024-01-01 00:00:00.000"),
+                Duration.ofHours(1),
+                Clock.fixed(loadedAt, ZoneOffset.UTC));
+        firstRun.refresh();
+        getSchemaObjects(firstRun, loads);
+        firstRun.save();
+
+        SnowflakeObjectsStateCache freshRun = new SnowflakeObjectsStateCache(
+                path,
+                connectionServiceWithLastAltered("2024-01-01 00:00:00.000"),
+                Duration.ofHours(1),
+                Clock.fixed(loadedAt.plus(Duration.ofMinutes(59)), ZoneOffset.UTC));
+        freshRun.refresh();
+        getSchemaObjects(freshRun, loads);
+        assertEquals(1, loads.get());
+
+        SnowflakeObjectsStateCache expiredRun = new SnowflakeObjectsStateCache(
+                path,
+                connectionServiceWithLastAltered("2024-01-01 00:00:00.000"),
+                Duration.ofHours(1),
+                Clock.fixed(loadedAt.plus(Duration.ofMinutes(61)), ZoneOffset.UTC));
+        expiredRun.refresh();
+        getSchemaObjects(expiredRun, loads);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void saveDropsEntriesOfDroppedSchemas() throws SQLException {
+        Path path = tempDir.resolve("state.json.gz");
+        AtomicInteger loads = new AtomicInteger();
+
+        SnowflakeObjectsStateCache firstRun = new SnowflakeObjectsStateCache(
+                path,
+                connectionServiceWithSchemas(List.of(
+                        List.of(new I("MOCK_DB"), new I("MOCK_SCHEMA"), new I("2024-01-01 00:00:00.000")),
+                        List.of(new I("MOCK_DB"), new I("OTHER_SCHEMA"), new I("2024-01-01 00:00:00.000")))));
+        firstRun.refresh();
+        getSchemaObjects(firstRun, loads);
+        firstRun.getSchemaObjects("SCHEMA::TABLE::MOCK_DB.OTHER_SCHEMA", "MOCK_DB.OTHER_SCHEMA", () -> {
+            loads.incrementAndGet();
+            return List.of("MOCK_DB.OTHER_SCHEMA.OTHER_TABLE");
+        });
+        firstRun.save();
+        assertEquals(2, loads.get());
+
+        SnowflakeObjectsStateCache droppedRun = new SnowflakeObjectsStateCache(
+                path,
+                connectionServiceWithLastAltered("2024-01-01 00:00:00.000"));
+        droppedRun.refresh();
+        getSchemaObjects(droppedRun, loads);
+        droppedRun.save();
+        assertEquals(2, loads.get());
+
+        SnowflakeObjectsStateCache recreatedRun = new SnowflakeObjectsStateCache(
+                path,
+                connectionServiceWithSchemas(List.of(
+                        List.of(new I("MOCK_DB"), new I("MOCK_SCHEMA"), new I("2024-01-01 00:00:00.000")),
+                        List.of(new I("MOCK_DB"), new I("OTHER_SCHEMA"), new I("2024-01-01 00:00:00.000")))));
+        recreatedRun.refresh();
+        recreatedRun.getSchemaObjects("SCHEMA::TABLE::MOCK_DB.OTHER_SCHEMA", "MOCK_DB.OTHER_SCHEMA", () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+        // The entry of the schema was dropped while the schema was gone, so it is read again.
+        assertEquals(3, loads.get());
+    }
+}
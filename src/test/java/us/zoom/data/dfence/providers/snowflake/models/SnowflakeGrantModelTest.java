@@ -3,8 +3,10 @@ package us.zoom.data.dfence.providers.snowflake.models;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import us.zoom.data.dfence.sql.QualifiedName;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class SnowflakeGrantModelTest {
 
@@ -69,4 +71,34 @@ class SnowflakeGrantModelTest {
                 false,
                 false);
     }
-}
\ No newline at end of file
+
+    @Test
+    void withQualifiedNameTakesTheName() {
+        QualifiedName qualifiedName = QualifiedName.of("MOCK_DB.MOCK_SCHEMA.\"MOCK_table\"");
+        SnowflakeGrantModel snowflakeGrantModel = SnowflakeGrantModel.withQualifiedName(
+                "SELECT",
+                "TABLE",
+                qualifiedName,
+                "ROLE",
+                "MOCK_ROLE",
+                false,
+                false,
+                false);
+        assertEquals("MOCK_DB.MOCK_SCHEMA.\"MOCK_table\"", snowflakeGrantModel.name());
+        assertEquals(qualifiedName, snowflakeGrantModel.qualifiedName());
+    }
+
+    @Test
+    void nameMustMatchQualifiedName() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeGrantModel(
+                "SELECT",
+                "TABLE",
+                "MOCK_DB.MOCK_SCHEMA.OTHER_TABLE",
+                "ROLE",
+                "MOCK_ROLE",
+                false,
+                false,
+                false,
+                QualifiedName.of("MOCK_DB.MOCK_SCHEMA.MOCK_TABLE")));
+    }
+}
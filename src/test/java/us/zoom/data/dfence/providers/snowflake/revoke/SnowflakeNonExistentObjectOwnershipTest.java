@@ -25,6 +25,7 @@ import us.zoom.data.dfence.providers.snowflake.SnowflakeGrantsService;
 import us.zoom.data.dfence.providers.snowflake.SnowflakeProvider;
 import us.zoom.data.dfence.providers.snowflake.SnowflakeStatementsService;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
+import us.zoom.data.dfence.providers.snowflake.grant.store.SnowflakeGrantStore;
 import us.zoom.data.dfence.providers.snowflake.informationschema.SnowflakeObjectsService;
 import us.zoom.data.dfence.providers.snowflake.models.PartitionedGrantStatements;
 import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
@@ -93,10 +94,9 @@ class SnowflakeNonExistentObjectOwnershipTest {
     SnowflakeGrantBuilder ownershipGrantBuilder = SnowflakeGrantBuilder.fromGrant(ownershipGrant);
     assertNotNull(ownershipGrantBuilder, "Ownership grant builder should be created");
 
-    HashMap<String, SnowflakeGrantBuilder> currentGrants = new HashMap<>();
-    currentGrants.put(ownershipGrantBuilder.getKey(), ownershipGrantBuilder);
+    SnowflakeGrantStore currentGrants = SnowflakeGrantStore.ofBuilders(List.of(ownershipGrantBuilder));
 
-    when(snowflakeGrantsService.getGrants(ownerRoleName, false)).thenReturn(currentGrants);
+    when(snowflakeGrantsService.getGrantStore(ownerRoleName, false)).thenReturn(currentGrants);
 
     var ownerRole = playbookModel.roles().get(ownerRoleName);
     var privilegeGrants = ownerRole.grants();
@@ -2,12 +2,14 @@ package us.zoom.data.dfence.providers.snowflake.revoke;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import us.zoom.data.dfence.playbook.model.PlaybookPrivilegeGrant;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeGrantBuilder;
+import us.zoom.data.dfence.providers.snowflake.grant.store.SnowflakeGrantStore;
 import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
 
 class SnowflakeRevokeGrantsCompilerTest {
@@ -818,4 +820,40 @@ class SnowflakeRevokeGrantsCompilerTest {
         actualRevokes.isEmpty(),
         "Should not revoke when playbook has lowercase 'agent' (maps to CORTEX_AGENT)");
   }
+
+  @Test
+  void compileRevokeGrants_whenRoleIsLarge_shouldRevokeInParallelSortedByKey() {
+    // Given
+    PlaybookPrivilegeGrant playbookGrant =
+        createPlaybookGrant("TABLE", "TEST_DB", "KEEP_SCHEMA", "*", List.of("SELECT"));
+    List<SnowflakeGrantModel> grants = new ArrayList<>();
+    for (int i = 0; i < SnowflakeRevokeGrantsCompiler.PARALLEL_THRESHOLD; i++) {
+      String schemaName = i % 3 == 0 ? "REVOKE_SCHEMA" : "KEEP_SCHEMA";
+      String name = "TEST_DB." + schemaName + ".TABLE_" + i;
+      grants.add(createGrant("SELECT", "TABLE", name, "ROLE", "TEST_ROLE"));
+    }
+    Map<String, SnowflakeGrantBuilder> currentGrants =
+        createCurrentGrants(grants.toArray(SnowflakeGrantModel[]::new));
+
+    // When
+    List<SnowflakeGrantBuilder> actualRevokes =
+        SnowflakeRevokeGrantsCompiler.compileRevokeGrants(
+            List.of(playbookGrant), SnowflakeGrantStore.of(grants, false));
+
+    // Then
+    List<String> expectedKeys =
+        currentGrants.values().stream()
+            .filter(b -> b.getGrant().name().contains("REVOKE_SCHEMA"))
+            .map(SnowflakeGrantBuilder::getKey)
+            .sorted()
+            .toList();
+    assertEquals(
+        expectedKeys, actualRevokes.stream().map(SnowflakeGrantBuilder::getKey).toList());
+    assertEquals(
+        expectedKeys,
+        SnowflakeRevokeGrantsCompiler.compileRevokeGrants(List.of(playbookGrant), currentGrants)
+            .stream()
+            .map(SnowflakeGrantBuilder::getKey)
+            .toList());
+  }
 }
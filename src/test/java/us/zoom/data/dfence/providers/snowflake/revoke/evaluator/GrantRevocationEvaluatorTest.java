@@ -4,16 +4,24 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import com.google.common.collect.ImmutableList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import us.zoom.data.dfence.exception.RbacDataError;
 import us.zoom.data.dfence.policies.models.PolicyGrant;
 import us.zoom.data.dfence.policies.models.PolicyGrantPrivilege;
+import us.zoom.data.dfence.policies.pattern.models.ContainerPolicyOption;
+import us.zoom.data.dfence.policies.pattern.models.ContainerPolicyOptions;
 import us.zoom.data.dfence.policies.pattern.models.PolicyType;
 import us.zoom.data.dfence.providers.snowflake.grant.builder.SnowflakeObjectType;
 import us.zoom.data.dfence.providers.snowflake.models.SnowflakeGrantModel;
+import us.zoom.data.dfence.providers.snowflake.revoke.factories.SnowflakeGrantFactory;
+import us.zoom.data.dfence.providers.snowflake.revoke.index.PolicyGrantHashIndexer;
+import us.zoom.data.dfence.providers.snowflake.revoke.matchers.SnowflakeGrantMatchers;
 import us.zoom.data.dfence.providers.snowflake.revoke.models.PolicyGrantHashIndex;
+import us.zoom.data.dfence.providers.snowflake.revoke.models.SnowflakeGrant;
 
 class GrantRevocationEvaluatorTest {
 
@@ -203,11 +211,106 @@ class GrantRevocationEvaluatorTest {
         "Should throw exception when grant cannot be converted");
   }
 
+  @Test
+  void needsRevoke_shouldAgreeWithMatchers_forContainerPolicies() {
+    List<PolicyGrant> policyGrants =
+        List.of(
+            createContainerPolicyGrant(
+                "SELECT",
+                new PolicyType.Container.Schema(
+                    "db", "\"Mixed Schema\"", containerOptions(ContainerPolicyOption.FUTURE))),
+            createContainerPolicyGrant(
+                "INSERT",
+                new PolicyType.Container.SchemaObjectAllSchemas(
+                    "DB", containerOptions(ContainerPolicyOption.ALL))),
+            createContainerPolicyGrant(
+                "DELETE",
+                new PolicyType.Container.Schema(
+                    "DB",
+                    "SCH",
+                    containerOptions(ContainerPolicyOption.ALL, ContainerPolicyOption.FUTURE))),
+            createPolicyGrant("UPDATE", SnowflakeObjectType.TABLE, "db", "sch", "tbl"));
+    List<SnowflakeGrantModel> grants =
+        List.of("SELECT", "INSERT", "DELETE", "UPDATE").stream()
+            .flatMap(
+                privilege ->
+                    Stream.of(
+                        createGrantModel(privilege, "TABLE", "DB.\"Mixed Schema\".TBL"),
+                        createGrantModel(privilege, "TABLE", "DB.SCH.TBL"),
+                        createGrantModel(privilege, "TABLE", "DB.OTHER.TBL"),
+                        createGrantModel(privilege, "TABLE", "OTHER_DB.SCH.TBL"),
+                        createFutureGrantModel(privilege, "TABLE", "DB.SCH.<TABLE>"),
+                        createFutureGrantModel(privilege, "TABLE", "DB.\"Mixed Schema\".<TABLE>"),
+                        createFutureGrantModel(privilege, "TABLE", "DB.<TABLE>")))
+            .toList();
+    PolicyGrantHashIndex index = PolicyGrantHashIndexer.createFromGrants(policyGrants);
+    GrantRevocationEvaluator evaluator = new GrantRevocationEvaluator(index);
+
+    for (SnowflakeGrantModel grant : grants) {
+      SnowflakeGrant snowflakeGrant = SnowflakeGrantFactory.createFrom(grant);
+      boolean expectedNeedsRevoke =
+          policyGrants.stream()
+              .noneMatch(
+                  policyGrant ->
+                      SnowflakeGrantMatchers.matchesSnowflakeGrant()
+                          .test(policyGrant, snowflakeGrant));
+      assertEquals(expectedNeedsRevoke, evaluator.needsRevoke(grant), grant.toString());
+    }
+    assertFalse(evaluator.needsRevoke(createGrantModel("SELECT", "TABLE", "DB.\"Mixed Schema\".TBL")));
+    assertTrue(evaluator.needsRevoke(createFutureGrantModel("INSERT", "TABLE", "DB.SCH.<TABLE>")));
+    assertFalse(evaluator.needsRevoke(createGrantModel("UPDATE", "TABLE", "DB.SCH.TBL")));
+  }
+
+  @Test
+  void needsRevoke_shouldAgreeWithMatchers_forQuotedUpperCaseParts() {
+    List<PolicyGrant> policyGrants =
+        List.of(
+            createPolicyGrant("SELECT", SnowflakeObjectType.TABLE, "\"A\"", "\"B\"", "\"C\""),
+            createContainerPolicyGrant(
+                "INSERT",
+                new PolicyType.Container.Schema(
+                    "\"A\"", "\"B\"", containerOptions(ContainerPolicyOption.ALL))),
+            createPolicyGrant("UPDATE", SnowflakeObjectType.TABLE, "A", "B", "C"));
+    PolicyGrantHashIndex index = PolicyGrantHashIndexer.createFromGrants(policyGrants);
+    GrantRevocationEvaluator evaluator = new GrantRevocationEvaluator(index);
+
+    for (String privilege : List.of("SELECT", "INSERT", "UPDATE")) {
+      for (String name : List.of("A.B.C", "\"A\".\"B\".\"C\"", "A.B.\"c\"")) {
+        SnowflakeGrantModel grant = createGrantModel(privilege, "TABLE", name);
+        SnowflakeGrant snowflakeGrant = SnowflakeGrantFactory.createFrom(grant);
+        boolean expectedNeedsRevoke =
+            policyGrants.stream()
+                .noneMatch(
+                    policyGrant ->
+                        SnowflakeGrantMatchers.matchesSnowflakeGrant()
+                            .test(policyGrant, snowflakeGrant));
+        assertEquals(expectedNeedsRevoke, evaluator.needsRevoke(grant), grant.toString());
+      }
+    }
+    assertFalse(evaluator.needsRevoke(createGrantModel("SELECT", "TABLE", "A.B.C")));
+    assertFalse(evaluator.needsRevoke(createGrantModel("INSERT", "TABLE", "A.B.C")));
+    assertFalse(evaluator.needsRevoke(createGrantModel("UPDATE", "TABLE", "\"A\".\"B\".\"C\"")));
+    assertTrue(evaluator.needsRevoke(createGrantModel("SELECT", "TABLE", "A.B.\"c\"")));
+  }
+
   // Helper Functions
   private SnowflakeGrantModel createGrantModel(String priv, String objType, String name) {
     return new SnowflakeGrantModel(priv, objType, name, "ROLE", "USER", false, false, false);
   }
 
+  private SnowflakeGrantModel createFutureGrantModel(String priv, String objType, String name) {
+    return new SnowflakeGrantModel(priv, objType, name, "ROLE", "USER", false, true, false);
+  }
+
+  private PolicyGrant createContainerPolicyGrant(String priv, PolicyType.Container policyType) {
+    return new PolicyGrant(
+        SnowflakeObjectType.TABLE, ImmutableList.of(new PolicyGrantPrivilege(priv)), policyType, true);
+  }
+
+  private ContainerPolicyOptions containerOptions(ContainerPolicyOption... options) {
+    return new ContainerPolicyOptions(io.vavr.collection.List.of(options));
+  }
+
   private PolicyGrant createPolicyGrant(
       String priv, SnowflakeObjectType objType, String db, String schema, String obj) {
     return new PolicyGrant(
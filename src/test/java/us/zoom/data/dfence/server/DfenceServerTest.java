@@ -0,0 +1,248 @@
+package us.zoom.data.dfence.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import us.zoom.data.dfence.ChangesSummary;
+import us.zoom.data.dfence.CompiledChanges;
+import us.zoom.data.dfence.Mappers;
+import us.zoom.data.dfence.exception.RbacDataError;
+import us.zoom.data.dfence.playbook.model.PlaybookModel;
+import us.zoom.data.dfence.playbook.model.PlaybookPrivilegeGrant;
+import us.zoom.data.dfence.playbook.model.PlaybookRoleModel;
+import us.zoom.data.dfence.test.fixtures.InMemoryProvider;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DfenceServerTest {
+    private static final String TOKEN = "test-token";
+
+    private final ObjectMapper objectMapper = Mappers.jsonKebabObjectMapper();
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private InMemoryProvider provider;
+
+    private AtomicReference<PlaybookModel> playbook;
+
+    private DfenceServer server;
+
+    @BeforeEach
+    void setUp() {
+        provider = new InMemoryProvider()
+                .putRole("LEGACY_ROLE", new InMemoryProvider.Grant("USAGE", "DATABASE", "LEGACY_DB"));
+        playbook = new AtomicReference<>(new PlaybookModel(Map.of(
+                "analyst",
+                new PlaybookRoleModel("ANALYST", List.of(new PlaybookPrivilegeGrant(
+                        "database",
+                        "SALES",
+                        null,
+                        null,
+                        List.of("usage"),
+                        false,
+                        false,
+                        true))))));
+        server = new DfenceServer(provider, playbook::get, new InetSocketAddress("127.0.0.1", 0), TOKEN);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void compileApplyAndCompileAgain() throws Exception {
+        HttpResponse<String> compiled = post("/compile", "");
+        assertEquals(200, compiled.statusCode());
+        ChangesSummary changes = objectMapper.readValue(compiled.body(), ChangesSummary.class);
+        assertEquals(1, changes.totalChanges());
+        assertEquals(List.of("CREATE ROLE IF NOT EXISTS ANALYST;"), changes.changes().get(0).roleCreationStatements());
+
+        HttpResponse<String> applied = post("/apply", compiled.body());
+        assertEquals(200, applied.statusCode());
+        assertEquals(1, objectMapper.readTree(applied.body()).get("applied-roles").asInt());
+        assertEquals(1, provider.invalidations());
+        assertEquals(
+                Set.of(new InMemoryProvider.Grant("USAGE", "DATABASE", "SALES")),
+                provider.grants("ANALYST"));
+
+        ChangesSummary recompiled = objectMapper.readValue(post("/compile", "{}").body(), ChangesSummary.class);
+        assertEquals(0, recompiled.totalChanges());
+    }
+
+    @Test
+    void compileLoadsPlaybookForEachRequest() throws Exception {
+        post("/apply", post("/compile", "").body());
+        playbook.set(new PlaybookModel(Map.of("analyst", new PlaybookRoleModel("ANALYST", List.of()))));
+
+        ChangesSummary changes = objectMapper.readValue(post("/compile", "").body(), ChangesSummary.class);
+
+        assertEquals(
+                List.of(List.of("REVOKE USAGE ON DATABASE SALES FROM ROLE ANALYST;")),
+                changes.changes().get(0).roleGrantStatements());
+    }
+
+    @Test
+    void listAndImportRoles() throws Exception {
+        HttpResponse<String> roles = get("/roles");
+        assertEquals(200, roles.statusCode());
+        assertEquals(List.of("LEGACY_ROLE"), objectMapper.readValue(roles.body(), List.class));
+
+        HttpResponse<String> imported = post("/import-roles", "{\"role-names\": [\"LEGACY_.*\"], \"patterns\": true}");
+        assertEquals(200, imported.statusCode());
+        JsonNode role = objectMapper.readTree(imported.body()).get("roles").get("legacy-role");
+        assertEquals("LEGACY_ROLE", role.get("name").asText());
+        assertEquals("LEGACY_DB", role.get("grants").get(0).get("database-name").asText());
+    }
+
+    @Test
+    void invalidateCaches() throws Exception {
+        assertEquals(200, post("/invalidate", "").statusCode());
+        assertEquals(1, provider.invalidations());
+    }
+
+    @Test
+    void invalidateWaitsForARunningCompile() throws Exception {
+        CountDownLatch compileStarted = new CountDownLatch(1);
+        CountDownLatch finishCompile = new CountDownLatch(1);
+        InMemoryProvider blockingProvider = new InMemoryProvider() {
+            @Override
+            public List<CompiledChanges> compileChanges(PlaybookModel playbookModel, Boolean ignoreUnknownChanges) {
+                compileStarted.countDown();
+                try {
+                    finishCompile.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.compileChanges(playbookModel, ignoreUnknownChanges);
+            }
+        };
+        server.close();
+        server = new DfenceServer(blockingProvider, playbook::get, new InetSocketAddress("127.0.0.1", 0), TOKEN);
+        server.start();
+
+        CompletableFuture<HttpResponse<String>> compiled = sendAsync("/compile");
+        assertTrue(compileStarted.await(10, TimeUnit.SECONDS));
+        CompletableFuture<HttpResponse<String>> invalidated = sendAsync("/invalidate");
+        Thread.sleep(200);
+        assertEquals(0, blockingProvider.invalidations());
+
+        finishCompile.countDown();
+        assertEquals(200, compiled.get(10, TimeUnit.SECONDS).statusCode());
+        assertEquals(200, invalidated.get(10, TimeUnit.SECONDS).statusCode());
+        assertEquals(1, blockingProvider.invalidations());
+    }
+
+    @Test
+    void errorsAreReturnedAsJson() throws Exception {
+        HttpResponse<String> invalidPattern = post("/import-roles", "{\"role-names\": [\"[\"], \"patterns\": true}");
+        assertEquals(400, invalidPattern.statusCode());
+
+        HttpResponse<String> emptyApply = post("/apply", "");
+        assertEquals(400, emptyApply.statusCode());
+        assertEquals(
+                "A changes summary is required to apply changes.",
+                objectMapper.readTree(emptyApply.body()).get("error").asText());
+
+        assertEquals(405, get("/compile").statusCode());
+        assertEquals(404, get("/unknown").statusCode());
+    }
+
+    @Test
+    void requestsWithoutTheTokenAreRefused() throws Exception {
+        assertEquals(200, send(HttpRequest.newBuilder(uri("/health")).GET()).statusCode());
+
+        HttpResponse<String> missing = send(HttpRequest.newBuilder(uri("/apply"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{}")));
+        assertEquals(401, missing.statusCode());
+        assertEquals("Bearer", missing.headers().firstValue("WWW-Authenticate").orElseThrow());
+
+        assertEquals(401, send(HttpRequest.newBuilder(uri("/roles"))
+                .header("Authorization", "Bearer " + TOKEN + "x")
+                .GET()).statusCode());
+        assertEquals(401, send(HttpRequest.newBuilder(uri("/roles"))
+                .header("Authorization", "Basic " + TOKEN)
+                .GET()).statusCode());
+        assertEquals(0, provider.invalidations());
+    }
+
+    @Test
+    void requestsFromBrowsersAndBodiesThatAreNotJsonAreRefused() throws Exception {
+        HttpResponse<String> browser = send(HttpRequest.newBuilder(uri("/invalidate"))
+                .header("Authorization", "Bearer " + TOKEN)
+                .header("Content-Type", "application/json")
+                .header("Origin", "http://example.com")
+                .POST(HttpRequest.BodyPublishers.ofString("")));
+        assertEquals(403, browser.statusCode());
+
+        HttpResponse<String> text = send(HttpRequest.newBuilder(uri("/invalidate"))
+                .header("Authorization", "Bearer " + TOKEN)
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString("")));
+        assertEquals(415, text.statusCode());
+        assertEquals(0, provider.invalidations());
+
+        assertEquals(200, send(HttpRequest.newBuilder(uri("/invalidate"))
+                .header("Authorization", "Bearer " + TOKEN)
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofString(""))).statusCode());
+    }
+
+    @Test
+    void aTokenIsRequired() {
+        assertThrows(
+                RbacDataError.class,
+                () -> new DfenceServer(provider, playbook::get, new InetSocketAddress("127.0.0.1", 0), " "));
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(uri(path))
+                .header("Authorization", "Bearer " + TOKEN)
+                .GET());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(uri(path))
+                .header("Authorization", "Bearer " + TOKEN)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendAsync(String path) {
+        return httpClient.sendAsync(
+                HttpRequest.newBuilder(uri(path))
+                        .header("Authorization", "Bearer " + TOKEN)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(""))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create(String.format("http://127.0.0.1:%s%s", server.getAddress().getPort(), path));
+    }
+}
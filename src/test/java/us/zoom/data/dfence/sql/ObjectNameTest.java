@@ -6,8 +6,10 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import us.zoom.data.dfence.exception.ObjectNameException;
+import us.zoom.data.dfence.sql.models.SqlObject;
 
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -179,6 +181,47 @@ class ObjectNameTest {
         assertEquals(expected, result);
     }
 
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                    "FOO", "foo", "_FOO_1", "FOO.BAR.ZAR", "foo.Bar.zar_2", "\"FOO\"", "\"A\"", "\"\"", "\"foo\"",
+                    "\"FOO_1\".\"bar\".\"ZAR\"", "\"Things-?\".\"Stuff-0123\".FOO", "\"A.B\".C", "\"a b\".c",
+                    "\"1AB\".C", "\"_1\".C"})
+    void parseSimpleSqlObjectMatchesGrammar(String input) {
+        SqlObject simpleSqlObject = ObjectName.parseSimpleSqlObject(input);
+        assertNotNull(simpleSqlObject);
+        assertEquals(ObjectName.parseSqlObjectWithGrammar(input), simpleSqlObject);
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                    "", "FOO.BAR.<TABLES>", "FOO.BAR.ZAR()", "FOO.BAR.ZAR(NUMBER)", "\"foo\"\"zoo\".boo", "FOO. BAR",
+                    "A.B.C.D", "FOO..BAR", "FOO.", ".FOO", "1FOO", "A-123", "\"FOO", "FOO\"BAR\""})
+    void parseSimpleSqlObjectFallsBackToGrammar(String input) {
+        assertNull(ObjectName.parseSimpleSqlObject(input));
+    }
+
+    @Test
+    void parseSimpleSqlObjectRandomDifferential() {
+        // Every name the fast path accepts must parse to exactly the same result with the grammar.
+        String alphabet = "aAzZ_09.\" -(<>)";
+        Random random = new Random(20240601L);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder input = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            SqlObject simpleSqlObject = ObjectName.parseSimpleSqlObject(input.toString());
+            if (simpleSqlObject != null) {
+                assertEquals(
+                        ObjectName.parseSqlObjectWithGrammar(input.toString()),
+                        simpleSqlObject,
+                        "Fast path differs from grammar for " + input);
+            }
+        }
+    }
 
     public record SplitPartsTestArg(String value, List<String> expected) {
     }
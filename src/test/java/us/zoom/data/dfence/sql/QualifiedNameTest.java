@@ -0,0 +1,63 @@
+package us.zoom.data.dfence.sql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import us.zoom.data.dfence.exception.ObjectNameException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QualifiedNameTest {
+
+    @ParameterizedTest
+    @CsvSource(
+            value = {
+                    "foo.bar.zar;FOO.BAR.ZAR",
+                    "\"FOO\".\"BAR\".ZAR;FOO.BAR.ZAR",
+                    "FOO.\"bar\".ZAR;FOO.\"bar\".ZAR",
+                    "FOO.BAR.zar(VARCHAR, NUMBER(38,2));FOO.BAR.ZAR(VARCHAR, NUMBER(38,2))"},
+            delimiter = ';')
+    void ofMatchesObjectName(String input, String expected) {
+        QualifiedName qualifiedName = QualifiedName.of(input);
+        assertEquals(expected, qualifiedName.normalized());
+        assertEquals(ObjectName.quotedObjectName(input), qualifiedName.quoted());
+        assertEquals(ObjectName.splitObjectName(input), qualifiedName.parts());
+        assertEquals(QualifiedName.of(expected), qualifiedName);
+        assertEquals(QualifiedName.of(expected).hashCode(), qualifiedName.hashCode());
+    }
+
+    @Test
+    void ofInternsNormalizedNames() {
+        QualifiedName qualifiedName = QualifiedName.of("INTERN_DB.INTERN_SCHEMA.INTERN_TABLE");
+        assertSame(qualifiedName, QualifiedName.of("INTERN_DB.INTERN_SCHEMA.INTERN_TABLE"));
+        assertSame(qualifiedName, QualifiedName.of("intern_db.\"INTERN_SCHEMA\".intern_table"));
+    }
+
+    @Test
+    void part() {
+        QualifiedName qualifiedName = QualifiedName.of("FOO.\"bar\".zar(VARCHAR)");
+        assertEquals(QualifiedName.of("FOO"), qualifiedName.part(0));
+        assertEquals(QualifiedName.of("\"bar\""), qualifiedName.part(1));
+        assertEquals("ZAR(VARCHAR)", qualifiedName.part(2).normalized());
+        assertTrue(qualifiedName.part(2).hasArguments());
+    }
+
+    @Test
+    void container() {
+        QualifiedName qualifiedName = QualifiedName.of("FOO.\"bar\".zar(VARCHAR)");
+        assertEquals("FOO.\"bar\"", qualifiedName.containerName());
+        assertEquals(2, qualifiedName.container().qualLevel());
+        assertEquals(QualifiedName.EMPTY, QualifiedName.of("FOO").container());
+        assertThrows(ObjectNameException.class, QualifiedName.EMPTY::container);
+    }
+
+    @Test
+    void empty() {
+        assertSame(QualifiedName.EMPTY, QualifiedName.of(""));
+        assertEquals(List.of(""), QualifiedName.EMPTY.parts());
+        assertEquals(0, QualifiedName.EMPTY.qualLevel());
+        assertNotEquals(QualifiedName.EMPTY, QualifiedName.of("FOO"));
+    }
+}
@@ -0,0 +1,64 @@
+package us.zoom.data.dfence.sql;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import us.zoom.data.dfence.sql.models.SqlObject;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlObjectCacheTest {
+
+    @AfterEach
+    void tearDown() {
+        SqlObjectCache.configure(SqlObjectCache.DEFAULT_MAXIMUM_SIZE);
+    }
+
+    @Test
+    void getCountsHitsAndMisses() {
+        SqlObjectCache.configure(10);
+        SqlObject first = ObjectName.parseSqlObject("CACHE_DB.CACHE_SCHEMA.CACHE_TABLE");
+        SqlObject second = ObjectName.parseSqlObject("CACHE_DB.CACHE_SCHEMA.CACHE_TABLE");
+        assertEquals(first, second);
+        assertEquals(1, SqlObjectCache.missCount());
+        assertEquals(1, SqlObjectCache.hitCount());
+    }
+
+    @Test
+    void getReturnsCopies() {
+        SqlObjectCache.configure(10);
+        ObjectName.parseSqlObject("FOO.BAR").getNames().clear();
+        assertEquals(2, ObjectName.parseSqlObject("FOO.BAR").getNames().size());
+    }
+
+    @Test
+    void getIsBounded() {
+        SqlObjectCache.configure(10);
+        IntStream.range(0, 100).forEach(i -> ObjectName.parseSqlObject("FOO.BAR" + i));
+        assertTrue(SqlObjectCache.stats().evictionCount() >= 90);
+    }
+
+    @Test
+    void getParallel() {
+        SqlObjectCache.configure(100);
+        IntStream.range(0, 100000).parallel().forEach(i -> assertEquals(
+                "FOO.BAR" + i % 200,
+                ObjectName.parseSqlObject("foo.bar" + i % 200).normalizedName()));
+    }
+
+    @Test
+    void configureForProfileKeepsTheLargestSize() {
+        SqlObjectCache.configure(10);
+        SqlObjectCache.configureForProfile(1000);
+        SqlObjectCache.configureForProfile(10);
+        IntStream.range(0, 100).forEach(i -> ObjectName.parseSqlObject("FOO.BAZ" + i));
+        assertEquals(0, SqlObjectCache.stats().evictionCount());
+        assertEquals(100, SqlObjectCache.missCount());
+    }
+
+    @Test
+    void configureRejectsNegativeSize() {
+        assertThrows(IllegalArgumentException.class, () -> SqlObjectCache.configure(-1));
+    }
+}
@@ -0,0 +1,197 @@
+package us.zoom.data.dfence.test.fixtures;
+
+import us.zoom.data.dfence.CompiledChanges;
+import us.zoom.data.dfence.Provider;
+import us.zoom.data.dfence.exception.RbacDataError;
+import us.zoom.data.dfence.playbook.model.PlaybookModel;
+import us.zoom.data.dfence.playbook.model.PlaybookPrivilegeGrant;
+import us.zoom.data.dfence.playbook.model.PlaybookRoleModel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A provider that keeps roles and their grants in memory, for testing code that uses a provider without an account.
+ * Object names are not checked and there is no ownership or future grants. Statements are simple SQL-like strings that
+ * are parsed again when they are applied.
+ */
+public class InMemoryProvider implements Provider {
+    private static final Pattern CREATE_ROLE = Pattern.compile("^CREATE ROLE IF NOT EXISTS (\\S+);$");
+    private static final Pattern GRANT = Pattern.compile("^(GRANT|REVOKE) (\\S+) ON (\\S+) (\\S+) (?:TO|FROM) ROLE (\\S+);$");
+
+    private final Map<String, Set<Grant>> roles = new TreeMap<>();
+
+    private int invalidations = 0;
+
+    public record Grant(String privilege, String objectType, String objectName) implements Comparable<Grant> {
+        @Override
+        public int compareTo(Grant other) {
+            return Comparator.comparing(Grant::objectType)
+                    .thenComparing(Grant::objectName)
+                    .thenComparing(Grant::privilege)
+                    .compare(this, other);
+        }
+    }
+
+    public synchronized InMemoryProvider putRole(String roleName, Grant... grants) {
+        roles.computeIfAbsent(roleName.toUpperCase(), x -> new TreeSet<>()).addAll(List.of(grants));
+        return this;
+    }
+
+    public synchronized Set<Grant> grants(String roleName) {
+        return Set.copyOf(roles.getOrDefault(roleName.toUpperCase(), Set.of()));
+    }
+
+    public synchronized int invalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized List<CompiledChanges> compileChanges(PlaybookModel playbookModel, Boolean ignoreUnknownChanges) {
+        List<CompiledChanges> changes = new ArrayList<>();
+        playbookModel.roles().entrySet().stream()
+                .filter(entry -> entry.getValue().enable())
+                .sorted(Comparator.comparing(entry -> entry.getValue().name()))
+                .forEach(entry -> {
+                    PlaybookRoleModel role = entry.getValue();
+                    String roleName = role.name().toUpperCase();
+                    Set<Grant> current = roles.getOrDefault(roleName, Set.of());
+                    Set<Grant> desired = desiredGrants(role);
+                    List<String> roleCreationStatements = !roles.containsKey(roleName) && role.create()
+                            ? List.of(String.format("CREATE ROLE IF NOT EXISTS %s;", roleName))
+                            : List.of();
+                    List<List<String>> roleGrantStatements = new ArrayList<>();
+                    desired.stream()
+                            .filter(grant -> !current.contains(grant))
+                            .forEach(grant -> roleGrantStatements.add(List.of(statement("GRANT", "TO", grant, roleName))));
+                    if (role.revokeOtherGrants()) {
+                        current.stream()
+                                .filter(grant -> !desired.contains(grant))
+                                .forEach(grant -> roleGrantStatements.add(List.of(statement("REVOKE", "FROM", grant, roleName))));
+                    }
+                    CompiledChanges compiledChanges = new CompiledChanges(
+                            entry.getKey(),
+                            roleName,
+                            List.of(),
+                            roleCreationStatements,
+                            roleGrantStatements);
+                    if (compiledChanges.containsChanges()) {
+                        changes.add(compiledChanges);
+                    }
+                });
+        return changes;
+    }
+
+    @Override
+    public synchronized void invalidateCaches() {
+        invalidations++;
+    }
+
+    @Override
+    public synchronized void applyPrivilegeChanges(List<CompiledChanges> compiledChanges) {
+        compiledChanges.stream()
+                .flatMap(x -> Stream.concat(x.ownershipGrantStatements().stream(), x.roleGrantStatements().stream()))
+                .flatMap(List::stream)
+                .forEach(statement -> {
+                    Matcher matcher = GRANT.matcher(statement);
+                    if (!matcher.matches()) {
+                        throw new RbacDataError(String.format("Unsupported statement %s", statement));
+                    }
+                    Set<Grant> grants = roles.get(matcher.group(5));
+                    if (grants == null) {
+                        throw new RbacDataError(String.format("Role %s does not exist.", matcher.group(5)));
+                    }
+                    Grant grant = new Grant(matcher.group(2), matcher.group(3), matcher.group(4));
+                    if (matcher.group(1).equals("GRANT")) {
+                        grants.add(grant);
+                    } else {
+                        grants.remove(grant);
+                    }
+                });
+    }
+
+    @Override
+    public synchronized void applyRolesChanges(List<CompiledChanges> compiledChanges) {
+        compiledChanges.stream()
+                .flatMap(x -> x.roleCreationStatements().stream())
+                .forEach(statement -> {
+                    Matcher matcher = CREATE_ROLE.matcher(statement);
+                    if (!matcher.matches()) {
+                        throw new RbacDataError(String.format("Unsupported statement %s", statement));
+                    }
+                    roles.putIfAbsent(matcher.group(1), new TreeSet<>());
+                });
+    }
+
+    @Override
+    public synchronized List<PlaybookRoleModel> importRoles(List<String> roleNames) {
+        return roleNames.stream()
+                .map(String::toUpperCase)
+                .filter(roles::containsKey)
+                .map(this::importRole)
+                .toList();
+    }
+
+    @Override
+    public synchronized List<PlaybookRoleModel> importRolePatterns(List<Pattern> rolePatterns) {
+        return roles.keySet().stream()
+                .filter(roleName -> rolePatterns.stream().anyMatch(pattern -> pattern.matcher(roleName).matches()))
+                .map(this::importRole)
+                .toList();
+    }
+
+    @Override
+    public synchronized List<String> listRoles() {
+        return List.copyOf(roles.keySet());
+    }
+
+    private PlaybookRoleModel importRole(String roleName) {
+        return new PlaybookRoleModel(
+                roleName,
+                roles.get(roleName).stream()
+                        .map(grant -> new PlaybookPrivilegeGrant(
+                                grant.objectType().toLowerCase(),
+                                grant.objectName(),
+                                null,
+                                null,
+                                List.of(grant.privilege().toLowerCase()),
+                                false,
+                                false,
+                                true))
+                        .toList());
+    }
+
+    private static Set<Grant> desiredGrants(PlaybookRoleModel role) {
+        return role.grants().stream()
+                .filter(PlaybookPrivilegeGrant::enable)
+                .flatMap(grant -> grant.privileges().stream().map(privilege -> new Grant(
+                        privilege.toUpperCase(),
+                        grant.objectType().toUpperCase().replace(' ', '_'),
+                        Stream.of(grant.databaseName(), grant.schemaName(), grant.objectName())
+                                .filter(Objects::nonNull)
+                                .map(String::toUpperCase)
+                                .collect(Collectors.joining(".")))))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static String statement(String action, String preposition, Grant grant, String roleName) {
+        return String.format(
+                "%s %s ON %s %s %s ROLE %s;",
+                action,
+                grant.privilege(),
+                grant.objectType(),
+                grant.objectName(),
+                preposition,
+                roleName);
+    }
+}